@@ -0,0 +1,79 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountTransferIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a transfer pays to find the lock stripe and the history of an account: by hashing its id, as before accounts
+ * had handles, with the history in a map keyed by id, against by its handle, with the history in the
+ * {@link AccountTransferIndex} arrays. Accounts are picked at random, so with a million of them the map lookups and
+ * the id comparisons miss the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AccountHandleBenchmark {
+
+    private static final int STRIPE_MASK = 1023;
+
+    @Param({"1000", "1000000"})
+    private int accounts;
+
+    private Account[] accountObjects;
+
+    private Map<String, long[]> historiesById;
+
+    private AccountTransferIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accountObjects = new Account[accounts];
+        historiesById = new ConcurrentHashMap<>();
+        index = new AccountTransferIndex();
+        for (int i = 0; i < accounts; i++) {
+            // a copy of the id, so the lookups compare ids rather than find the same String
+            Account account = new Account(new String(TransferFixture.accountId(i)));
+            account.setHandle(i);
+            accountObjects[i] = account;
+            historiesById.put(TransferFixture.accountId(i), new long[]{i});
+            index.add(account.getHandle(), i);
+        }
+    }
+
+    @Benchmark
+    public long byId() {
+        Account account = accountObjects[ThreadLocalRandom.current().nextInt(accounts)];
+        String accountId = account.getAccountId();
+        int hash = accountId.hashCode();
+        int stripe = (hash ^ (hash >>> 16)) & STRIPE_MASK;
+        return stripe + historiesById.get(accountId).length;
+    }
+
+    @Benchmark
+    public long byHandle() {
+        Account account = accountObjects[ThreadLocalRandom.current().nextInt(accounts)];
+        int handle = account.getHandle();
+        int stripe = handle & STRIPE_MASK;
+        return stripe + index.size(handle);
+    }
+}
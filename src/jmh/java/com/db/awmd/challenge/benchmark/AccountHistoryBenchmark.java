@@ -0,0 +1,72 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.repository.AccountTransferIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a page of an account's history with histories of growing length, which should cost the same whatever the
+ * length, and appending to it. Run with {@code -Pjmh.profilers=gc}: gc.alloc.rate.norm of {@code append} is the
+ * memory an entry takes in the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AccountHistoryBenchmark {
+
+    private static final int ACCOUNT = 0;
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000", "100000", "10000000"})
+    private int history;
+
+    private AccountTransferIndex index;
+
+    private AccountTransferIndex appendIndex;
+
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void fillHistory() {
+        index = new AccountTransferIndex();
+        for (int i = 0; i < history; i++) {
+            index.add(ACCOUNT, i);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void newAppendIndex() {
+        appendIndex = new AccountTransferIndex();
+    }
+
+    @Benchmark
+    public long[] latestPage() {
+        return index.before(ACCOUNT, index.size(ACCOUNT), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public long[] oldestPage() {
+        return index.before(ACCOUNT, PAGE_SIZE, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void append() {
+        appendIndex.add(ACCOUNT, nextId++);
+    }
+}
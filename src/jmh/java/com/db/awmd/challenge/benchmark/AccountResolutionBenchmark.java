@@ -0,0 +1,97 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * How the accounts of a transfer are resolved: two lookups with the notification descriptions and the missing
+ * account message formatted up front, as createTransfer used to, against one {@code getAccounts} call with the
+ * messages left to be built when read. Run it with {@code -Pjmh.profilers=gc}, the difference is mostly in
+ * {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class AccountResolutionBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("12.50");
+
+    @Param({"1000000"})
+    private int accounts;
+
+    @Param({"heap", "offheap"})
+    private String store;
+
+    private AccountsRepository repository;
+
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = AccountsRepositoryBenchmark.newRepository(store, accounts);
+        accountIds = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            repository.createAccount(new Account(TransferFixture.accountId(i), TransferFixture.INITIAL_BALANCE));
+            accountIds[i] = new String(TransferFixture.accountId(i));
+        }
+    }
+
+    @Benchmark
+    public void twoLookupsEagerMessages(Blackhole blackhole) {
+        int from = ThreadLocalRandom.current().nextInt(accounts);
+        String accountIdFrom = accountIds[from];
+        String accountIdTo = accountIds[(from + 1) % accounts];
+        Account accountFrom = repository.getAccount(accountIdFrom);
+        Account accountTo = repository.getAccount(accountIdTo);
+        blackhole.consume(accountFrom);
+        blackhole.consume(accountTo);
+        blackhole.consume(String.format("Sent transfer to %s in the amount of %s", accountIdTo, AMOUNT));
+        blackhole.consume(String.format("Received transfer from %s in the amount of %s", accountIdFrom, AMOUNT));
+    }
+
+    @Benchmark
+    public void getAccountsLazyMessages(Blackhole blackhole) {
+        int from = ThreadLocalRandom.current().nextInt(accounts);
+        String accountIdFrom = accountIds[from];
+        String accountIdTo = accountIds[(from + 1) % accounts];
+        Account[] resolved = repository.getAccounts(accountIdFrom, accountIdTo);
+        blackhole.consume(resolved[0]);
+        blackhole.consume(resolved[1]);
+        Supplier<String> sent = () -> "Sent transfer to " + accountIdTo + " in the amount of " + AMOUNT;
+        Supplier<String> received = () -> "Received transfer from " + accountIdFrom + " in the amount of " + AMOUNT;
+        blackhole.consume(sent);
+        blackhole.consume(received);
+    }
+
+    @Benchmark
+    public Exception missingAccountEagerMessage() {
+        return new IllegalStateException(String.format("Account %s doesn't exist.", "missing-account"));
+    }
+
+    @Benchmark
+    public Exception missingAccountLazyMessage() {
+        return new AccountNotFoundException("missing-account");
+    }
+}
@@ -0,0 +1,177 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.dto.AccountSnapshotDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of account reads, single and of {@code BULK_ACCOUNTS} accounts at once, with four threads reading while
+ * four others make transfers as fast as they can among the same accounts, and with nobody writing for comparison. On
+ * 16 accounts every read races transfers on its accounts. The transfers are registered up front and the engine is
+ * called directly, as in {@link HotAccountBenchmark}, so the writers spend their time moving balances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AccountSnapshotBenchmark {
+
+    private static final int BULK_ACCOUNTS = 10;
+
+    private static final int TRANSFERS_PER_THREAD = 1024;
+
+    private static final int READS_PER_THREAD = 1024;
+
+    @Param({"16", "10000"})
+    private int accounts;
+
+    @Param({"locking", "lock-free"})
+    private String engine;
+
+    private TransferFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new TransferFixture(TransferFixture.NO_NOTIFICATIONS, engine);
+        fixture.createAccounts(accounts);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadTransfers {
+
+        private Transfer[] transfers;
+
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(AccountSnapshotBenchmark benchmark) {
+            SplittableRandom random = new SplittableRandom();
+            transfers = new Transfer[TRANSFERS_PER_THREAD];
+            for (int i = 0; i < transfers.length; i++) {
+                int from = random.nextInt(benchmark.accounts);
+                int to = (from + 1 + random.nextInt(benchmark.accounts - 1)) % benchmark.accounts;
+                transfers[i] = Transfer.builder()
+                        .accountFrom(benchmark.fixture.getAccountsService().getAccount(TransferFixture.accountId(from)))
+                        .accountTo(benchmark.fixture.getAccountsService().getAccount(TransferFixture.accountId(to)))
+                        .amount(BigDecimal.ONE)
+                        .state(TransferState.PENDING)
+                        .build();
+                benchmark.fixture.getTransferRepository().createTransfer(transfers[i]);
+            }
+        }
+
+        private Transfer next() {
+            Transfer transfer = transfers[next];
+            next = (next + 1) % transfers.length;
+            return transfer;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadReads {
+
+        private String[] accountIds;
+
+        private List<List<String>> bulkIds;
+
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(AccountSnapshotBenchmark benchmark) {
+            SplittableRandom random = new SplittableRandom();
+            accountIds = new String[READS_PER_THREAD];
+            bulkIds = new ArrayList<>(READS_PER_THREAD);
+            for (int i = 0; i < READS_PER_THREAD; i++) {
+                accountIds[i] = TransferFixture.accountId(random.nextInt(benchmark.accounts));
+                List<String> ids = new ArrayList<>(BULK_ACCOUNTS);
+                for (int j = 0; j < BULK_ACCOUNTS; j++) {
+                    ids.add(TransferFixture.accountId(random.nextInt(benchmark.accounts)));
+                }
+                bulkIds.add(ids);
+            }
+        }
+
+        private int next() {
+            int read = next;
+            next = (next + 1) % READS_PER_THREAD;
+            return read;
+        }
+    }
+
+    @Benchmark
+    @Group("readUnderLoad")
+    @GroupThreads(4)
+    public AccountSnapshotDto readUnderLoad(ThreadReads reads) {
+        return fixture.getAccountsService().getSnapshot(reads.accountIds[reads.next()]);
+    }
+
+    @Benchmark
+    @Group("readUnderLoad")
+    @GroupThreads(4)
+    public Transfer transferUnderRead(ThreadTransfers transfers) throws SQLIntegrityConstraintViolationException {
+        return execute(transfers);
+    }
+
+    @Benchmark
+    @Group("bulkReadUnderLoad")
+    @GroupThreads(4)
+    public List<AccountSnapshotDto> bulkReadUnderLoad(ThreadReads reads) {
+        return fixture.getAccountsService().getSnapshots(reads.bulkIds.get(reads.next()));
+    }
+
+    @Benchmark
+    @Group("bulkReadUnderLoad")
+    @GroupThreads(4)
+    public Transfer transferUnderBulkRead(ThreadTransfers transfers) throws SQLIntegrityConstraintViolationException {
+        return execute(transfers);
+    }
+
+    @Benchmark
+    @Group("readAlone")
+    @GroupThreads(4)
+    public AccountSnapshotDto readAlone(ThreadReads reads) {
+        return fixture.getAccountsService().getSnapshot(reads.accountIds[reads.next()]);
+    }
+
+    @Benchmark
+    @Group("bulkReadAlone")
+    @GroupThreads(4)
+    public List<AccountSnapshotDto> bulkReadAlone(ThreadReads reads) {
+        return fixture.getAccountsService().getSnapshots(reads.bulkIds.get(reads.next()));
+    }
+
+    private Transfer execute(ThreadTransfers transfers) throws SQLIntegrityConstraintViolationException {
+        Transfer transfer = transfers.next();
+        fixture.getTransferEngine().execute(transfer);
+        return transfer;
+    }
+}
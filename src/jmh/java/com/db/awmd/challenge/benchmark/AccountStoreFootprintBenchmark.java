@@ -0,0 +1,97 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load the given number of accounts into each store, reporting the heap and direct memory they take once
+ * loaded next to it, see {@link Footprint}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g", "-XX:MaxDirectMemorySize=16g"})
+public class AccountStoreFootprintBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int accounts;
+
+    @Param({"heap", "offheap"})
+    private String store;
+
+    private AccountsRepository repository;
+
+    @Benchmark
+    public AccountsRepository load(Footprint footprint) {
+        repository = AccountsRepositoryBenchmark.newRepository(store, accounts);
+        for (int i = 0; i < accounts; i++) {
+            repository.createAccount(new Account(TransferFixture.accountId(i), TransferFixture.INITIAL_BALANCE));
+        }
+        return repository;
+    }
+
+    /**
+     * The memory per account of the store loaded in the iteration, as JMH auxiliary counters. The store of the
+     * previous iteration is let go of and the memory measured before the iteration is timed, and again after it.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        private AccountStoreFootprintBenchmark benchmark;
+
+        private long heapBefore;
+
+        private long directBefore;
+
+        @Setup(Level.Iteration)
+        public void setUp(AccountStoreFootprintBenchmark benchmark) {
+            this.benchmark = benchmark;
+            benchmark.repository = null;
+            heapBefore = usedHeap();
+            directBefore = usedDirect();
+        }
+
+        public long heapBytesPerAccount() {
+            return (usedHeap() - heapBefore) / benchmark.accounts;
+        }
+
+        public long directBytesPerAccount() {
+            return (usedDirect() - directBefore) / benchmark.accounts;
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirect() {
+        long used = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                used += pool.getMemoryUsed();
+            }
+        }
+        return used;
+    }
+}
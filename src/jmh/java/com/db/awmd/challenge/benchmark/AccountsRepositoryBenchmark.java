@@ -0,0 +1,82 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.persistence.NoOpWriteAheadLog;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.OffHeapAccountsRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Account lookups by id as the number of accounts grows, on all cores, on the heap and in the off-heap store.
+ * {@link AccountStoreFootprintBenchmark} compares how much memory each takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Threads(Threads.MAX)
+public class AccountsRepositoryBenchmark {
+
+    @Param({"1000", "1000000"})
+    private int accounts;
+
+    @Param({"heap", "offheap"})
+    private String store;
+
+    private AccountsRepository repository;
+
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = newRepository(store, accounts);
+        for (int i = 0; i < accounts; i++) {
+            repository.createAccount(new Account(TransferFixture.accountId(i), TransferFixture.INITIAL_BALANCE));
+        }
+        accountIds = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            // fresh instances so the hash code isn't already cached on the key used to insert
+            accountIds[i] = new String(TransferFixture.accountId(i));
+        }
+    }
+
+    @Benchmark
+    public Account getAccount() {
+        return repository.getAccount(accountIds[ThreadLocalRandom.current().nextInt(accounts)]);
+    }
+
+    @Benchmark
+    public long getBalance() {
+        return repository.getAccount(accountIds[ThreadLocalRandom.current().nextInt(accounts)]).getBalanceMinorUnits();
+    }
+
+    static AccountsRepository newRepository(String store, int accounts) {
+        switch (store) {
+            case "heap":
+                return new AccountsRepositoryInMemory(new NoOpWriteAheadLog());
+            case "offheap":
+                return new OffHeapAccountsRepository(new NoOpWriteAheadLog(), new BalanceVersions(1024), accounts);
+            default:
+                throw new IllegalArgumentException("Unknown account store " + store);
+        }
+    }
+}
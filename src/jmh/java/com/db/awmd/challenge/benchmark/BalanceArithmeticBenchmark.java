@@ -0,0 +1,113 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.domain.Money;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.persistence.NoOpWriteAheadLog;
+import com.db.awmd.challenge.repository.SnowflakeTransferIdGenerator;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The balance check and update of a transfer with BigDecimal balances, as they were before, against long minor
+ * units, plus the repository's executeTransfer built on the latter. Run with {@code -Pjmh.profilers=gc} to compare
+ * the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BalanceArithmeticBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("12.34");
+
+    private BigDecimal decimalFrom;
+
+    private BigDecimal decimalTo;
+
+    private long minorUnitsFrom;
+
+    private long minorUnitsTo;
+
+    private long amountMinorUnits;
+
+    private Transfer outbound;
+
+    private Transfer inbound;
+
+    private TransferRepositoryInMemory transferRepository;
+
+    @Setup
+    public void setUp() {
+        decimalFrom = TransferFixture.INITIAL_BALANCE;
+        decimalTo = TransferFixture.INITIAL_BALANCE;
+        minorUnitsFrom = Money.toMinorUnits(TransferFixture.INITIAL_BALANCE);
+        minorUnitsTo = minorUnitsFrom;
+        amountMinorUnits = Money.toMinorUnits(AMOUNT);
+
+        Account first = new Account("acc-1", TransferFixture.INITIAL_BALANCE);
+        Account second = new Account("acc-2", TransferFixture.INITIAL_BALANCE);
+        // as the accounts repository would have given them
+        first.setHandle(0);
+        second.setHandle(1);
+        transferRepository = new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0),
+                new NoOpWriteAheadLog(), new BalanceVersions(1024));
+        outbound = newTransfer(first, second);
+        inbound = newTransfer(second, first);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        if (decimalFrom.compareTo(AMOUNT) < 0) {
+            throw new IllegalStateException();
+        }
+        decimalFrom = decimalFrom.subtract(AMOUNT);
+        decimalTo = decimalTo.add(AMOUNT);
+        return decimalTo;
+    }
+
+    @Benchmark
+    public long minorUnits() {
+        if (minorUnitsFrom < amountMinorUnits) {
+            throw new IllegalStateException();
+        }
+        minorUnitsFrom = Money.subtract(minorUnitsFrom, amountMinorUnits);
+        minorUnitsTo = Money.add(minorUnitsTo, amountMinorUnits);
+        return minorUnitsTo;
+    }
+
+    @Benchmark
+    public Transfer executeTransfer() throws SQLIntegrityConstraintViolationException {
+        transferRepository.executeTransfer(outbound);
+        transferRepository.executeTransfer(inbound);
+        return inbound;
+    }
+
+    private Transfer newTransfer(Account from, Account to) {
+        Transfer transfer = Transfer.builder()
+                .accountFrom(from)
+                .accountTo(to)
+                .amount(AMOUNT)
+                .state(TransferState.PENDING)
+                .build();
+        transferRepository.createTransfer(transfer);
+        return transfer;
+    }
+}
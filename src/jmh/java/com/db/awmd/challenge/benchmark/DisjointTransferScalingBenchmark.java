@@ -0,0 +1,116 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.dto.TransferDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Every thread moves money back and forth between its own pair of accounts. With no account shared between
+ * threads, throughput should grow linearly with the thread count until the cores run out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DisjointTransferScalingBenchmark {
+
+    private static final int MAX_THREADS = 64;
+
+    @State(Scope.Benchmark)
+    public static class Accounts {
+
+        private final AtomicInteger nextPair = new AtomicInteger();
+
+        @Param({"locking", "lock-free", "sharded"})
+        private String engine;
+
+        private TransferFixture fixture;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            fixture = new TransferFixture(TransferFixture.NO_NOTIFICATIONS, engine);
+            fixture.createAccounts(2 * MAX_THREADS);
+        }
+
+        @TearDown(Level.Iteration)
+        public void clearTransfers() {
+            fixture.getTransferRepository().clearTransfers();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            fixture.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Pair {
+
+        private TransferDto outbound;
+
+        private TransferDto inbound;
+
+        private boolean flip;
+
+        @Setup(Level.Trial)
+        public void setUp(Accounts accounts) {
+            int pair = accounts.nextPair.getAndIncrement() % MAX_THREADS;
+            String first = TransferFixture.accountId(2 * pair);
+            String second = TransferFixture.accountId(2 * pair + 1);
+            outbound = TransferDto.builder().accountFrom(first).accountTo(second).amount(BigDecimal.ONE).build();
+            inbound = TransferDto.builder().accountFrom(second).accountTo(first).amount(BigDecimal.ONE).build();
+        }
+
+        private TransferDto next() {
+            flip = !flip;
+            return flip ? outbound : inbound;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void threads01(Accounts accounts, Pair pair) {
+        accounts.fixture.getTransferService().createTransfer(pair.next());
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void threads02(Accounts accounts, Pair pair) {
+        accounts.fixture.getTransferService().createTransfer(pair.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void threads04(Accounts accounts, Pair pair) {
+        accounts.fixture.getTransferService().createTransfer(pair.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void threads08(Accounts accounts, Pair pair) {
+        accounts.fixture.getTransferService().createTransfer(pair.next());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void threads16(Accounts accounts, Pair pair) {
+        accounts.fixture.getTransferService().createTransfer(pair.next());
+    }
+}
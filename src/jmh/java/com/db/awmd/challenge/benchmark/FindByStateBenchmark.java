@@ -0,0 +1,82 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up the pending transfers among a growing history of completed ones. With the state index the cost
+ * should follow the number of pending transfers, not the size of the history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class FindByStateBenchmark {
+
+    private static final int PENDING = 100;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int history;
+
+    private TransferFixture fixture;
+
+    private TransferRepositoryInMemory transferRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new TransferFixture();
+        fixture.createAccounts(2);
+        transferRepository = fixture.getTransferRepository();
+        Account accountFrom = fixture.getAccountsService().getAccount(TransferFixture.accountId(0));
+        Account accountTo = fixture.getAccountsService().getAccount(TransferFixture.accountId(1));
+        for (int i = 0; i < history + PENDING; i++) {
+            transferRepository.createTransfer(Transfer.builder()
+                    .accountFrom(accountFrom)
+                    .accountTo(accountTo)
+                    .amount(BigDecimal.ONE)
+                    .state(i % (history / PENDING + 1) == 0 ? TransferState.PENDING : TransferState.COMPLETED)
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public List<Transfer> findPending() {
+        return transferRepository.findByState(TransferState.PENDING);
+    }
+
+    @Benchmark
+    public List<Transfer> findFirstPageOfPending() {
+        return transferRepository.findByState(TransferState.PENDING, Long.MIN_VALUE, 20);
+    }
+
+    @Benchmark
+    public long countPending() {
+        return transferRepository.countByState(TransferState.PENDING);
+    }
+}
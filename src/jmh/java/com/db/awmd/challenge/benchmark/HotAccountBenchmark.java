@@ -0,0 +1,110 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Throughput of each transfer engine on all cores, with the accounts of every transfer drawn either from a Zipfian
+ * distribution or from a hot set where 1% of the accounts take half of the draws, so a few hot accounts take part in
+ * most transfers. {@code locking-combining} is the locking engine with hot account combining switched on. The transfers are registered up front and the
+ * engine is called directly, so only the execution of the transfer is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(Threads.MAX)
+public class HotAccountBenchmark {
+
+    private static final int TRANSFERS_PER_THREAD = 1024;
+
+    @Param({"1000"})
+    private int accounts;
+
+    @Param({"locking", "locking-combining", "lock-free", "sharded"})
+    private String engine;
+
+    @Param({"zipfian", "hot-set"})
+    private String workload;
+
+    private TransferFixture fixture;
+
+    private IntSupplier ranks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new TransferFixture(TransferFixture.NO_NOTIFICATIONS, engine);
+        fixture.createAccounts(accounts);
+        if ("hot-set".equals(workload)) {
+            ranks = new HotSetGenerator(accounts)::next;
+        } else {
+            ranks = new ZipfianGenerator(accounts)::next;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadTransfers {
+
+        private Transfer[] transfers;
+
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(HotAccountBenchmark benchmark) {
+            transfers = new Transfer[TRANSFERS_PER_THREAD];
+            for (int i = 0; i < transfers.length; i++) {
+                int from = benchmark.ranks.getAsInt();
+                int to = benchmark.ranks.getAsInt();
+                if (from == to) {
+                    to = (to + 1) % benchmark.accounts;
+                }
+                transfers[i] = Transfer.builder()
+                        .accountFrom(benchmark.fixture.getAccountsService().getAccount(TransferFixture.accountId(from)))
+                        .accountTo(benchmark.fixture.getAccountsService().getAccount(TransferFixture.accountId(to)))
+                        .amount(BigDecimal.ONE)
+                        .state(TransferState.PENDING)
+                        .build();
+                benchmark.fixture.getTransferRepository().createTransfer(transfers[i]);
+            }
+        }
+
+        private Transfer next() {
+            Transfer transfer = transfers[next];
+            next = (next + 1) % transfers.length;
+            return transfer;
+        }
+    }
+
+    @Benchmark
+    public Transfer execute(ThreadTransfers threadTransfers) throws SQLIntegrityConstraintViolationException {
+        Transfer transfer = threadTransfers.next();
+        fixture.getTransferEngine().execute(transfer);
+        return transfer;
+    }
+}
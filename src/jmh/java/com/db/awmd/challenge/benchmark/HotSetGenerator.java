@@ -0,0 +1,38 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws ranks in [0, items) so that a small hot set takes a fixed share of the draws: by default the first 1% of the
+ * items get half of them, uniformly, and the other half is spread uniformly over the rest. Thread safe.
+ */
+public class HotSetGenerator {
+
+    public static final double DEFAULT_HOT_ITEMS = 0.01;
+
+    public static final double DEFAULT_HOT_SHARE = 0.5;
+
+    private final int items;
+
+    private final int hotItems;
+
+    private final double hotShare;
+
+    public HotSetGenerator(int items) {
+        this(items, DEFAULT_HOT_ITEMS, DEFAULT_HOT_SHARE);
+    }
+
+    public HotSetGenerator(int items, double hotItems, double hotShare) {
+        this.items = items;
+        this.hotItems = Math.max(1, Math.min(items - 1, (int) (items * hotItems)));
+        this.hotShare = hotShare;
+    }
+
+    public int next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < hotShare) {
+            return random.nextInt(hotItems);
+        }
+        return hotItems + random.nextInt(items - hotItems);
+    }
+}
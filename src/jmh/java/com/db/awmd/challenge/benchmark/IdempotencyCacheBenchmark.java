@@ -0,0 +1,104 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.dto.TransferResultDto;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A retry storm on all cores: idempotency keys are drawn from a Zipfian distribution over ten times as many keys as
+ * the cache holds, so a few keys are retried over and over among a long tail of one-off ones. Compares a single lock
+ * stripe with the default 64, and reports the hits and misses of each iteration next to its throughput, see
+ * {@link Lookups}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(Threads.MAX)
+public class IdempotencyCacheBenchmark {
+
+    private static final int MAX_SIZE = 100_000;
+
+    private static final TransferResultDto CREATED = TransferResultDto.builder()
+            .status(TransferResultDto.Status.CREATED)
+            .build();
+
+    private static final TransferDto TRANSFER = TransferDto.builder()
+            .accountFrom(TransferFixture.accountId(0))
+            .accountTo(TransferFixture.accountId(1))
+            .amount(BigDecimal.ONE)
+            .build();
+
+    @Param({"1", "64"})
+    private int stripes;
+
+    private IdempotencyCache cache;
+
+    private ZipfianGenerator keys;
+
+    private String[] keyNames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cache = new IdempotencyCache(MAX_SIZE, TimeUnit.DAYS.toMillis(1), stripes);
+        keys = new ZipfianGenerator(10 * MAX_SIZE);
+        keyNames = new String[10 * MAX_SIZE];
+        for (int i = 0; i < keyNames.length; i++) {
+            keyNames[i] = "key-" + i;
+        }
+    }
+
+    @Benchmark
+    public TransferResultDto execute(Lookups lookups) {
+        long missed = lookups.misses;
+        TransferResultDto result = cache.execute(keyNames[keys.next()], TRANSFER, lookups.transfer);
+        if (lookups.misses == missed) {
+            lookups.hits++;
+        }
+        return result;
+    }
+
+    /**
+     * The lookups of one thread, as JMH auxiliary counters summed over the threads. A lookup is a miss when the cache
+     * made the transfer, so each is counted by the thread that saw it rather than read off the shared cache.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Lookups {
+
+        public long hits;
+
+        public long misses;
+
+        private final Supplier<TransferResultDto> transfer = () -> {
+            misses++;
+            return CREATED;
+        };
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+    }
+}
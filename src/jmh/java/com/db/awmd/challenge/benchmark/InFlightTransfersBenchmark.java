@@ -0,0 +1,132 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.service.NotificationService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of 100k transfers arriving at once, each made on a request thread of its own the way the controller
+ * makes them. With {@code platform} requests get the 200 threads of Tomcat's default pool, with {@code virtual} a
+ * virtual thread each as in the {@code virtual} profile. Every transfer waits on its account locks, on few accounts
+ * they are contended, and then on a notification sink doing a millisecond of I/O.
+ * <p>
+ * The time is for the whole load. Next to it each iteration reports how many requests were in flight at the peak,
+ * see {@link Peak}: at most the pool size on platform threads, while the rest queue, and up to every request on
+ * virtual threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class InFlightTransfersBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    private static final long SINK_LATENCY_MILLIS = 1;
+
+    @Param({"100000"})
+    private int requests;
+
+    @Param({"16", "100000"})
+    private int accounts;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    private TransferFixture fixture;
+
+    private ExecutorService requestThreads;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new TransferFixture(slowSink());
+        fixture.createAccounts(accounts);
+        requestThreads = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requestThreads.shutdown();
+        fixture.close();
+    }
+
+    @Benchmark
+    public void makeTransfers(Peak peak) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            TransferDto transfer = TransferDto.builder()
+                    .accountFrom(TransferFixture.accountId(i % accounts))
+                    .accountTo(TransferFixture.accountId((i + 1) % accounts))
+                    .amount(BigDecimal.ONE)
+                    .build();
+            requestThreads.execute(() -> {
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    fixture.getTransferService().createTransfer(transfer);
+                } finally {
+                    inFlight.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    /**
+     * The peak of requests in flight during the iteration, as a JMH auxiliary counter read once it is timed.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Peak {
+
+        private InFlightTransfersBenchmark benchmark;
+
+        @Setup(Level.Iteration)
+        public void setUp(InFlightTransfersBenchmark benchmark) {
+            this.benchmark = benchmark;
+            benchmark.peakInFlight.set(0);
+        }
+
+        public long requestsInFlight() {
+            return benchmark.peakInFlight.get();
+        }
+    }
+
+    private static NotificationService slowSink() {
+        return (account, description) -> {
+            try {
+                Thread.sleep(SINK_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+}
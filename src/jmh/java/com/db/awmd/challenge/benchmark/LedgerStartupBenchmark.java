@@ -0,0 +1,107 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.persistence.DurabilityMode;
+import com.db.awmd.challenge.persistence.FileWriteAheadLog;
+import com.db.awmd.challenge.persistence.NoOpSnapshotStore;
+import com.db.awmd.challenge.persistence.NoOpWriteAheadLog;
+import com.db.awmd.challenge.persistence.WalRecord;
+import com.db.awmd.challenge.persistence.WalRecovery;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.MappedAccountsRepository;
+import com.db.awmd.challenge.repository.SnowflakeTransferIdGenerator;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to get the given number of accounts back on startup: opening the memory mapped ledger after a clean shutdown,
+ * opening it with the integrity scan a crash would trigger, and replaying the account creations from the log into
+ * the heap store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class LedgerStartupBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int accounts;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void writeLedgerAndLog() throws IOException {
+        directory = Files.createTempDirectory("ledger-startup-benchmark");
+        MappedAccountsRepository ledger = new MappedAccountsRepository(new NoOpWriteAheadLog(),
+                new BalanceVersions(1024), directory.resolve("ledger"), accounts, false);
+        FileWriteAheadLog log = FileWriteAheadLog.open(directory.resolve("wal"), DurabilityMode.SYNC, 0);
+        long lsn = 0;
+        for (int i = 0; i < accounts; i++) {
+            Account account = new Account(TransferFixture.accountId(i), TransferFixture.INITIAL_BALANCE);
+            ledger.createAccount(account);
+            // straight to the log with a single force at the end, like WalRecoveryBenchmark
+            lsn = log.append(WalRecord.accountCreated(account));
+        }
+        log.awaitDurable(lsn);
+        log.close();
+        ledger.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        TransferFixture.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public AccountsRepository openLedger() throws IOException {
+        MappedAccountsRepository ledger = new MappedAccountsRepository(new NoOpWriteAheadLog(),
+                new BalanceVersions(1024), directory.resolve("ledger"), accounts, false);
+        ledger.close();
+        return ledger;
+    }
+
+    @Benchmark
+    public AccountsRepository openLedgerWithScan() throws IOException {
+        MappedAccountsRepository ledger = new MappedAccountsRepository(new NoOpWriteAheadLog(),
+                new BalanceVersions(1024), directory.resolve("ledger"), accounts, true);
+        ledger.close();
+        return ledger;
+    }
+
+    @Benchmark
+    public AccountsRepository replayLog() throws IOException {
+        FileWriteAheadLog log = FileWriteAheadLog.open(directory.resolve("wal"), DurabilityMode.SYNC, 0);
+        try {
+            BalanceVersions balanceVersions = new BalanceVersions(1024);
+            AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory(log);
+            TransferRepositoryInMemory transferRepository =
+                    new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), log, balanceVersions);
+            new WalRecovery(log, new NoOpSnapshotStore(), accountsRepository, transferRepository, balanceVersions)
+                    .afterPropertiesSet();
+            return accountsRepository;
+        } finally {
+            log.close();
+        }
+    }
+}
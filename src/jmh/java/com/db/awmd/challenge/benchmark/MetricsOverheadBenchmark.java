@@ -0,0 +1,57 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.metrics.TransferMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording on the transfer path, against a registry that keeps the same histograms as the application.
+ * Run with {@code -Pjmh.profilers=gc}: gc.alloc.rate.norm should stay at 0 bytes per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MetricsOverheadBenchmark {
+
+    private final TransferMetrics metrics = new TransferMetrics(new SimpleMeterRegistry());
+
+    private final TransferMetrics disabledMetrics = TransferMetrics.disabled();
+
+    @Benchmark
+    public long baseline() {
+        return System.nanoTime() - System.nanoTime();
+    }
+
+    @Benchmark
+    public void recordExecution() {
+        long start = System.nanoTime();
+        metrics.recordExecution(System.nanoTime() - start);
+    }
+
+    @Benchmark
+    public void transitioned() {
+        metrics.transitioned(TransferState.COMPLETED);
+    }
+
+    @Benchmark
+    public void disabled() {
+        long start = System.nanoTime();
+        disabledMetrics.recordExecution(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,90 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.service.AsyncNotificationService;
+import com.db.awmd.challenge.service.EmailNotificationService;
+import com.db.awmd.challenge.service.NotificationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What notifying the account owners adds to a transfer: not at all, straight to the email sink on the request
+ * thread, or through the asynchronous dispatcher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(4)
+public class NotificationBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    @Param({"none", "direct", "async"})
+    private String notifications;
+
+    private TransferFixture fixture;
+
+    private AsyncNotificationService asyncNotificationService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new TransferFixture(notificationService());
+        fixture.createAccounts(ACCOUNTS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearTransfers() {
+        fixture.getTransferRepository().clearTransfers();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (asyncNotificationService != null) {
+            asyncNotificationService.shutdown();
+        }
+        fixture.close();
+    }
+
+    @Benchmark
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(ACCOUNTS);
+        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        fixture.getTransferService().createTransfer(TransferDto.builder()
+                .accountFrom(TransferFixture.accountId(from))
+                .accountTo(TransferFixture.accountId(to))
+                .amount(BigDecimal.ONE)
+                .build());
+    }
+
+    private NotificationService notificationService() {
+        switch (notifications) {
+            case "direct":
+                return new EmailNotificationService();
+            case "async":
+                asyncNotificationService = new AsyncNotificationService(new EmailNotificationService(), 65536, 2, 256, 50);
+                return asyncNotificationService;
+            default:
+                return TransferFixture.NO_NOTIFICATIONS;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.config.ProcessPendingTransactions;
+import com.db.awmd.challenge.config.RecoveryProgress;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to execute the given number of transfers left pending by an earlier run, as the application does on start.
+ * The fixture is rebuilt for every invocation so each one starts with every transfer pending.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PendingTransferRecoveryBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    @Param({"100000", "1000000"})
+    private int transfers;
+
+    @Param({"1000", "10000"})
+    private int maxInFlight;
+
+    private TransferFixture fixture;
+
+    @Setup(Level.Invocation)
+    public void registerPendingTransfers() {
+        fixture = new TransferFixture();
+        fixture.createAccounts(ACCOUNTS);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // dated in the past, as if restored from the log of an earlier run
+        Date earlierRun = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < transfers; i++) {
+            int from = random.nextInt(ACCOUNTS);
+            Transfer transfer = Transfer.builder()
+                    .accountFrom(fixture.getAccountsService().getAccount(TransferFixture.accountId(from)))
+                    .accountTo(fixture.getAccountsService().getAccount(TransferFixture.accountId((from + 1) % ACCOUNTS)))
+                    .amount(BigDecimal.ONE)
+                    .state(TransferState.PENDING)
+                    .build();
+            fixture.getTransferRepository().createTransfer(transfer);
+            transfer.setDate(earlierRun);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public RecoveryProgress recover() {
+        ProcessPendingTransactions recovery = new ProcessPendingTransactions(fixture.getTransferService(),
+                fixture.getTransferExecutor(), false, maxInFlight);
+        recovery.recover();
+        return recovery.getProgress();
+    }
+}
@@ -0,0 +1,107 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.persistence.DurabilityMode;
+import com.db.awmd.challenge.persistence.FileSnapshotStore;
+import com.db.awmd.challenge.persistence.FileWriteAheadLog;
+import com.db.awmd.challenge.persistence.SnapshotCompactor;
+import com.db.awmd.challenge.persistence.WalRecord;
+import com.db.awmd.challenge.persistence.WalRecovery;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.SnowflakeTransferIdGenerator;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time with the given number of accounts in the latest snapshot and 100k completed transfers logged after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class SnapshotRecoveryBenchmark {
+
+    private static final int TAIL_TRANSFERS = 100_000;
+
+    @Param({"1000000", "10000000"})
+    private int accounts;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        directory = Files.createTempDirectory("snapshot-recovery-benchmark");
+        FileWriteAheadLog log = FileWriteAheadLog.open(directory.resolve("wal"), DurabilityMode.SYNC, 0);
+        Account[] created = new Account[accounts];
+        for (int i = 0; i < accounts; i++) {
+            created[i] = new Account(TransferFixture.accountId(i), TransferFixture.INITIAL_BALANCE);
+            log.append(WalRecord.accountCreated(created[i]));
+        }
+        new SnapshotCompactor(log, new FileSnapshotStore(directory.resolve("snapshots"))).compact();
+
+        SnowflakeTransferIdGenerator ids = new SnowflakeTransferIdGenerator(0);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long lsn = 0;
+        for (int i = 0; i < TAIL_TRANSFERS; i++) {
+            int from = random.nextInt(accounts);
+            Transfer transfer = Transfer.builder()
+                    .id(ids.nextId())
+                    .accountFrom(created[from])
+                    .accountTo(created[(from + 1) % accounts])
+                    .amount(BigDecimal.ONE)
+                    .state(TransferState.PENDING)
+                    .date(new Date())
+                    .build();
+            log.append(WalRecord.transferCreated(transfer));
+            lsn = log.append(WalRecord.transferCompleted(transfer));
+        }
+        log.awaitDurable(lsn);
+        log.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        TransferFixture.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public AccountsRepositoryInMemory recover() throws IOException {
+        FileWriteAheadLog log = FileWriteAheadLog.open(directory.resolve("wal"), DurabilityMode.SYNC, 0);
+        try {
+            BalanceVersions balanceVersions = new BalanceVersions(1024);
+            AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory(log);
+            TransferRepositoryInMemory transferRepository =
+                    new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), log, balanceVersions);
+            new WalRecovery(log, new FileSnapshotStore(directory.resolve("snapshots")), accountsRepository,
+                    transferRepository, balanceVersions).afterPropertiesSet();
+            return accountsRepository;
+        } finally {
+            log.close();
+        }
+    }
+}
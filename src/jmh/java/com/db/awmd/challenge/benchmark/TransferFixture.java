@@ -0,0 +1,156 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.metrics.TransferMetrics;
+import com.db.awmd.challenge.persistence.NoOpTransferArchive;
+import com.db.awmd.challenge.persistence.NoOpWriteAheadLog;
+import com.db.awmd.challenge.persistence.TransferArchive;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.SnowflakeTransferIdGenerator;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountCombiner;
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import com.db.awmd.challenge.service.LockFreeTransferEngine;
+import com.db.awmd.challenge.service.LockingTransferEngine;
+import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.ShardedTransferEngine;
+import com.db.awmd.challenge.service.TransferEngine;
+import com.db.awmd.challenge.service.TransferService;
+
+import jakarta.validation.Validation;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Wires the services and in-memory repositories the same way the application context does, without Spring.
+ */
+public class TransferFixture {
+
+    public static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000000");
+
+    public static final NotificationService NO_NOTIFICATIONS = (account, description) -> { };
+
+    private final BalanceVersions balanceVersions = new BalanceVersions(1024);
+
+    private final AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory(new NoOpWriteAheadLog());
+
+    private final TransferRepositoryInMemory transferRepository;
+
+    private final AccountsService accountsService = new AccountsService(accountsRepository, balanceVersions);
+
+    private final ExecutorService transferExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+    private final TransferEngine transferEngine;
+
+    private final TransferService transferService;
+
+    /**
+     * @param engine the {@code transfer.engine} setting to wire
+     * @param archive where transfers go when they are moved off the heap
+     */
+    public TransferFixture(NotificationService notificationService, String engine, TransferArchive archive) {
+        this.transferRepository =
+                new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), new NoOpWriteAheadLog(), archive,
+                        balanceVersions);
+        this.transferEngine = newEngine(engine);
+        this.transferService = new TransferService(transferRepository, accountsService, notificationService,
+                transferEngine, transferExecutor, TransferMetrics.disabled(),
+                new IdempotencyCache(1_000_000, TimeUnit.DAYS.toMillis(1), 64),
+                Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    public TransferFixture(NotificationService notificationService, String engine) {
+        this(notificationService, engine, new NoOpTransferArchive());
+    }
+
+    public TransferFixture(NotificationService notificationService) {
+        this(notificationService, "locking");
+    }
+
+    public TransferFixture() {
+        this(NO_NOTIFICATIONS);
+    }
+
+    public static String accountId(int index) {
+        return "acc-" + index;
+    }
+
+    public static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private TransferEngine newEngine(String engine) {
+        switch (engine) {
+            case "locking":
+                AccountLockManager lockManager = new AccountLockManager(1024);
+                return new LockingTransferEngine(transferRepository, lockManager,
+                        new AccountCombiner(lockManager, balanceVersions));
+            case "locking-combining":
+                AccountLockManager combiningLockManager = new AccountLockManager(1024, 64, 100);
+                return new LockingTransferEngine(transferRepository, combiningLockManager,
+                        new AccountCombiner(combiningLockManager, balanceVersions));
+            case "lock-free":
+                return new LockFreeTransferEngine(transferRepository);
+            case "sharded":
+                return new ShardedTransferEngine(transferRepository, 0, 1024);
+            default:
+                throw new IllegalArgumentException("Unknown transfer engine " + engine);
+        }
+    }
+
+    public void createAccounts(int count) {
+        for (int i = 0; i < count; i++) {
+            accountsService.createAccount(new Account(accountId(i), INITIAL_BALANCE));
+        }
+    }
+
+    public AccountsRepositoryInMemory getAccountsRepository() {
+        return accountsRepository;
+    }
+
+    public TransferRepositoryInMemory getTransferRepository() {
+        return transferRepository;
+    }
+
+    public AccountsService getAccountsService() {
+        return accountsService;
+    }
+
+    public TransferEngine getTransferEngine() {
+        return transferEngine;
+    }
+
+    public TransferService getTransferService() {
+        return transferService;
+    }
+
+    public ExecutorService getTransferExecutor() {
+        return transferExecutor;
+    }
+
+    public void close() {
+        transferExecutor.shutdown();
+        if (transferEngine instanceof ShardedTransferEngine) {
+            try {
+                ((ShardedTransferEngine) transferEngine).shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.persistence.MappedTransferArchive;
+import com.db.awmd.challenge.persistence.NoOpTransferArchive;
+import com.db.awmd.challenge.persistence.TransferArchive;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Soak test of the transfer history: every iteration makes another batch of transfers and archives what is over the
+ * heap budget, and reports the heap left after a full GC next to its time, see {@link History}. With
+ * {@code maxOnHeap} at 0 nothing is archived and the heap grows with every iteration, with a budget it should stay
+ * flat once the budget is reached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 30)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TransferHistorySoakBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    private static final int TRANSFERS_PER_ITERATION = 200_000;
+
+    @Param({"0", "100000"})
+    private long maxOnHeap;
+
+    private Path directory;
+
+    private TransferArchive archive;
+
+    private TransferFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("transfer-archive-benchmark");
+        archive = maxOnHeap > 0
+                ? MappedTransferArchive.open(directory, 64 << 20, id -> fixture.getAccountsRepository().getAccount(id))
+                : new NoOpTransferArchive();
+        fixture = new TransferFixture(TransferFixture.NO_NOTIFICATIONS, "locking", archive);
+        fixture.createAccounts(ACCOUNTS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+        archive.close();
+        TransferFixture.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public int makeTransfers(History history) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < TRANSFERS_PER_ITERATION; i++) {
+            int from = random.nextInt(ACCOUNTS);
+            fixture.getTransferService().createTransfer(TransferDto.builder()
+                    .accountFrom(TransferFixture.accountId(from))
+                    .accountTo(TransferFixture.accountId((from + 1) % ACCOUNTS))
+                    .amount(BigDecimal.ONE)
+                    .build());
+        }
+        return maxOnHeap > 0 ? fixture.getTransferRepository().archive(maxOnHeap, new Date()) : 0;
+    }
+
+    /**
+     * The history after each iteration, as JMH auxiliary counters. They are read once the iteration is timed.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class History {
+
+        private TransferHistorySoakBenchmark benchmark;
+
+        @Setup(Level.Iteration)
+        public void setUp(TransferHistorySoakBenchmark benchmark) {
+            this.benchmark = benchmark;
+        }
+
+        public long transfers() {
+            return benchmark.fixture.getTransferRepository().countTransfers();
+        }
+
+        public long archived() {
+            return benchmark.archive.size();
+        }
+
+        public long heapUsedMbAfterGc() {
+            System.gc();
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+        }
+    }
+}
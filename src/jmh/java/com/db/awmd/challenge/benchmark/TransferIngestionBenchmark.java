@@ -0,0 +1,198 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.DevChallengeApplication;
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.TransferService;
+import com.db.awmd.challenge.web.TransferController;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A feed of transfers sent to the running application over HTTP: as single transfer POSTs with a few requests in
+ * flight, as batches of the largest size allowed, and as a single NDJSON stream. The time is for the whole feed.
+ * Run it with {@code -Pjmh.profilers=gc} for the allocations per feed. Next to its time each iteration reports its
+ * peak heap, client and server together, which for the batches includes a whole batch and its results, see
+ * {@link Heap}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransferIngestionBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    private static final int POSTS_IN_FLIGHT = 64;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    @Param({"100000"})
+    private int transfers;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient client;
+
+    private int port;
+
+    private String baseUri;
+
+    private String[] transferJson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = SpringApplication.run(DevChallengeApplication.class,
+                "--server.port=0", "--logging.level.com.db.awmd=WARN");
+        AccountsService accountsService = context.getBean(AccountsService.class);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountsService.createAccount(new Account(TransferFixture.accountId(i), TransferFixture.INITIAL_BALANCE));
+        }
+        port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        baseUri = "http://localhost:" + port;
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        transferJson = new String[transfers];
+        for (int i = 0; i < transfers; i++) {
+            transferJson[i] = "{\"accountFrom\":\"" + TransferFixture.accountId(i % ACCOUNTS)
+                    + "\",\"accountTo\":\"" + TransferFixture.accountId((i + 1) % ACCOUNTS) + "\",\"amount\":1}";
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void singlePosts(Heap heap) {
+        Semaphore inFlight = new Semaphore(POSTS_IN_FLIGHT);
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[transfers];
+        for (int i = 0; i < transfers; i++) {
+            inFlight.acquireUninterruptibly();
+            responses[i] = client.sendAsync(post("/v1/transfer", "application/json", transferJson[i]),
+                            HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> inFlight.release());
+        }
+        CompletableFuture.allOf(responses).join();
+    }
+
+    @Benchmark
+    public void batches(Heap heap) throws Exception {
+        for (int from = 0; from < transfers; from += TransferService.MAX_BATCH_SIZE) {
+            int to = Math.min(transfers, from + TransferService.MAX_BATCH_SIZE);
+            String batch = "[" + String.join(",", Arrays.copyOfRange(transferJson, from, to)) + "]";
+            client.send(post("/v1/transfer/batch", "application/json", batch), HttpResponse.BodyHandlers.discarding());
+        }
+    }
+
+    /**
+     * Over a plain socket, so the feed goes out on one thread while the results are read on another, the way a
+     * client of the stream has to.
+     */
+    @Benchmark
+    public long stream(Heap heap) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            CompletableFuture<Void> sent = CompletableFuture.runAsync(() -> sendFeed(socket));
+            long results = 0;
+            BufferedReader response = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            // chunk sizes and headers don't have a status, every result line does
+            for (String line = response.readLine(); line != null; line = response.readLine()) {
+                if (line.contains("\"status\"")) {
+                    results++;
+                }
+            }
+            sent.join();
+            return results;
+        }
+    }
+
+    /**
+     * The peak heap of the iteration, as a JMH auxiliary counter. The transfers of the previous iteration are cleared
+     * and the peaks reset before the iteration is timed.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+
+        @Setup(Level.Iteration)
+        public void setUp(TransferIngestionBenchmark benchmark) {
+            benchmark.context.getBean(TransferService.class).getTransferRepository().clearTransfers();
+            System.gc();
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+        }
+
+        public long peakHeapMb() {
+            return ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP)
+                    .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                    .sum() >> 20;
+        }
+    }
+
+    private HttpRequest post(String path, String contentType, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    /**
+     * The transfers as NDJSON in a chunked request, a line per chunk.
+     */
+    private void sendFeed(Socket socket) {
+        try {
+            OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+            output.write(("POST /v1/transfer/stream HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n"
+                    + "Content-Type: " + TransferController.NDJSON + "\r\nTransfer-Encoding: chunked\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            for (String transfer : transferJson) {
+                byte[] line = (transfer + "\n").getBytes(StandardCharsets.UTF_8);
+                output.write((Integer.toHexString(line.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                output.write(line);
+                output.write(CRLF);
+            }
+            output.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
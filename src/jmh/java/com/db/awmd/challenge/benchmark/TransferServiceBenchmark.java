@@ -0,0 +1,88 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.dto.TransferDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end cost of {@code TransferService.createTransfer}, with uniformly spread accounts on a single thread and
+ * with a Zipfian account selection on all cores, where a few hot accounts take most of the traffic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransferServiceBenchmark {
+
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"10000"})
+    private int accounts;
+
+    private TransferFixture fixture;
+
+    private ZipfianGenerator zipfian;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new TransferFixture();
+        fixture.createAccounts(accounts);
+        zipfian = new ZipfianGenerator(accounts);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearTransfers() {
+        fixture.getTransferRepository().clearTransfers();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void uncontendedTransfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts);
+        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+        transfer(from, to);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void hotAccountTransfer() {
+        int from = zipfian.next();
+        int to = zipfian.next();
+        if (from == to) {
+            to = (to + 1) % accounts;
+        }
+        transfer(from, to);
+    }
+
+    private void transfer(int from, int to) {
+        fixture.getTransferService().createTransfer(TransferDto.builder()
+                .accountFrom(TransferFixture.accountId(from))
+                .accountTo(TransferFixture.accountId(to))
+                .amount(AMOUNT)
+                .build());
+    }
+}
@@ -0,0 +1,108 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.persistence.DurabilityMode;
+import com.db.awmd.challenge.persistence.FileWriteAheadLog;
+import com.db.awmd.challenge.persistence.NoOpSnapshotStore;
+import com.db.awmd.challenge.persistence.WalRecord;
+import com.db.awmd.challenge.persistence.WalRecovery;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.SnowflakeTransferIdGenerator;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to rebuild both repositories from a log holding the given number of completed transfers, replaying it from
+ * the start. {@link SnapshotRecoveryBenchmark} covers recovery from a snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class WalRecoveryBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    @Param({"100000", "1000000"})
+    private int transfers;
+
+    private Path directory;
+
+
+    @Setup(Level.Trial)
+    public void writeLog() throws IOException {
+        directory = Files.createTempDirectory("wal-recovery-benchmark");
+        FileWriteAheadLog log = FileWriteAheadLog.open(directory, DurabilityMode.SYNC, 0);
+        Account[] accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new Account(TransferFixture.accountId(i), TransferFixture.INITIAL_BALANCE);
+            log.append(WalRecord.accountCreated(accounts[i]));
+        }
+        // appended straight to the log with a single force at the end, going through the repositories would wait
+        // for durability on every record
+        SnowflakeTransferIdGenerator ids = new SnowflakeTransferIdGenerator(0);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long lsn = 0;
+        for (int i = 0; i < transfers; i++) {
+            int from = random.nextInt(ACCOUNTS);
+            Transfer transfer = Transfer.builder()
+                    .id(ids.nextId())
+                    .accountFrom(accounts[from])
+                    .accountTo(accounts[(from + 1) % ACCOUNTS])
+                    .amount(BigDecimal.ONE)
+                    .state(TransferState.PENDING)
+                    .date(new Date())
+                    .build();
+            log.append(WalRecord.transferCreated(transfer));
+            lsn = log.append(WalRecord.transferCompleted(transfer));
+        }
+        log.awaitDurable(lsn);
+        log.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() throws IOException {
+        TransferFixture.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public TransferRepositoryInMemory recover() throws IOException {
+        FileWriteAheadLog log = FileWriteAheadLog.open(directory, DurabilityMode.SYNC, 0);
+        try {
+            BalanceVersions balanceVersions = new BalanceVersions(1024);
+            AccountsRepositoryInMemory accounts = new AccountsRepositoryInMemory(log);
+            TransferRepositoryInMemory transferRepository =
+                    new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), log, balanceVersions);
+            new WalRecovery(log, new NoOpSnapshotStore(), accounts, transferRepository, balanceVersions)
+                    .afterPropertiesSet();
+            return transferRepository;
+        } finally {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.dto.TransferCommand;
+import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.web.BinaryMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading a transfer and of writing and reading an account, as JSON with the application's Jackson setup and
+ * as the binary records of {@link BinaryMessageConverter}. The binary transfer is read in place by a single reused
+ * {@link TransferCommand}, the way the converter reads a request body, with its ids and amount asked for like the
+ * service does. Run it with {@code -Pjmh.profilers=gc} for the allocations per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final TransferCommand command = new TransferCommand();
+
+    private final ByteBuffer accountBuffer = ByteBuffer.allocate(BinaryMessageConverter.MAX_ACCOUNT_LENGTH);
+
+    private Account account;
+
+    private byte[] transferJson;
+
+    private ByteBuffer transferRecord;
+
+    private byte[] accountJson;
+
+    private ByteBuffer accountRecord;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String accountFrom = TransferFixture.accountId(123_456);
+        String accountTo = TransferFixture.accountId(654_321);
+        transferJson = objectMapper.writeValueAsBytes(TransferDto.builder()
+                .accountFrom(accountFrom)
+                .accountTo(accountTo)
+                .amount(new BigDecimal("1234.56"))
+                .build());
+        transferRecord = ByteBuffer.wrap(TransferCommand.encode(accountFrom, accountTo, 123_456));
+        account = Account.ofMinorUnits(accountFrom, 987_654_321);
+        accountJson = objectMapper.writeValueAsBytes(account);
+        accountRecord = ByteBuffer.wrap(BinaryMessageConverter.encode(account));
+    }
+
+    @Benchmark
+    public void decodeTransferJson(Blackhole blackhole) throws Exception {
+        TransferDto transfer = objectMapper.readValue(transferJson, TransferDto.class);
+        blackhole.consume(transfer.getAccountFrom());
+        blackhole.consume(transfer.getAccountTo());
+        blackhole.consume(transfer.getAmount());
+    }
+
+    @Benchmark
+    public void decodeTransferBinary(Blackhole blackhole) {
+        command.wrap(transferRecord, 0);
+        blackhole.consume(command.getAccountFrom());
+        blackhole.consume(command.getAccountTo());
+        blackhole.consume(command.getAmountMinorUnits());
+    }
+
+    @Benchmark
+    public byte[] encodeAccountJson() throws Exception {
+        return objectMapper.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public int encodeAccountBinary() {
+        return BinaryMessageConverter.encodeAccount(accountBuffer, 0, account);
+    }
+
+    @Benchmark
+    public Account decodeAccountJson() throws Exception {
+        return objectMapper.readValue(accountJson, Account.class);
+    }
+
+    @Benchmark
+    public Account decodeAccountBinary() {
+        return BinaryMessageConverter.decodeAccount(accountRecord, 0);
+    }
+}
@@ -0,0 +1,82 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.persistence.DurabilityMode;
+import com.db.awmd.challenge.persistence.FileWriteAheadLog;
+import com.db.awmd.challenge.persistence.WalRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable commits per second from many threads, forcing the log on every commit versus sharing a force within
+ * a group commit window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class WriteAheadLogBenchmark {
+
+    @Param({"SYNC", "GROUP_COMMIT"})
+    private DurabilityMode durability;
+
+    @Param({"500"})
+    private long groupCommitWindowMicros;
+
+    private Path directory;
+
+    private FileWriteAheadLog writeAheadLog;
+
+    private WalRecord record;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-benchmark");
+        writeAheadLog = FileWriteAheadLog.open(directory, durability, groupCommitWindowMicros);
+        record = WalRecord.transferCompleted(Transfer.builder()
+                .id(1L)
+                .accountFrom(new Account("acc-1", BigDecimal.TEN))
+                .accountTo(new Account("acc-2", BigDecimal.TEN))
+                .amount(BigDecimal.ONE)
+                .state(TransferState.COMPLETED)
+                .date(new Date())
+                .build());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writeAheadLog.close();
+        TransferFixture.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public long commit() {
+        long lsn = writeAheadLog.append(record);
+        writeAheadLog.awaitDurable(lsn);
+        return lsn;
+    }
+}
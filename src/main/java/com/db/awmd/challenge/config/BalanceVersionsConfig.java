@@ -0,0 +1,19 @@
+package com.db.awmd.challenge.config;
+
+import com.db.awmd.challenge.domain.BalanceVersions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BalanceVersionsConfig {
+
+    /**
+     * The versions every balance change of the application goes through, striped like the account locks.
+     */
+    @Bean
+    public BalanceVersions balanceVersions(@Value("${transfer.lock-stripes:1024}") int stripeCount,
+                                           @Value("${transfer.balance-read-timeout-ms:100}") long readTimeoutMillis) {
+        return new BalanceVersions(stripeCount, readTimeoutMillis);
+    }
+}
@@ -0,0 +1,83 @@
+package com.db.awmd.challenge.config;
+
+import com.db.awmd.challenge.persistence.DurabilityMode;
+import com.db.awmd.challenge.persistence.FileSnapshotStore;
+import com.db.awmd.challenge.persistence.FileWriteAheadLog;
+import com.db.awmd.challenge.persistence.MappedTransferArchive;
+import com.db.awmd.challenge.persistence.NoOpSnapshotStore;
+import com.db.awmd.challenge.persistence.NoOpTransferArchive;
+import com.db.awmd.challenge.persistence.NoOpWriteAheadLog;
+import com.db.awmd.challenge.persistence.SnapshotCompactor;
+import com.db.awmd.challenge.persistence.SnapshotStore;
+import com.db.awmd.challenge.persistence.TransferArchive;
+import com.db.awmd.challenge.persistence.TransferEvictor;
+import com.db.awmd.challenge.persistence.WriteAheadLog;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+@EnableScheduling
+public class PersistenceConfig {
+
+    @Bean(destroyMethod = "close")
+    public WriteAheadLog writeAheadLog(@Value("${persistence.enabled:false}") boolean enabled,
+                                       @Value("${persistence.directory:data}") String directory,
+                                       @Value("${persistence.durability:GROUP_COMMIT}") DurabilityMode durabilityMode,
+                                       @Value("${persistence.group-commit-window-us:500}") long groupCommitWindowMicros)
+            throws IOException {
+        if (!enabled) {
+            return new NoOpWriteAheadLog();
+        }
+        return FileWriteAheadLog.open(Paths.get(directory, "wal"), durabilityMode, groupCommitWindowMicros);
+    }
+
+    @Bean
+    public SnapshotStore snapshotStore(@Value("${persistence.enabled:false}") boolean enabled,
+                                       @Value("${persistence.directory:data}") String directory) throws IOException {
+        if (!enabled) {
+            return new NoOpSnapshotStore();
+        }
+        return new FileSnapshotStore(Paths.get(directory, "snapshots"));
+    }
+
+    @Bean(destroyMethod = "close")
+    public TransferArchive transferArchive(@Value("${transfer.history.max-on-heap:0}") long maxOnHeap,
+                                           @Value("${transfer.history.segment-size-mb:64}") int segmentSizeMb,
+                                           @Value("${persistence.directory:data}") String directory,
+                                           AccountsRepository accountsRepository) throws IOException {
+        if (maxOnHeap <= 0) {
+            return new NoOpTransferArchive();
+        }
+        // offsets in a segment are ints, and a single mapping can't reach 2 GB either
+        long segmentSize = (long) segmentSizeMb << 20;
+        if (segmentSizeMb < 1 || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("transfer.history.segment-size-mb must be between 1 and "
+                    + (Integer.MAX_VALUE >> 20) + ", not " + segmentSizeMb);
+        }
+        return MappedTransferArchive.open(Paths.get(directory, "archive"), (int) segmentSize,
+                accountsRepository::getAccount);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${transfer.history.max-on-heap:0} > 0")
+    public TransferEvictor transferEvictor(TransferRepository transferRepository,
+                                           @Value("${transfer.history.max-on-heap}") long maxOnHeap,
+                                           @Value("${transfer.history.keep-recent-ms:60000}") long keepRecentMillis) {
+        return new TransferEvictor(transferRepository, maxOnHeap, keepRecentMillis);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "persistence.enabled", havingValue = "true")
+    public SnapshotCompactor snapshotCompactor(WriteAheadLog writeAheadLog, SnapshotStore snapshotStore) {
+        return new SnapshotCompactor(writeAheadLog, snapshotStore);
+    }
+}
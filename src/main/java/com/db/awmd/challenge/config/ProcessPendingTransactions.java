@@ -1,31 +1,142 @@
 package com.db.awmd.challenge.config;
 
 import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.exception.TransferRejectedException;
+import com.db.awmd.challenge.service.AccountOrderedExecutor;
 import com.db.awmd.challenge.service.TransferService;
-import jdk.nashorn.internal.objects.annotations.Getter;
-import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Executes the transfers left pending by the last run. They go through the transfer executor in id order, so
+ * transfers on disjoint accounts run in parallel while each account sees its transfers in the order they were made.
+ * Transfers recovered as debited go first and are only credited.
+ * At most {@code transfer.recovery.max-in-flight} transfers are submitted at a time, and a transfer that is rejected
+ * is marked failed on its own without stopping the others.
+ * <p>
+ * With {@code transfer.recovery.background} the recovery runs on its own thread and the application finishes
+ * starting straight away. Only transfers created before the recovery started are picked up, the newer ones are
+ * already being executed by the requests that made them.
+ */
 @Component
-@AllArgsConstructor
 @Slf4j
 public class ProcessPendingTransactions implements ApplicationRunner {
 
-    private TransferService transferService;
+    private static final int PAGE_SIZE = 1000;
+
+    private static final long PROGRESS_LOG_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private final TransferService transferService;
+
+    private final ExecutorService transferExecutor;
+
+    private final boolean background;
+
+    private final int maxInFlight;
+
+    @Getter
+    private final RecoveryProgress progress = new RecoveryProgress();
+
+    @Autowired
+    public ProcessPendingTransactions(TransferService transferService,
+                                      ExecutorService transferExecutor,
+                                      @Value("${transfer.recovery.background:false}") boolean background,
+                                      @Value("${transfer.recovery.max-in-flight:10000}") int maxInFlight) {
+        this.transferService = transferService;
+        this.transferExecutor = transferExecutor;
+        this.background = background;
+        this.maxInFlight = maxInFlight;
+    }
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
-        List<Transfer> pendingTransfers = transferService.findPendingTransfers();
-        log.info("Found {} pending transfers waiting to be processed.", pendingTransfers.size());
+        if (background) {
+            Thread thread = new Thread(this::recover, "pending-transfer-recovery");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            recover();
+        }
+    }
+
+    /**
+     * Returns once every pending transfer has been executed or rejected.
+     */
+    public void recover() {
+        Date startedAt = new Date();
+        List<Transfer> debitedTransfers = transferService.findDebitedTransfers();
+        progress.start(transferService.countPendingTransfers() + debitedTransfers.size());
+        log.info("Found {} pending transfers waiting to be processed.", progress.getPending());
 
-        for(Transfer transfer : pendingTransfers) {
-            log.info("Processing transfer with ID {}", transfer.getId());
+        AccountOrderedExecutor orderedExecutor = new AccountOrderedExecutor(transferExecutor);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long nextLog = System.currentTimeMillis() + PROGRESS_LOG_INTERVAL_MILLIS;
+
+        // their debits were kept with the balances, only the credits are left
+        for (Transfer transfer : debitedTransfers) {
+            submit(orderedExecutor, inFlight, transfer);
+        }
+
+        long lastId = Long.MIN_VALUE;
+        List<Transfer> pendingTransfers = transferService.findPendingTransfers(lastId, PAGE_SIZE);
+        pages:
+        while (!pendingTransfers.isEmpty()) {
+            for (Transfer transfer : pendingTransfers) {
+                // ids grow with time, everything from here on was created after the recovery started
+                if (!transfer.getDate().before(startedAt)) {
+                    break pages;
+                }
+                submit(orderedExecutor, inFlight, transfer);
+                lastId = transfer.getId();
+            }
+            if (System.currentTimeMillis() >= nextLog) {
+                logProgress();
+                nextLog = System.currentTimeMillis() + PROGRESS_LOG_INTERVAL_MILLIS;
+            }
+            pendingTransfers = transferService.findPendingTransfers(lastId, PAGE_SIZE);
+        }
+
+        inFlight.acquireUninterruptibly(maxInFlight);
+        progress.finish();
+        log.info("Recovered {} pending transfers in {} ms, {} of them failed.",
+                progress.getSucceeded() + progress.getFailed(), progress.getElapsedMillis(), progress.getFailed());
+    }
+
+    private void submit(AccountOrderedExecutor orderedExecutor, Semaphore inFlight, Transfer transfer) {
+        inFlight.acquireUninterruptibly();
+        progress.submitted();
+        orderedExecutor.submit(transfer.getAccountFrom().getAccountId(), transfer.getAccountTo().getAccountId(),
+                () -> process(transfer))
+                .whenComplete((ignored, error) -> inFlight.release());
+    }
+
+    private Void process(Transfer transfer) {
+        try {
             transferService.makeTransfer(transfer);
+            progress.succeeded();
+        } catch (TransferRejectedException e) {
+            progress.failed();
+        } catch (RuntimeException e) {
+            progress.failed();
+            log.error("Transfer with ID {} could not be recovered", transfer.getId(), e);
         }
+        return null;
+    }
+
+    private void logProgress() {
+        log.info("Recovering pending transfers: {} of {} done, {} failed, {} in flight.",
+                progress.getSucceeded() + progress.getFailed(), progress.getPending(), progress.getFailed(),
+                progress.getInFlight());
     }
 }
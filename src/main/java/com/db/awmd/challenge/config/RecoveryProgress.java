@@ -0,0 +1,76 @@
+package com.db.awmd.challenge.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the recovery of pending transfers, safe to read from any thread while it runs.
+ */
+public class RecoveryProgress {
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicLong submitted = new AtomicLong();
+
+    private final AtomicLong succeeded = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile long startedAt;
+
+    private volatile long finishedAt;
+
+    void start(long pendingTransfers) {
+        pending.set(pendingTransfers);
+        startedAt = System.currentTimeMillis();
+    }
+
+    void submitted() {
+        submitted.incrementAndGet();
+    }
+
+    void succeeded() {
+        succeeded.incrementAndGet();
+    }
+
+    void failed() {
+        failed.incrementAndGet();
+    }
+
+    void finish() {
+        finishedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Pending transfers found when the recovery started.
+     */
+    public long getPending() {
+        return pending.get();
+    }
+
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getInFlight() {
+        return submitted.get() - succeeded.get() - failed.get();
+    }
+
+    public boolean isRunning() {
+        return startedAt != 0 && finishedAt == 0;
+    }
+
+    public boolean isFinished() {
+        return finishedAt != 0;
+    }
+
+    public long getElapsedMillis() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        return (finishedAt != 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+    }
+}
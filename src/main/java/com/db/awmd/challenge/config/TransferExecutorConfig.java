@@ -0,0 +1,80 @@
+package com.db.awmd.challenge.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class TransferExecutorConfig {
+
+    /**
+     * Bounded pool for transfers executed off the request thread. When it is saturated the submitting thread runs the
+     * transfer itself, which throttles whoever is feeding it. Once it is shut down transfers are rejected rather than
+     * silently dropped, so whoever waits on them is told instead of waiting forever.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @Primary
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService transferExecutor(@Value("${transfer.executor.threads:0}") int threads,
+                                            @Value("${transfer.executor.queue-capacity:10000}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "transfer-executor-" + counter.incrementAndGet()),
+                (runnable, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("The transfer executor is shut down");
+                    }
+                    runnable.run();
+                });
+    }
+
+    /**
+     * A virtual thread per transfer, when the requests are served on virtual threads too. A transfer waiting for an
+     * account lock parks its virtual thread rather than a pool thread, so transfers on other accounts keep going.
+     * There is no queue to throttle the feeders: batches are capped at {@code TransferService.MAX_BATCH_SIZE} and
+     * recovery at {@code transfer.recovery.max-in-flight}.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @Primary
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualTransferExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("transfer-executor-", 1).factory());
+    }
+
+    /**
+     * Threads of the transfer streams, two for each open one: one reads its feed and submits the transfers, the
+     * other writes the results back. They block on their client's socket, so they are kept apart from the transfer
+     * executor and from the pool serving the other requests. The number of open streams is bounded by the
+     * controller, so the pool never queues.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService transferStreamExecutor(@Value("${transfer.stream.max-open:64}") int maxOpen) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2 * maxOpen, 2 * maxOpen, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "transfer-stream-" + counter.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Bean(name = "transferStreamExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualTransferStreamExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("transfer-stream-", 1).factory());
+    }
+}
@@ -1,38 +1,127 @@
 package com.db.awmd.challenge.domain;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
-import javax.validation.constraints.DecimalMin;
-import javax.validation.constraints.Min;
-import javax.validation.constraints.NotNull;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import lombok.Builder;
 import lombok.Data;
-import org.hibernate.validator.constraints.NotBlank;
-import org.hibernate.validator.constraints.NotEmpty;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
+/**
+ * An account and its balance. Repositories that keep the balance elsewhere hand out subclasses that override the
+ * balance accessors, {@link #tryDebit} and {@link #credit}, everything else goes through those.
+ */
 @Data
-@Builder
 public class Account {
 
+  /**
+   * Handle of an account that wasn't given one yet.
+   */
+  public static final int NO_HANDLE = -1;
+
   @NotNull
   @NotEmpty
   private final String accountId;
 
-  @NotNull
-  @DecimalMin(value = "0.0", inclusive = true, message = "Initial balance must be positive.")
-  private BigDecimal balance;
+  private static final AtomicLongFieldUpdater<Account> BALANCE =
+    AtomicLongFieldUpdater.newUpdater(Account.class, "balanceMinorUnits");
+
+  /**
+   * The balance in {@link Money} minor units. JSON still sees it as the decimal balance.
+   */
+  @JsonIgnore
+  private volatile long balanceMinorUnits;
+
+  /**
+   * Dense int standing for the account id inside the service, given by the repository holding the account, see
+   * {@link AccountHandleRegistry}. Not part of the account's value: every object for the same id has the same handle.
+   */
+  @JsonIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private int handle = NO_HANDLE;
 
   public Account(String accountId) {
     this.accountId = accountId;
-    this.balance = BigDecimal.ZERO;
+    this.balanceMinorUnits = 0;
   }
 
+  @Builder
   @JsonCreator
   public Account(@JsonProperty("accountId") String accountId,
     @JsonProperty("balance") BigDecimal balance) {
+    if (balance == null) {
+      throw new IllegalArgumentException("Balance must not be null.");
+    }
     this.accountId = accountId;
-    this.balance = balance;
+    this.balanceMinorUnits = Money.toMinorUnits(balance);
+  }
+
+  public static Account ofMinorUnits(String accountId, long balanceMinorUnits) {
+    Account account = new Account(accountId);
+    account.setBalanceMinorUnits(balanceMinorUnits);
+    return account;
+  }
+
+  /**
+   * Takes the amount off the balance unless that would make it negative. Lock free, it can run next to other debits
+   * and credits of the same account.
+   */
+  public boolean tryDebit(long amount) {
+    long balance;
+    do {
+      balance = balanceMinorUnits;
+      if (balance < amount) {
+        return false;
+      }
+    } while (!BALANCE.compareAndSet(this, balance, balance - amount));
+    return true;
+  }
+
+  /**
+   * Adds a non negative amount to the balance. Lock free like {@link #tryDebit}, and checked before it is published,
+   * so no reader ever sees an overflowed balance.
+   *
+   * @throws ArithmeticException if the balance would overflow, in which case it is left as it was
+   */
+  public void credit(long amount) {
+    long balance;
+    do {
+      balance = balanceMinorUnits;
+      if (balance > Long.MAX_VALUE - amount) {
+        throw new ArithmeticException("Balance of account " + accountId + " would overflow");
+      }
+    } while (!BALANCE.compareAndSet(this, balance, balance + amount));
+  }
+
+  /**
+   * The handle the repository gave the account, {@link #NO_HANDLE} for an account no repository handed out.
+   */
+  public int getHandle() {
+    return handle;
+  }
+
+  /**
+   * For repositories, before the account is handed out.
+   */
+  public void setHandle(int handle) {
+    this.handle = handle;
+  }
+
+  @NotNull
+  @DecimalMin(value = "0.0", inclusive = true, message = "Initial balance must be positive.")
+  public BigDecimal getBalance() {
+    return Money.toDecimal(getBalanceMinorUnits());
+  }
+
+  public void setBalance(BigDecimal balance) {
+    setBalanceMinorUnits(Money.toMinorUnits(balance));
   }
 }
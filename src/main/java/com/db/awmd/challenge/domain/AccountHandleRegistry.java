@@ -0,0 +1,91 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense int handles for account ids, 0, 1, 2... in the order the ids are first registered, so the hot path finds an
+ * account's lock stripe or transfer history by indexing an array rather than by hashing and comparing its id.
+ * {@link com.db.awmd.challenge.repository.AccountsRepositoryInMemory} owns one and gives each account its handle when
+ * the account is created or restored, the stores keeping accounts in a slot table use the slot instead.
+ * <p>
+ * A handle stays with its id until the registry is cleared along with the accounts, so that every account object
+ * for an id agrees on it.
+ */
+public final class AccountHandleRegistry {
+
+  private static final int CHUNK_SHIFT = 12;
+
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final Map<String, Integer> handles = new ConcurrentHashMap<>();
+
+  /**
+   * Ids by handle. A chunk's ids are written before the handles are published in the map.
+   */
+  private volatile String[][] accountIds = new String[0][];
+
+  private int size;
+
+  /**
+   * The handle of the id, given it the first time it is seen.
+   */
+  public int register(String accountId) {
+    Integer handle = handles.get(accountId);
+    return handle != null ? handle : add(accountId);
+  }
+
+  /**
+   * The handle of the id, {@link Account#NO_HANDLE} if it was never registered.
+   */
+  public int find(String accountId) {
+    Integer handle = handles.get(accountId);
+    return handle == null ? Account.NO_HANDLE : handle;
+  }
+
+  /**
+   * The id behind the handle, null if no id has it.
+   */
+  public String accountId(int handle) {
+    String[][] chunks = accountIds;
+    if (handle < 0 || (handle >>> CHUNK_SHIFT) >= chunks.length) {
+      return null;
+    }
+    return chunks[handle >>> CHUNK_SHIFT][handle & CHUNK_MASK];
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Forgets every id, handles are given from 0 again.
+   */
+  public synchronized void clear() {
+    handles.clear();
+    accountIds = new String[0][];
+    size = 0;
+  }
+
+  private synchronized int add(String accountId) {
+    Integer registered = handles.get(accountId);
+    if (registered != null) {
+      return registered;
+    }
+    int handle = size;
+    String[][] chunks = accountIds;
+    int chunk = handle >>> CHUNK_SHIFT;
+    if (chunk == chunks.length) {
+      chunks = Arrays.copyOf(chunks, chunk + 1);
+      chunks[chunk] = new String[CHUNK_SIZE];
+      accountIds = chunks;
+    }
+    chunks[chunk][handle & CHUNK_MASK] = accountId;
+    handles.put(accountId, handle);
+    size = handle + 1;
+    return handle;
+  }
+}
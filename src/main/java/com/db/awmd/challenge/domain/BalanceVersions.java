@@ -0,0 +1,149 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.exception.BalanceReadException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Seqlock versions guarding balance writes, so balances can be read consistently without taking a lock. Accounts
+ * share a fixed table of versions striped by {@link Account#getHandle() handle}, which works whether the balance
+ * lives in the account object, off the heap or in the mapped ledger. The application has one, sized like the account
+ * lock stripes with {@code transfer.lock-stripes}.
+ * <p>
+ * A version counts the writes in progress on its stripe in its low bits and the writes done above them. Every
+ * balance change is bracketed by {@link #beginWrite} and {@link #endWrite}; a transfer moving money between two
+ * accounts in one step brackets both before touching either, so nobody sees one side without the other. A reader
+ * takes the versions of its accounts, reads the balances and checks the versions again, and retries if a write was
+ * in progress or happened in between.
+ * <p>
+ * Readers never hold a writer back: a write only ever counts itself in and out of its stripes. A reader whose
+ * stripes don't go quiet retries with a growing pause, spinning at first and then parking, and gives up with a
+ * {@link BalanceReadException} once {@code transfer.balance-read-timeout-ms} has passed.
+ */
+public final class BalanceVersions {
+
+  /**
+   * Versions are this many longs apart, so stripes don't share a cache line.
+   */
+  private static final int STRIDE = 8;
+
+  private static final int WRITER_BITS = 20;
+
+  private static final long WRITERS = (1L << WRITER_BITS) - 1;
+
+  private static final long DONE = 1L << WRITER_BITS;
+
+  private static final int SPINS_BEFORE_YIELDING = 64;
+
+  private static final int SPINNING_READS = 256;
+
+  private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static final long DEFAULT_READ_TIMEOUT_MILLIS = 100;
+
+  private final AtomicLongArray versions;
+
+  private final int mask;
+
+  private final long readTimeoutNanos;
+
+  public BalanceVersions(int stripeCount) {
+    this(stripeCount, DEFAULT_READ_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * @param readTimeoutMillis how long a reader retries before it gives up
+   */
+  public BalanceVersions(int stripeCount, long readTimeoutMillis) {
+    int size = 1;
+    while (size < stripeCount) {
+      size <<= 1;
+    }
+    this.versions = new AtomicLongArray(size * STRIDE);
+    this.mask = size - 1;
+    this.readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis);
+  }
+
+  public void beginWrite(int handle) {
+    versions.getAndIncrement(indexOf(handle));
+  }
+
+  public void endWrite(int handle) {
+    versions.getAndAdd(indexOf(handle), DONE - 1);
+  }
+
+  /**
+   * Brackets both accounts of a transfer before either balance changes. Accounts on the same stripe just count as
+   * two writes on it.
+   */
+  public void beginWrite(int handle1, int handle2) {
+    beginWrite(handle1);
+    beginWrite(handle2);
+  }
+
+  public void endWrite(int handle1, int handle2) {
+    endWrite(handle2);
+    endWrite(handle1);
+  }
+
+  public long readBalance(Account account) {
+    return readBalances(new Account[]{account})[0];
+  }
+
+  /**
+   * The balances of the accounts, in minor units and in the same order, as they all were at one point in time.
+   *
+   * @throws BalanceReadException if writes kept the balances from being read consistently before the timeout
+   */
+  public long[] readBalances(Account[] accounts) {
+    int[] indexes = new int[accounts.length];
+    for (int i = 0; i < accounts.length; i++) {
+      indexes[i] = indexOf(accounts[i].getHandle());
+    }
+    long[] seen = new long[accounts.length];
+    long[] balances = new long[accounts.length];
+    for (int attempt = 1; attempt <= SPINNING_READS; attempt++) {
+      if (tryRead(accounts, indexes, seen, balances)) {
+        return balances;
+      }
+      if (attempt % SPINS_BEFORE_YIELDING == 0) {
+        Thread.yield();
+      } else {
+        Thread.onSpinWait();
+      }
+    }
+    long deadline = System.nanoTime() + readTimeoutNanos;
+    for (long park = MIN_PARK_NANOS; System.nanoTime() - deadline < 0; park = Math.min(2 * park, MAX_PARK_NANOS)) {
+      LockSupport.parkNanos(park);
+      if (tryRead(accounts, indexes, seen, balances)) {
+        return balances;
+      }
+    }
+    throw new BalanceReadException(accounts.length);
+  }
+
+  private boolean tryRead(Account[] accounts, int[] indexes, long[] seen, long[] balances) {
+    for (int i = 0; i < indexes.length; i++) {
+      seen[i] = versions.get(indexes[i]);
+      if ((seen[i] & WRITERS) != 0) {
+        return false;
+      }
+    }
+    for (int i = 0; i < accounts.length; i++) {
+      balances[i] = accounts[i].getBalanceMinorUnits();
+    }
+    for (int i = 0; i < indexes.length; i++) {
+      if (versions.get(indexes[i]) != seen[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int indexOf(int handle) {
+    return (handle & mask) * STRIDE;
+  }
+}
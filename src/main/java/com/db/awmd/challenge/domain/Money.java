@@ -0,0 +1,44 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts are held as a long number of minor units (cents), so balances can be checked and moved without allocating.
+ * BigDecimal is only used at the edges, where amounts come in from or go out to JSON.
+ */
+public final class Money {
+
+  /**
+   * Number of decimal places of the currency, the minor unit being 10^-SCALE of the major one
+   */
+  public static final int SCALE = 2;
+
+  private Money() {
+  }
+
+  /**
+   * @throws ArithmeticException if the amount has more decimal places than the currency or doesn't fit in a long
+   */
+  public static long toMinorUnits(BigDecimal amount) {
+    return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+  }
+
+  public static BigDecimal toDecimal(long minorUnits) {
+    return BigDecimal.valueOf(minorUnits, SCALE);
+  }
+
+  /**
+   * @throws ArithmeticException on overflow
+   */
+  public static long add(long minorUnits, long amount) {
+    return Math.addExact(minorUnits, amount);
+  }
+
+  /**
+   * @throws ArithmeticException on overflow
+   */
+  public static long subtract(long minorUnits, long amount) {
+    return Math.subtractExact(minorUnits, amount);
+  }
+}
@@ -1,22 +1,19 @@
 package com.db.awmd.challenge.domain;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
-import lombok.Generated;
-import org.hibernate.validator.constraints.NotEmpty;
+import lombok.Setter;
 
-import javax.validation.constraints.DecimalMin;
-import javax.validation.constraints.Min;
-import javax.validation.constraints.NotNull;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
 import java.util.Date;
 
 @Data
-@Builder
 public class Transfer {
 
-    @Generated
-    private String id;
+    private long id;
 
     @NotNull
     private Account accountFrom;
@@ -27,8 +24,30 @@ public class Transfer {
     @DecimalMin(value = "0.0", inclusive = false)
     private BigDecimal amount;
 
+    /**
+     * The amount in {@link Money} minor units, converted once so executing the transfer doesn't have to.
+     */
+    @Setter(AccessLevel.NONE)
+    private long amountMinorUnits;
+
     @NotNull
-    private TransferState state;
+    private volatile TransferState state;
 
     private Date date;
+
+    @Builder
+    public Transfer(long id, Account accountFrom, Account accountTo, BigDecimal amount, TransferState state,
+                    Date date) {
+        this.id = id;
+        this.accountFrom = accountFrom;
+        this.accountTo = accountTo;
+        this.state = state;
+        this.date = date;
+        setAmount(amount);
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+        this.amountMinorUnits = amount == null ? 0 : Money.toMinorUnits(amount);
+    }
 }
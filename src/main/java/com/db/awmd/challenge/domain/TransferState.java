@@ -1,5 +1,12 @@
 package com.db.awmd.challenge.domain;
 
 public enum TransferState {
-    PENDING, COMPLETED, FAILED;
+    PENDING, COMPLETED, FAILED,
+
+    /**
+     * Taken from the account from but not yet added to the account to. It is logged, so balances kept over a restart
+     * can be finished with the credit alone. Recovered over balances rebuilt from the log, which never hold the
+     * debit, the transfer is pending again.
+     */
+    DEBITED;
 }
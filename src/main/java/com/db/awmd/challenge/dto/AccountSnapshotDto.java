@@ -0,0 +1,28 @@
+package com.db.awmd.challenge.dto;
+
+import com.db.awmd.challenge.domain.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * An account as it was when read, detached from the live account, so it can be serialized at leisure while transfers
+ * go on. It reads as JSON like the account does.
+ */
+@Value
+@Builder
+@JsonPropertyOrder({"accountId", "balance"})
+public class AccountSnapshotDto {
+
+    private String accountId;
+
+    @JsonIgnore
+    private long balanceMinorUnits;
+
+    public BigDecimal getBalance() {
+        return Money.toDecimal(balanceMinorUnits);
+    }
+}
@@ -0,0 +1,210 @@
+package com.db.awmd.challenge.dto;
+
+import com.db.awmd.challenge.domain.Money;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotEmpty;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A transfer read in place from a binary record, big endian:
+ * <pre>
+ * int length | long amount in minor units | ushort from length | ushort to length | from bytes | to bytes
+ * </pre>
+ * where the length counts the whole record and the account ids are UTF-8. Wrapping a record only checks its lengths
+ * and amount, the fields are read from the buffer when asked for and each account id is decoded once. A command can
+ * be wrapped around one record after another, so reading a run of transfers allocates nothing but their ids.
+ * <p>
+ * The getters carry the constraints of {@link TransferDto}, so a command validated as a request body is held to the
+ * same rules as a transfer sent as JSON.
+ */
+public final class TransferCommand {
+
+    public static final int LENGTH = 0;
+
+    public static final int AMOUNT = 4;
+
+    public static final int FROM_LENGTH = 12;
+
+    public static final int TO_LENGTH = 14;
+
+    public static final int IDS = 16;
+
+    public static final int MAX_ACCOUNT_ID_BYTES = 255;
+
+    public static final int MAX_LENGTH = IDS + 2 * MAX_ACCOUNT_ID_BYTES;
+
+    private ByteBuffer buffer;
+
+    private int offset;
+
+    private String accountFrom;
+
+    private String accountTo;
+
+    /**
+     * Points the command at the record starting at the offset.
+     *
+     * @return the offset right after the record
+     * @throws IllegalArgumentException if the record is malformed or runs past the limit of the buffer
+     */
+    public int wrap(ByteBuffer buffer, int offset) {
+        if (buffer.limit() - offset < IDS) {
+            throw new IllegalArgumentException("The transfer record is truncated.");
+        }
+        int fromLength = Short.toUnsignedInt(buffer.getShort(offset + FROM_LENGTH));
+        int toLength = Short.toUnsignedInt(buffer.getShort(offset + TO_LENGTH));
+        if (fromLength == 0 || toLength == 0 || fromLength > MAX_ACCOUNT_ID_BYTES || toLength > MAX_ACCOUNT_ID_BYTES) {
+            throw new IllegalArgumentException(
+                    "Account ids must have between 1 and " + MAX_ACCOUNT_ID_BYTES + " bytes.");
+        }
+        int length = buffer.getInt(offset + LENGTH);
+        if (length != IDS + fromLength + toLength) {
+            throw new IllegalArgumentException("The transfer record length doesn't match its account ids.");
+        }
+        if (buffer.limit() - offset < length) {
+            throw new IllegalArgumentException("The transfer record is truncated.");
+        }
+        if (buffer.getLong(offset + AMOUNT) <= 0) {
+            throw new IllegalArgumentException("The value must be positive");
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.accountFrom = null;
+        this.accountTo = null;
+        return offset + length;
+    }
+
+    @NotEmpty(message = "Account from must not be null")
+    public String getAccountFrom() {
+        if (accountFrom == null) {
+            accountFrom = decodeId(offset + IDS, fromLength());
+        }
+        return accountFrom;
+    }
+
+    @NotEmpty(message = "Account to must not be null")
+    public String getAccountTo() {
+        if (accountTo == null) {
+            accountTo = decodeId(offset + IDS + fromLength(), Short.toUnsignedInt(buffer.getShort(offset + TO_LENGTH)));
+        }
+        return accountTo;
+    }
+
+    public long getAmountMinorUnits() {
+        return buffer.getLong(offset + AMOUNT);
+    }
+
+    @DecimalMin(value = "0.0", inclusive = false, message = "The value must be positive")
+    @Digits(integer = 16, fraction = Money.SCALE, message = "The value must have at most 2 decimal places")
+    public BigDecimal getAmount() {
+        return Money.toDecimal(getAmountMinorUnits());
+    }
+
+    /**
+     * A copy that outlives the buffer, for the code paths that compare transfers as DTOs.
+     */
+    public TransferDto toDto() {
+        return TransferDto.builder()
+                .accountFrom(getAccountFrom())
+                .accountTo(getAccountTo())
+                .amount(getAmount())
+                .build();
+    }
+
+    /**
+     * Writes a record at the offset.
+     *
+     * @return the offset right after the record
+     * @throws IllegalArgumentException if an account id is empty or too long
+     */
+    public static int encode(ByteBuffer buffer, int offset, String accountFrom, String accountTo,
+                             long amountMinorUnits) {
+        int fromLength = putId(buffer, offset + IDS, accountFrom);
+        int toLength = putId(buffer, offset + IDS + fromLength, accountTo);
+        int length = IDS + fromLength + toLength;
+        buffer.putInt(offset + LENGTH, length);
+        buffer.putLong(offset + AMOUNT, amountMinorUnits);
+        buffer.putShort(offset + FROM_LENGTH, (short) fromLength);
+        buffer.putShort(offset + TO_LENGTH, (short) toLength);
+        return offset + length;
+    }
+
+    /**
+     * A record of its own, in an array of its exact size.
+     */
+    public static byte[] encode(String accountFrom, String accountTo, long amountMinorUnits) {
+        byte[] record = new byte[IDS + idLength(accountFrom) + idLength(accountTo)];
+        encode(ByteBuffer.wrap(record), 0, accountFrom, accountTo, amountMinorUnits);
+        return record;
+    }
+
+    /**
+     * Number of bytes {@link #putId} writes for the id. Only ids that aren't ASCII are encoded to find out.
+     */
+    public static int idLength(String accountId) {
+        int length = accountId.length();
+        for (int i = 0; i < length; i++) {
+            if (accountId.charAt(i) >= 0x80) {
+                return accountId.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes the id as UTF-8, one byte a character for the ASCII ids there usually are.
+     *
+     * @return the number of bytes written
+     */
+    public static int putId(ByteBuffer buffer, int offset, String accountId) {
+        int length = accountId.length();
+        for (int i = 0; i < length; i++) {
+            char c = accountId.charAt(i);
+            if (c >= 0x80) {
+                return putId(buffer, offset, accountId.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        checkIdLength(length);
+        for (int i = 0; i < length; i++) {
+            buffer.put(offset + i, (byte) accountId.charAt(i));
+        }
+        return length;
+    }
+
+    private static int putId(ByteBuffer buffer, int offset, byte[] accountId) {
+        checkIdLength(accountId.length);
+        buffer.put(offset, accountId);
+        return accountId.length;
+    }
+
+    private static void checkIdLength(int length) {
+        if (length == 0 || length > MAX_ACCOUNT_ID_BYTES) {
+            throw new IllegalArgumentException(
+                    "Account ids must have between 1 and " + MAX_ACCOUNT_ID_BYTES + " bytes.");
+        }
+    }
+
+    /**
+     * Reads a UTF-8 id straight from the backing array, when there is one.
+     */
+    public static String decodeId(ByteBuffer buffer, int offset, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String decodeId(int at, int length) {
+        return decodeId(buffer, at, length);
+    }
+
+    private int fromLength() {
+        return Short.toUnsignedInt(buffer.getShort(offset + FROM_LENGTH));
+    }
+}
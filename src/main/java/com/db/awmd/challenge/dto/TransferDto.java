@@ -1,12 +1,14 @@
 package com.db.awmd.challenge.dto;
 
+import com.db.awmd.challenge.domain.Money;
 import lombok.Builder;
 import lombok.Data;
-import org.hibernate.validator.constraints.NotEmpty;
 
-import javax.validation.constraints.DecimalMin;
-import javax.validation.constraints.Min;
-import javax.validation.constraints.NotNull;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
 
 @Data
@@ -19,6 +21,8 @@ public class TransferDto {
     @NotEmpty(message = "Account to must not be null")
     private String accountTo;
 
+    @NotNull(message = "Amount must not be null")
     @DecimalMin(value = "0.0", inclusive = false, message = "The value must be positive")
+    @Digits(integer = 16, fraction = Money.SCALE, message = "The value must have at most 2 decimal places")
     private BigDecimal amount;
 }
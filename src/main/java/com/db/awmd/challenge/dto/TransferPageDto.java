@@ -0,0 +1,18 @@
+package com.db.awmd.challenge.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class TransferPageDto {
+
+    private List<TransferSummaryDto> transfers;
+
+    /**
+     * Passed as {@code before} to get the next, older, page. Null on the last page.
+     */
+    private Long nextCursor;
+}
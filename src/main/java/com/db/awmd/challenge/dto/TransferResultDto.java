@@ -0,0 +1,21 @@
+package com.db.awmd.challenge.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TransferResultDto {
+
+    public enum Status {
+        CREATED, BAD_REQUEST, NOT_FOUND
+    }
+
+    private int index;
+
+    private Status status;
+
+    private Long transferId;
+
+    private String message;
+}
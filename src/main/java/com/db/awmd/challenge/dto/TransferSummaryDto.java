@@ -0,0 +1,25 @@
+package com.db.awmd.challenge.dto;
+
+import com.db.awmd.challenge.domain.TransferState;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+@Data
+@Builder
+public class TransferSummaryDto {
+
+    private long id;
+
+    private String accountFrom;
+
+    private String accountTo;
+
+    private BigDecimal amount;
+
+    private TransferState state;
+
+    private Date date;
+}
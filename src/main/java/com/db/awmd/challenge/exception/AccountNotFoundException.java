@@ -1,10 +1,21 @@
 package com.db.awmd.challenge.exception;
 
-import javafx.beans.binding.StringExpression;
+import lombok.Getter;
 
 public class AccountNotFoundException extends RuntimeException {
 
-  public AccountNotFoundException(StringExpression message) {
-    super(String.valueOf(message));
+  @Getter
+  private final String accountId;
+
+  public AccountNotFoundException(String accountId) {
+    this.accountId = accountId;
+  }
+
+  /**
+   * Built when asked for, a missing account is an expected outcome and its message often goes unread.
+   */
+  @Override
+  public String getMessage() {
+    return "Account " + accountId + " doesn't exist.";
   }
 }
@@ -0,0 +1,12 @@
+package com.db.awmd.challenge.exception;
+
+/**
+ * Balances that couldn't be read consistently in time, because writes on their stripes never paused long enough.
+ * Reading them again later may well succeed.
+ */
+public class BalanceReadException extends RuntimeException {
+
+  public BalanceReadException(int accounts) {
+    super("The balances of " + accounts + " accounts kept changing, try again later.");
+  }
+}
@@ -0,0 +1,84 @@
+package com.db.awmd.challenge.metrics;
+
+import com.db.awmd.challenge.config.ProcessPendingTransactions;
+import com.db.awmd.challenge.config.RecoveryProgress;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.service.AsyncNotificationService;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sizes of the repositories and queues, read when the registry is scraped rather than tracked on every change.
+ */
+@Component
+@AllArgsConstructor
+public class ApplicationGauges implements MeterBinder {
+
+    private final AccountsRepository accountsRepository;
+
+    private final TransferRepository transferRepository;
+
+    private final AsyncNotificationService notificationService;
+
+    private final ProcessPendingTransactions processPendingTransactions;
+
+    private final IdempotencyCache idempotencyCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("accounts.size", accountsRepository, AccountsRepository::countAccounts)
+                .description("Accounts held")
+                .register(registry);
+        Gauge.builder("transfers.size", transferRepository, TransferRepository::countTransfers)
+                .description("Transfers held, in any state")
+                .register(registry);
+        Gauge.builder("transfers.pending", transferRepository, repository -> repository.countByState(TransferState.PENDING))
+                .description("Transfers waiting to be executed")
+                .register(registry);
+        Gauge.builder("notifications.queued", notificationService, AsyncNotificationService::getQueuedNotifications)
+                .description("Notifications waiting for a dispatcher")
+                .register(registry);
+
+        RecoveryProgress progress = processPendingTransactions.getProgress();
+        Gauge.builder("recovery.pending", progress, RecoveryProgress::getPending)
+                .description("Pending transfers found when the recovery started")
+                .register(registry);
+        Gauge.builder("recovery.succeeded", progress, RecoveryProgress::getSucceeded)
+                .description("Pending transfers recovered")
+                .register(registry);
+        Gauge.builder("recovery.failed", progress, RecoveryProgress::getFailed)
+                .description("Pending transfers rejected during the recovery")
+                .register(registry);
+        Gauge.builder("recovery.in.flight", progress, RecoveryProgress::getInFlight)
+                .description("Pending transfers submitted and not done yet")
+                .register(registry);
+
+        FunctionCounter.builder("cache.gets", idempotencyCache, IdempotencyCache::getHitCount)
+                .description("Idempotency keys found, the transfer wasn't made again")
+                .tags("cache", "idempotency", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", idempotencyCache, IdempotencyCache::getMissCount)
+                .description("Idempotency keys seen for the first time")
+                .tags("cache", "idempotency", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", idempotencyCache, IdempotencyCache::getEvictionCount)
+                .description("Outcomes dropped to keep the cache within its size")
+                .tags("cache", "idempotency")
+                .register(registry);
+        Gauge.builder("cache.size", idempotencyCache, IdempotencyCache::size)
+                .description("Outcomes held for idempotency keys")
+                .tags("cache", "idempotency")
+                .register(registry);
+        Gauge.builder("cache.hit.ratio", idempotencyCache, IdempotencyCache::getHitRatio)
+                .description("Share of the idempotency keys found since the start")
+                .tags("cache", "idempotency")
+                .register(registry);
+    }
+}
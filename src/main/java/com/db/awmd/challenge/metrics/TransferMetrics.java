@@ -0,0 +1,80 @@
+package com.db.awmd.challenge.metrics;
+
+import com.db.awmd.challenge.domain.TransferState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and counters of the transfer path. Every meter is registered up front and recording only touches the
+ * meter, so nothing is allocated per call and it can stay on in production.
+ * <p>
+ * Timers keep an HDR histogram and publish the median, 99th and 99.9th percentiles as well as histogram buckets.
+ */
+@Component
+public class TransferMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private static final TransferState[] STATES = TransferState.values();
+
+    private final Timer lockWait;
+
+    private final Timer execution;
+
+    private final Timer notificationDelivery;
+
+    private final Counter[] transitions = new Counter[STATES.length];
+
+    @Autowired
+    public TransferMetrics(MeterRegistry registry) {
+        this.lockWait = timer(registry, "transfer.lock.wait",
+                "Time spent waiting for an account lock that was already taken");
+        this.execution = timer(registry, "transfer.execution",
+                "Time to execute a transfer on the transfer engine, successful or not");
+        this.notificationDelivery = timer(registry, "transfer.notification.delivery",
+                "Time to hand a notification to the sink");
+        for (TransferState state : STATES) {
+            transitions[state.ordinal()] = Counter.builder("transfer.transitions")
+                    .description("Transfers that moved into a state")
+                    .tag("state", state.name())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Meters registered nowhere, for code built without a registry.
+     */
+    public static TransferMetrics disabled() {
+        return new TransferMetrics(new CompositeMeterRegistry());
+    }
+
+    public void recordLockWait(long nanos) {
+        lockWait.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordExecution(long nanos) {
+        execution.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordNotificationDelivery(long nanos) {
+        notificationDelivery.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void transitioned(TransferState state) {
+        transitions[state.ordinal()].increment();
+    }
+
+    private static Timer timer(MeterRegistry registry, String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
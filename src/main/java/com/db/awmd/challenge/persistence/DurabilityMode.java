@@ -0,0 +1,16 @@
+package com.db.awmd.challenge.persistence;
+
+public enum DurabilityMode {
+
+    /**
+     * Every commit forces the log to disk straight away. Commits that arrive while a force is running still share
+     * the next one.
+     */
+    SYNC,
+
+    /**
+     * A background flusher waits for the group commit window before forcing the log, so every commit arriving in
+     * that window shares a single fsync.
+     */
+    GROUP_COMMIT
+}
@@ -0,0 +1,200 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Money;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshots as binary files named after the sequence number they cover the log up to. A file starts with a fixed
+ * header holding that number and the checksum of the rest, followed by the accounts, then the pending and debited
+ * transfers. Files are written under a temporary name and renamed once on disk, so a crash never leaves a partial snapshot.
+ */
+@Slf4j
+public class FileSnapshotStore implements SnapshotStore {
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int MAGIC = 0x534E4150;
+
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 24;
+
+    private static final int ACCOUNT = 1;
+
+    private static final int TRANSFER = 2;
+
+    private static final int END = 0;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path directory;
+
+    public FileSnapshotStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public long restore(AccountsRepository accountsRepository, TransferRepository transferRepository) {
+        long lsn = getLatestLsn();
+        if (lsn == 0) {
+            return 0;
+        }
+        Path file = snapshotFile(lsn);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IllegalStateException("Snapshot " + file + " is truncated");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != lsn) {
+                throw new IllegalStateException("Snapshot " + file + " has an invalid header");
+            }
+            long checksum = header.getLong();
+
+            CRC32 crc = new CRC32();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new CheckedInputStream(Channels.newInputStream(channel), crc), BUFFER_SIZE));
+            int tag;
+            while ((tag = in.readUnsignedByte()) != END) {
+                if (tag == ACCOUNT) {
+                    accountsRepository.restoreAccount(Account.ofMinorUnits(in.readUTF(), in.readLong()));
+                } else if (tag == TRANSFER) {
+                    transferRepository.restoreTransfer(Transfer.builder()
+                            .id(in.readLong())
+                            .accountFrom(accountsRepository.getAccount(in.readUTF()))
+                            .accountTo(accountsRepository.getAccount(in.readUTF()))
+                            .amount(Money.toDecimal(in.readLong()))
+                            .state(TransferState.values()[in.readUnsignedByte()])
+                            .date(new Date(in.readLong()))
+                            .build());
+                } else {
+                    throw new IllegalStateException("Snapshot " + file + " has an unknown entry " + tag);
+                }
+            }
+            if (in.read() >= 0 || crc.getValue() != checksum) {
+                throw new IllegalStateException("Snapshot " + file + " is corrupt");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load snapshot " + file, e);
+        }
+        return lsn;
+    }
+
+    @Override
+    public long getLatestLsn() {
+        long latest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                latest = Math.max(latest, lsnOf(file));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return latest;
+    }
+
+    @Override
+    public void write(long lsn, AccountsRepository accountsRepository, TransferRepository transferRepository) {
+        Path file = snapshotFile(lsn);
+        Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            // not closed, closing it would close the channel before the header is written
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), BUFFER_SIZE));
+            Iterator<Account> accounts = accountsRepository.streamAccounts().iterator();
+            while (accounts.hasNext()) {
+                Account account = accounts.next();
+                out.writeByte(ACCOUNT);
+                out.writeUTF(account.getAccountId());
+                out.writeLong(account.getBalanceMinorUnits());
+            }
+            Iterator<Transfer> transfers = Stream.concat(transferRepository.streamByState(TransferState.PENDING),
+                    transferRepository.streamByState(TransferState.DEBITED)).iterator();
+            while (transfers.hasNext()) {
+                Transfer transfer = transfers.next();
+                out.writeByte(TRANSFER);
+                out.writeLong(transfer.getId());
+                out.writeUTF(transfer.getAccountFrom().getAccountId());
+                out.writeUTF(transfer.getAccountTo().getAccountId());
+                out.writeLong(transfer.getAmountMinorUnits());
+                out.writeByte(transfer.getState().ordinal());
+                out.writeLong(transfer.getDate().getTime());
+            }
+            out.writeByte(END);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(lsn)
+                    .putLong(crc.getValue());
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + file, e);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + file, e);
+        }
+    }
+
+    @Override
+    public void deleteBefore(long lsn) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*")) {
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(TEMP_SUFFIX) || lsnOf(file) < lsn) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete old snapshots in {}", directory, e);
+        }
+    }
+
+    private Path snapshotFile(long lsn) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, lsn, SNAPSHOT_SUFFIX));
+    }
+
+    private static long lsnOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.indexOf(SNAPSHOT_SUFFIX)));
+    }
+}
@@ -0,0 +1,431 @@
+package com.db.awmd.challenge.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log, split into segment files named after the sequence number of their first record. Each record is
+ * framed as {@code [int length][int crc32][long lsn][payload]}, the checksum covering the sequence number and
+ * payload. On open, the last segment is cut back to the last complete record with a valid checksum, which drops
+ * whatever a crash left half written.
+ * <p>
+ * Appends go to an in-memory buffer. Whoever waits for durability writes the buffer out and forces the channel,
+ * and every record appended up to that point becomes durable with the same fsync.
+ */
+@Slf4j
+public class FileWriteAheadLog implements WriteAheadLog {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+
+    /**
+     * First sequence number of every segment, the last one being the segment appended to.
+     */
+    private final NavigableSet<Long> segments;
+
+    private FileChannel channel;
+
+    private final DurabilityMode durabilityMode;
+
+    private final long groupCommitWindowNanos;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private long lastAppendedLsn;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private final Condition durable = syncLock.newCondition();
+
+    private final Condition syncRequested = syncLock.newCondition();
+
+    private long requestedLsn;
+
+    private volatile long durableLsn;
+
+    private volatile UncheckedIOException failure;
+
+    private volatile boolean open = true;
+
+    private final Thread flusher;
+
+    private FileWriteAheadLog(Path directory, NavigableSet<Long> segments, FileChannel channel, long lastLsn,
+                              DurabilityMode durabilityMode, long groupCommitWindowMicros) {
+        this.directory = directory;
+        this.segments = segments;
+        this.channel = channel;
+        this.lastAppendedLsn = lastLsn;
+        this.durableLsn = lastLsn;
+        this.requestedLsn = lastLsn;
+        this.durabilityMode = durabilityMode;
+        this.groupCommitWindowNanos = TimeUnit.MICROSECONDS.toNanos(groupCommitWindowMicros);
+        if (durabilityMode == DurabilityMode.GROUP_COMMIT) {
+            this.flusher = new Thread(this::flushLoop, "wal-flusher");
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    public static FileWriteAheadLog open(Path directory, DurabilityMode durabilityMode, long groupCommitWindowMicros)
+            throws IOException {
+        Files.createDirectories(directory);
+        NavigableSet<Long> segments = new ConcurrentSkipListSet<>(listSegments(directory));
+        if (segments.isEmpty()) {
+            segments.add(1L);
+        }
+
+        long firstLsn = segments.last();
+        Path segment = segmentFile(directory, firstLsn);
+        long validEnd = 0;
+        long lastLsn = firstLsn - 1;
+        if (Files.exists(segment)) {
+            long[] end = scan(segment, 0, Long.MAX_VALUE, record -> { });
+            validEnd = end[0];
+            lastLsn = Math.max(lastLsn, end[1]);
+        }
+
+        FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() > validEnd) {
+            log.warn("Discarding {} bytes of incomplete records at the end of {}", channel.size() - validEnd, segment);
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        channel.position(validEnd);
+        log.info("Opened write-ahead log {} at sequence number {} in {} mode", directory, lastLsn, durabilityMode);
+        return new FileWriteAheadLog(directory, segments, channel, lastLsn, durabilityMode, groupCommitWindowMicros);
+    }
+
+    @Override
+    public long append(WalRecord record) {
+        byte[] body = record.encode();
+        if (body.length > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Log record of " + body.length + " bytes is too large");
+        }
+        ByteBuffer framed = ByteBuffer.wrap(body);
+        CRC32 crc = new CRC32();
+
+        appendLock.lock();
+        try {
+            checkUsable();
+            long lsn = ++lastAppendedLsn;
+            framed.putLong(0, lsn);
+            crc.update(body, 0, body.length);
+
+            if (buffer.remaining() < HEADER_SIZE + body.length) {
+                writeBuffer();
+            }
+            if (buffer.remaining() < HEADER_SIZE + body.length) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(body.length).putInt((int) crc.getValue());
+                header.flip();
+                writeFully(header);
+                writeFully(framed);
+            } else {
+                buffer.putInt(body.length).putInt((int) crc.getValue()).put(body);
+            }
+            return lsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+        if (lsn <= durableLsn) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durabilityMode == DurabilityMode.SYNC) {
+                if (lsn > durableLsn) {
+                    sync();
+                }
+            } else {
+                if (lsn > requestedLsn) {
+                    requestedLsn = lsn;
+                    syncRequested.signal();
+                }
+                while (lsn > durableLsn && failure == null) {
+                    durable.awaitUninterruptibly();
+                }
+            }
+            checkUsable();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void replay(long fromLsn, long toLsn, Consumer<WalRecord> consumer) {
+        long lastLsn = 0;
+        try {
+            for (Long firstLsn : segments) {
+                Long nextSegment = segments.higher(firstLsn);
+                if (firstLsn >= toLsn || (nextSegment != null && nextSegment <= fromLsn)) {
+                    continue;
+                }
+                Path segment = segmentFile(directory, firstLsn);
+                if (Files.exists(segment)) {
+                    lastLsn = Math.max(lastLsn, scan(segment, fromLsn, toLsn, consumer)[1]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Replayed write-ahead log {} up to sequence number {}", directory, lastLsn);
+    }
+
+    @Override
+    public long roll() {
+        syncLock.lock();
+        try {
+            sync();
+            appendLock.lock();
+            try {
+                long firstLsn = lastAppendedLsn + 1;
+                if (firstLsn == segments.last()) {
+                    return firstLsn;
+                }
+                FileChannel next = FileChannel.open(segmentFile(directory, firstLsn), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.force(false);
+                channel.close();
+                channel = next;
+                segments.add(firstLsn);
+                return firstLsn;
+            } finally {
+                appendLock.unlock();
+            }
+        } catch (IOException e) {
+            failure = new UncheckedIOException("Write-ahead log " + directory + " is no longer usable", e);
+            throw failure;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void truncateBefore(long lsn) {
+        Long keep = segments.floor(lsn);
+        if (keep == null) {
+            return;
+        }
+        // the segment holding lsn is kept, every one before it only has older records
+        for (Long firstLsn : segments.headSet(keep, false)) {
+            try {
+                Files.deleteIfExists(segmentFile(directory, firstLsn));
+                segments.remove(firstLsn);
+            } catch (IOException e) {
+                log.warn("Could not delete log segment starting at {}", firstLsn, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        if (flusher != null) {
+            syncLock.lock();
+            try {
+                syncRequested.signal();
+            } finally {
+                syncLock.unlock();
+            }
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        syncLock.lock();
+        try {
+            sync();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public long getDurableLsn() {
+        return durableLsn;
+    }
+
+    public static Path segmentFile(Path directory, long firstLsn) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+    }
+
+    private void flushLoop() {
+        while (open) {
+            syncLock.lock();
+            try {
+                while (open && requestedLsn <= durableLsn) {
+                    syncRequested.awaitUninterruptibly();
+                }
+            } finally {
+                syncLock.unlock();
+            }
+
+            // give the transfers arriving in the window a chance to share this fsync
+            LockSupport.parkNanos(groupCommitWindowNanos);
+
+            syncLock.lock();
+            try {
+                sync();
+            } catch (UncheckedIOException e) {
+                log.error("Could not force the write-ahead log to disk, no further commits will be accepted", e);
+                return;
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffer out and forces the channel. Must be called holding the sync lock.
+     */
+    private void sync() {
+        if (failure != null) {
+            durable.signalAll();
+            throw failure;
+        }
+        try {
+            long target;
+            appendLock.lock();
+            try {
+                target = lastAppendedLsn;
+                writeBuffer();
+            } finally {
+                appendLock.unlock();
+            }
+            if (target > durableLsn) {
+                channel.force(false);
+                durableLsn = target;
+            }
+        } catch (IOException e) {
+            failure = new UncheckedIOException("Write-ahead log " + directory + " is no longer usable", e);
+            throw failure;
+        } catch (UncheckedIOException e) {
+            failure = e;
+            throw e;
+        } finally {
+            durable.signalAll();
+        }
+    }
+
+    private void writeBuffer() {
+        buffer.flip();
+        try {
+            writeFully(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void writeFully(ByteBuffer source) {
+        try {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        } catch (IOException e) {
+            failure = new UncheckedIOException("Write-ahead log " + directory + " is no longer usable", e);
+            throw failure;
+        }
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Reads records until the end of the segment or the first incomplete or corrupt one, passing on those in
+     * [fromLsn, toLsn).
+     *
+     * @return the position right after the last valid record and its sequence number
+     */
+    private static long[] scan(Path segment, long fromLsn, long toLsn, Consumer<WalRecord> consumer) throws IOException {
+        long position = 0;
+        long lastLsn = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] body;
+                try {
+                    length = in.readInt();
+                    if (length < Long.BYTES + 1 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    checksum = in.readInt();
+                    body = new byte[length];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                WalRecord record = WalRecord.decode(body);
+                if (record.getLsn() >= toLsn) {
+                    break;
+                }
+                if (record.getLsn() >= fromLsn) {
+                    consumer.accept(record);
+                }
+                lastLsn = record.getLsn();
+                position += HEADER_SIZE + length;
+            }
+        }
+        return new long[]{position, lastLsn};
+    }
+}
@@ -0,0 +1,345 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Money;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import lombok.extern.slf4j.Slf4j;
+import sun.misc.Unsafe;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * Archive of transfers packed into memory mapped segment files, so they take no heap. A record holds the id, the
+ * amount in cents, the date, the state and both account ids, around 40 bytes against several hundred for a transfer
+ * on the heap. Records are appended in id order and every 64th record goes into a sparse index kept on the heap,
+ * so a lookup is a binary search in the index and a scan of at most 64 records.
+ * <p>
+ * Ids only grow within a segment. A transfer arriving out of order, which happens when an old transfer fails late,
+ * starts a new segment. The accounts are looked up again when a transfer is read back.
+ * <p>
+ * This is a heap tier, not a durable store: each run archives into a directory of its own, the ones left by earlier
+ * runs are deleted on open, and the write-ahead log and the snapshots stay in charge of what survives a restart.
+ * <p>
+ * Segments are unmapped as soon as the archive is closed or cleared rather than whenever the collector gets to
+ * them. Reading an unmapped segment would crash the process, so lookups hold a read lock that closing waits for.
+ */
+@Slf4j
+public class MappedTransferArchive implements TransferArchive {
+
+    private static final String SEGMENT_PREFIX = "archive-";
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final String RUN_PREFIX = "run-";
+
+    private static final int INDEX_INTERVAL = 64;
+
+    /**
+     * id, amount, date, state and the lengths of both account ids.
+     */
+    private static final int FIXED_RECORD_SIZE = 8 + 8 + 8 + 1 + 2 + 2;
+
+    private static final TransferState[] STATES = TransferState.values();
+
+    private static final Unsafe UNSAFE = unsafe();
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final Function<String, Account> accounts;
+
+    /**
+     * By the first id they hold.
+     */
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * Held for reading by lookups and for writing while the segments are unmapped.
+     */
+    private final StampedLock mappingLock = new StampedLock();
+
+    private Segment current;
+
+    private long nextSegment;
+
+    private volatile long size;
+
+    private MappedTransferArchive(Path directory, int segmentSize, Function<String, Account> accounts) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.accounts = accounts;
+    }
+
+    /**
+     * @param accounts finds the accounts of a transfer read back from the archive
+     */
+    public static MappedTransferArchive open(Path directory, int segmentSize, Function<String, Account> accounts)
+            throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> runs = Files.newDirectoryStream(directory, RUN_PREFIX + "*")) {
+            for (Path run : runs) {
+                deleteSegmentFiles(run);
+                deleteQuietly(run);
+            }
+        }
+        return new MappedTransferArchive(Files.createTempDirectory(directory, RUN_PREFIX), segmentSize, accounts);
+    }
+
+    @Override
+    public synchronized void append(Transfer transfer) {
+        long id = transfer.getId();
+        byte[] accountFrom = transfer.getAccountFrom().getAccountId().getBytes(StandardCharsets.UTF_8);
+        byte[] accountTo = transfer.getAccountTo().getAccountId().getBytes(StandardCharsets.UTF_8);
+        int recordSize = FIXED_RECORD_SIZE + accountFrom.length + accountTo.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Transfer " + id + " doesn't fit in a segment");
+        }
+        if (current == null || id <= current.lastId || current.limit + recordSize > segmentSize) {
+            current = newSegment(id);
+        }
+        current.append(id, transfer, accountFrom, accountTo, recordSize);
+        size++;
+    }
+
+    @Override
+    public Transfer findById(long id) {
+        long stamp = mappingLock.readLock();
+        try {
+            for (Segment segment : segments.headMap(id, true).descendingMap().values()) {
+                if (id <= segment.lastId) {
+                    Transfer transfer = segment.find(id);
+                    if (transfer != null) {
+                        return transfer;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            mappingLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        close();
+        size = 0;
+        deleteSegmentFiles(directory);
+    }
+
+    /**
+     * Unmaps and closes every segment, the transfers in them can't be found any more.
+     */
+    @Override
+    public synchronized void close() {
+        long stamp = mappingLock.writeLock();
+        try {
+            for (Segment segment : segments.values()) {
+                UNSAFE.invokeCleaner(segment.buffer);
+                try {
+                    segment.channel.close();
+                } catch (IOException e) {
+                    log.warn("Could not close archive segment {}", segment.file, e);
+                }
+            }
+            segments.clear();
+            current = null;
+        } finally {
+            mappingLock.unlockWrite(stamp);
+        }
+    }
+
+    private Segment newSegment(long firstId) {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegment++, SEGMENT_SUFFIX));
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            Segment segment = new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+            segments.put(firstId, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create archive segment " + file, e);
+        }
+    }
+
+    private static void deleteSegmentFiles(Path directory) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not clear the transfer archive in {}", directory, e);
+        }
+    }
+
+    /**
+     * Files still mapped can't be deleted on every platform, they are left for the next run.
+     */
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", path, e);
+        }
+    }
+
+    private final class Segment {
+
+        private final Path file;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        private int records;
+
+        private volatile long lastId = Long.MIN_VALUE;
+
+        private volatile long[] indexIds = new long[64];
+
+        private volatile int[] indexOffsets = new int[64];
+
+        private volatile int indexSize;
+
+        /**
+         * Written last on append, readers read it first and never look past it.
+         */
+        private volatile int limit;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private void append(long id, Transfer transfer, byte[] accountFrom, byte[] accountTo, int recordSize) {
+            int offset = limit;
+            int position = offset;
+            buffer.putLong(position, id);
+            buffer.putLong(position + 8, transfer.getAmountMinorUnits());
+            buffer.putLong(position + 16, transfer.getDate().getTime());
+            buffer.put(position + 24, (byte) transfer.getState().ordinal());
+            position += 25;
+            position = putBytes(position, accountFrom);
+            putBytes(position, accountTo);
+
+            if (records++ % INDEX_INTERVAL == 0) {
+                if (indexSize == indexIds.length) {
+                    indexIds = Arrays.copyOf(indexIds, indexSize * 2);
+                    indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+                }
+                indexIds[indexSize] = id;
+                indexOffsets[indexSize] = offset;
+                indexSize++;
+            }
+            lastId = id;
+            limit = offset + recordSize;
+        }
+
+        private Transfer find(long id) {
+            int end = limit;
+            int entries = indexSize;
+            int entry = floor(indexIds, entries, id);
+            if (entry < 0) {
+                return null;
+            }
+            int position = indexOffsets[entry];
+            while (position < end) {
+                long recordId = buffer.getLong(position);
+                if (recordId == id) {
+                    return read(position);
+                }
+                if (recordId > id) {
+                    return null;
+                }
+                int fromLength = buffer.getShort(position + 25);
+                int toLength = buffer.getShort(position + 27 + fromLength);
+                position += FIXED_RECORD_SIZE + fromLength + toLength;
+            }
+            return null;
+        }
+
+        private Transfer read(int position) {
+            int fromLength = buffer.getShort(position + 25);
+            String accountFrom = getString(position + 27, fromLength);
+            int toLength = buffer.getShort(position + 27 + fromLength);
+            String accountTo = getString(position + 29 + fromLength, toLength);
+            return Transfer.builder()
+                    .id(buffer.getLong(position))
+                    .amount(Money.toDecimal(buffer.getLong(position + 8)))
+                    .date(new Date(buffer.getLong(position + 16)))
+                    .state(STATES[buffer.get(position + 24)])
+                    .accountFrom(accounts.apply(accountFrom))
+                    .accountTo(accounts.apply(accountTo))
+                    .build();
+        }
+
+        private int putBytes(int position, byte[] bytes) {
+            buffer.putShort(position, (short) bytes.length);
+            for (int i = 0; i < bytes.length; i++) {
+                buffer.put(position + 2 + i, bytes[i]);
+            }
+            return position + 2 + bytes.length;
+        }
+
+        private String getString(int position, int length) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(position + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Short of the foreign memory API, still a preview in Java 21, the only way to unmap a buffer before it is
+     * collected. It lives in jdk.unsupported.
+     */
+    private static Unsafe unsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Index of the last of the first entries ids that is not above the id, -1 if they all are.
+     */
+    private static int floor(long[] ids, int entries, long id) {
+        int low = 0;
+        int high = entries - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (ids[middle] <= id) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+}
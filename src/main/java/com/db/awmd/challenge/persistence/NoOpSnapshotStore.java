@@ -0,0 +1,28 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+
+/**
+ * Used when persistence is disabled. There is never a snapshot to load.
+ */
+public class NoOpSnapshotStore implements SnapshotStore {
+
+    @Override
+    public long restore(AccountsRepository accountsRepository, TransferRepository transferRepository) {
+        return 0;
+    }
+
+    @Override
+    public long getLatestLsn() {
+        return 0;
+    }
+
+    @Override
+    public void write(long lsn, AccountsRepository accountsRepository, TransferRepository transferRepository) {
+    }
+
+    @Override
+    public void deleteBefore(long lsn) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.domain.Transfer;
+
+/**
+ * Used when every transfer stays on the heap. Nothing is ever archived.
+ */
+public class NoOpTransferArchive implements TransferArchive {
+
+    @Override
+    public void append(Transfer transfer) {
+        throw new IllegalStateException("Transfers are not archived");
+    }
+
+    @Override
+    public Transfer findById(long id) {
+        return null;
+    }
+
+    @Override
+    public long size() {
+        return 0;
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
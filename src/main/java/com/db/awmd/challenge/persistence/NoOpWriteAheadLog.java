@@ -0,0 +1,35 @@
+package com.db.awmd.challenge.persistence;
+
+import java.util.function.Consumer;
+
+/**
+ * Used when persistence is disabled. Nothing is written and there is nothing to replay.
+ */
+public class NoOpWriteAheadLog implements WriteAheadLog {
+
+    @Override
+    public long append(WalRecord record) {
+        return 0;
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+    }
+
+    @Override
+    public void replay(long fromLsn, long toLsn, Consumer<WalRecord> consumer) {
+    }
+
+    @Override
+    public long roll() {
+        return 0;
+    }
+
+    @Override
+    public void truncateBefore(long lsn) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
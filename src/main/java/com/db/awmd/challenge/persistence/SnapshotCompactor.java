@@ -0,0 +1,60 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Periodically folds the closed log segments into a new snapshot and deletes them, so recovery only has to replay
+ * what was logged since the last run.
+ * <p>
+ * The snapshot is built from the log rather than from the live repositories: the previous snapshot and the closed
+ * segments are replayed into a private pair of repositories, which by construction hold the exact state at the
+ * segment boundary. Transfers keep going while it runs, they only wait for the segment switch.
+ */
+@Slf4j
+@AllArgsConstructor
+public class SnapshotCompactor {
+
+    private static final WriteAheadLog NO_LOG = new NoOpWriteAheadLog();
+
+    /**
+     * Nobody reads the private repositories while they are rebuilt, their balance writes need no versions of note.
+     */
+    private static final BalanceVersions NO_READERS = new BalanceVersions(1);
+
+    private final WriteAheadLog writeAheadLog;
+
+    private final SnapshotStore snapshotStore;
+
+    @Scheduled(initialDelayString = "${persistence.snapshot-interval-ms:300000}",
+            fixedDelayString = "${persistence.snapshot-interval-ms:300000}")
+    public void compact() {
+        try {
+            long snapshotLsn = snapshotStore.getLatestLsn();
+            long toLsn = writeAheadLog.roll();
+            if (toLsn <= snapshotLsn) {
+                return;
+            }
+            long start = System.nanoTime();
+            AccountsRepositoryInMemory accounts = new AccountsRepositoryInMemory(NO_LOG);
+            TransferRepositoryInMemory transfers = new TransferRepositoryInMemory(() -> {
+                throw new IllegalStateException("Snapshots never create transfers");
+            }, NO_LOG, NO_READERS);
+            snapshotStore.restore(accounts, transfers);
+            WalReplayer replayer = new WalReplayer(accounts, transfers, NO_READERS);
+            writeAheadLog.replay(snapshotLsn, toLsn, replayer::apply);
+
+            snapshotStore.write(toLsn, accounts, transfers);
+            snapshotStore.deleteBefore(toLsn);
+            writeAheadLog.truncateBefore(toLsn);
+            log.info("Wrote snapshot up to sequence number {} in {} ms", toLsn - 1,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Could not write a snapshot, the log is kept until the next attempt", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+
+/**
+ * Keeps images of the accounts and open transfers, each covering every log record before a sequence number.
+ */
+public interface SnapshotStore {
+
+    /**
+     * Loads the latest snapshot into the repositories.
+     *
+     * @return the sequence number the log must be replayed from, 0 when there is no snapshot
+     */
+    long restore(AccountsRepository accountsRepository, TransferRepository transferRepository);
+
+    /**
+     * Sequence number the latest snapshot covers the log up to, exclusive. 0 when there is no snapshot.
+     */
+    long getLatestLsn();
+
+    /**
+     * Writes the accounts and the pending and debited transfers as the snapshot of every log record before the given
+     * sequence number. The repositories must not change while this runs.
+     */
+    void write(long lsn, AccountsRepository accountsRepository, TransferRepository transferRepository);
+
+    /**
+     * Drops the snapshots older than the given sequence number.
+     */
+    void deleteBefore(long lsn);
+}
@@ -0,0 +1,29 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.domain.Transfer;
+
+import java.io.Closeable;
+
+/**
+ * Off-heap tier for transfers that will not change any more. The transfer repository moves its oldest completed and
+ * failed transfers here to keep the heap bounded, and still finds them by id.
+ */
+public interface TransferArchive extends Closeable {
+
+    /**
+     * The transfer must be completed or failed.
+     */
+    void append(Transfer transfer);
+
+    /**
+     * @return the archived transfer, or null if there is none with this id
+     */
+    Transfer findById(long id);
+
+    long size();
+
+    void clear();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,36 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.repository.TransferRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Date;
+
+/**
+ * Keeps the transfers on the heap within budget by periodically moving the oldest completed and failed ones to the
+ * archive. Transfers younger than the recent window stay on the heap whatever the budget.
+ */
+@Slf4j
+@AllArgsConstructor
+public class TransferEvictor {
+
+    private final TransferRepository transferRepository;
+
+    private final long maxOnHeap;
+
+    private final long keepRecentMillis;
+
+    @Scheduled(fixedDelayString = "${transfer.history.eviction-interval-ms:1000}")
+    public void evict() {
+        try {
+            long start = System.nanoTime();
+            int archived = transferRepository.archive(maxOnHeap, new Date(System.currentTimeMillis() - keepRecentMillis));
+            if (archived > 0) {
+                log.debug("Archived {} transfers in {} ms", archived, (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not archive transfers, they stay on the heap until the next attempt", e);
+        }
+    }
+}
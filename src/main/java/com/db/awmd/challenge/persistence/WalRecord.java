@@ -0,0 +1,136 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A change to the accounts or transfers. Replaying every record in log order rebuilds both repositories.
+ * Only the fields relevant to the record's type are set.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class WalRecord {
+
+    public enum Type {
+        ACCOUNT_CREATED, TRANSFER_CREATED, TRANSFER_COMPLETED, TRANSFER_STATE
+    }
+
+    private final long lsn;
+
+    private final Type type;
+
+    private final String accountId;
+
+    private final long transferId;
+
+    private final String accountFrom;
+
+    private final String accountTo;
+
+    /**
+     * The initial balance of a created account, or the amount of a transfer, in minor units.
+     */
+    private final long amount;
+
+    private final TransferState state;
+
+    private final long timestamp;
+
+    public static WalRecord accountCreated(Account account) {
+        return new WalRecord(0, Type.ACCOUNT_CREATED, account.getAccountId(), 0, null, null,
+                account.getBalanceMinorUnits(), null, 0);
+    }
+
+    public static WalRecord transferCreated(Transfer transfer) {
+        return new WalRecord(0, Type.TRANSFER_CREATED, null, transfer.getId(),
+                transfer.getAccountFrom().getAccountId(), transfer.getAccountTo().getAccountId(),
+                transfer.getAmountMinorUnits(), TransferState.PENDING, transfer.getDate().getTime());
+    }
+
+    /**
+     * Carries the accounts and amount, so the balances can be replayed without looking up the transfer.
+     */
+    public static WalRecord transferCompleted(Transfer transfer) {
+        return new WalRecord(0, Type.TRANSFER_COMPLETED, null, transfer.getId(),
+                transfer.getAccountFrom().getAccountId(), transfer.getAccountTo().getAccountId(),
+                transfer.getAmountMinorUnits(), TransferState.COMPLETED, 0);
+    }
+
+    public static WalRecord transferState(Transfer transfer) {
+        return new WalRecord(0, Type.TRANSFER_STATE, null, transfer.getId(), null, null, 0,
+                transfer.getState(), 0);
+    }
+
+    /**
+     * Serializes the record behind eight reserved bytes, which the log fills in with the sequence number.
+     */
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(0);
+            out.writeByte(type.ordinal());
+            switch (type) {
+                case ACCOUNT_CREATED:
+                    out.writeUTF(accountId);
+                    out.writeLong(amount);
+                    break;
+                case TRANSFER_CREATED:
+                    out.writeLong(transferId);
+                    out.writeUTF(accountFrom);
+                    out.writeUTF(accountTo);
+                    out.writeLong(amount);
+                    out.writeLong(timestamp);
+                    break;
+                case TRANSFER_COMPLETED:
+                    out.writeLong(transferId);
+                    out.writeUTF(accountFrom);
+                    out.writeUTF(accountTo);
+                    out.writeLong(amount);
+                    break;
+                case TRANSFER_STATE:
+                    out.writeLong(transferId);
+                    out.writeByte(state.ordinal());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown record type " + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static WalRecord decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        long lsn = in.readLong();
+        Type type = Type.values()[in.readUnsignedByte()];
+        switch (type) {
+            case ACCOUNT_CREATED:
+                return new WalRecord(lsn, type, in.readUTF(), 0, null, null, in.readLong(), null, 0);
+            case TRANSFER_CREATED:
+                return new WalRecord(lsn, type, null, in.readLong(), in.readUTF(), in.readUTF(), in.readLong(),
+                        TransferState.PENDING, in.readLong());
+            case TRANSFER_COMPLETED:
+                return new WalRecord(lsn, type, null, in.readLong(), in.readUTF(), in.readUTF(), in.readLong(),
+                        TransferState.COMPLETED, 0);
+            case TRANSFER_STATE:
+                return new WalRecord(lsn, type, null, in.readLong(), null, null, 0,
+                        TransferState.values()[in.readUnsignedByte()], 0);
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+}
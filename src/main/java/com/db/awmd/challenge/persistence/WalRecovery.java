@@ -0,0 +1,62 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the repositories while the context starts, before the web server accepts requests and before
+ * {@link com.db.awmd.challenge.config.ProcessPendingTransactions} looks for pending transfers. The latest snapshot
+ * is loaded first, then only the log records written after it are replayed. Transfers left debited are kept as
+ * such only over balances the accounts repository recovered on its own.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class WalRecovery implements InitializingBean {
+
+    private final WriteAheadLog writeAheadLog;
+
+    private final SnapshotStore snapshotStore;
+
+    private final AccountsRepository accountsRepository;
+
+    private final TransferRepository transferRepository;
+
+    private final BalanceVersions balanceVersions;
+
+    @Override
+    public void afterPropertiesSet() {
+        long start = System.nanoTime();
+        long fromLsn = snapshotStore.restore(accountsRepository, transferRepository);
+        if (fromLsn > 0) {
+            log.info("Loaded snapshot up to sequence number {} in {} ms", fromLsn - 1,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+
+        long replayStart = System.nanoTime();
+        WalReplayer replayer = new WalReplayer(accountsRepository, transferRepository, balanceVersions);
+        long[] records = {0};
+        writeAheadLog.replay(fromLsn, Long.MAX_VALUE, record -> {
+            replayer.apply(record);
+            records[0]++;
+        });
+        if (records[0] > 0) {
+            log.info("Recovered {} log records in {} ms", records[0], (System.nanoTime() - replayStart) / 1_000_000);
+        }
+
+        if (!accountsRepository.hasRecoveredBalances()) {
+            // the balances were rebuilt from completed transfers only, so these start over
+            for (Transfer transfer : transferRepository.findByState(TransferState.DEBITED)) {
+                transfer.setState(TransferState.PENDING);
+                transferRepository.restoreTransfer(transfer);
+            }
+        }
+    }
+}
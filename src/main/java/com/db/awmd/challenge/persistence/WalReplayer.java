@@ -0,0 +1,74 @@
+package com.db.awmd.challenge.persistence;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.domain.Money;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Date;
+
+/**
+ * Applies log records to a pair of repositories, without logging them again. Completed transfers don't touch balances
+ * the accounts repository recovered on its own.
+ */
+@Slf4j
+@AllArgsConstructor
+class WalReplayer {
+
+    private final AccountsRepository accountsRepository;
+
+    private final TransferRepository transferRepository;
+
+    private final BalanceVersions balanceVersions;
+
+    void apply(WalRecord record) {
+        switch (record.getType()) {
+            case ACCOUNT_CREATED:
+                accountsRepository.restoreAccount(Account.ofMinorUnits(record.getAccountId(), record.getAmount()));
+                break;
+            case TRANSFER_CREATED:
+                transferRepository.restoreTransfer(Transfer.builder()
+                        .id(record.getTransferId())
+                        .accountFrom(accountsRepository.getAccount(record.getAccountFrom()))
+                        .accountTo(accountsRepository.getAccount(record.getAccountTo()))
+                        .amount(Money.toDecimal(record.getAmount()))
+                        .state(record.getState())
+                        .date(new Date(record.getTimestamp()))
+                        .build());
+                break;
+            case TRANSFER_COMPLETED:
+                if (!accountsRepository.hasRecoveredBalances()) {
+                    Account accountFrom = accountsRepository.getAccount(record.getAccountFrom());
+                    Account accountTo = accountsRepository.getAccount(record.getAccountTo());
+                    balanceVersions.beginWrite(accountFrom.getHandle(), accountTo.getHandle());
+                    try {
+                        accountFrom.setBalanceMinorUnits(
+                                Money.subtract(accountFrom.getBalanceMinorUnits(), record.getAmount()));
+                        accountTo.setBalanceMinorUnits(
+                                Money.add(accountTo.getBalanceMinorUnits(), record.getAmount()));
+                    } finally {
+                        balanceVersions.endWrite(accountFrom.getHandle(), accountTo.getHandle());
+                    }
+                }
+                restoreState(record);
+                break;
+            case TRANSFER_STATE:
+                restoreState(record);
+                break;
+            default:
+                log.warn("Skipping log record of unknown type {}", record);
+        }
+    }
+
+    private void restoreState(WalRecord record) {
+        Transfer transfer = transferRepository.findById(record.getTransferId());
+        if (transfer != null) {
+            transfer.setState(record.getState());
+            transferRepository.restoreTransfer(transfer);
+        }
+    }
+}
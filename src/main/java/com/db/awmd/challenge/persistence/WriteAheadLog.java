@@ -0,0 +1,44 @@
+package com.db.awmd.challenge.persistence;
+
+import java.util.function.Consumer;
+
+public interface WriteAheadLog {
+
+    /**
+     * Adds the record to the log and returns its log sequence number. The record is not durable until
+     * {@link #awaitDurable(long)} returns for that number.
+     */
+    long append(WalRecord record);
+
+    /**
+     * Blocks until every record up to and including the given log sequence number is on disk.
+     */
+    void awaitDurable(long lsn);
+
+    /**
+     * Feeds every record of the log to the consumer, oldest first. Meant to run on startup before anything is appended.
+     */
+    default void replay(Consumer<WalRecord> consumer) {
+        replay(0, Long.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Feeds the records with a sequence number in [fromLsn, toLsn) to the consumer, oldest first. Records before
+     * the last {@link #roll()} can be read while others are being appended.
+     */
+    void replay(long fromLsn, long toLsn, Consumer<WalRecord> consumer);
+
+    /**
+     * Makes everything appended so far durable and starts a new segment.
+     *
+     * @return the sequence number the next record will get, every record before it being in closed segments
+     */
+    long roll();
+
+    /**
+     * Drops the closed segments that only hold records before the given sequence number.
+     */
+    void truncateBefore(long lsn);
+
+    void close();
+}
@@ -0,0 +1,340 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The open addressing hash table with linear probing behind {@link OffHeapAccountsRepository} and
+ * {@link MappedAccountsRepository}. Slots are fixed size records in chunks of buffers, each holding a reference to the
+ * account id at one offset and the hash of the id at another, the rest of the slot belongs to the store. A slot is
+ * taken once its key reference isn't 0. Ids are stored once in an append-only key arena, one byte per character when
+ * they are ASCII.
+ * <p>
+ * Lookups take no lock, they validate an optimistic read of the table instead. Anything that takes or frees slots must
+ * hold the write lock of the table, see {@link #getTableLock()}. Balance changes are serialized by striped locks,
+ * which a virtual thread waits on without pinning its carrier, while balance reads take no lock: balances are written
+ * with release and read with acquire semantics through a {@link VarHandle} view of the buffers.
+ */
+final class AccountSlotTable {
+
+  static final int SLOT_CHUNK_SHIFT = 16;
+
+  static final int SLOT_CHUNK_MASK = (1 << SLOT_CHUNK_SHIFT) - 1;
+
+  static final int KEY_CHUNK_SIZE = 1 << 20;
+
+  static final double MAX_LOAD = 0.75;
+
+  private static final int WIDE = 0x8000;
+
+  private static final int BALANCE_STRIPES = 1024;
+
+  private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+  /**
+   * Makes the account handed out for a taken slot.
+   */
+  interface SlotAccountFactory {
+
+    Account create(String accountId, int slot);
+  }
+
+  private final ByteBuffer[] slots;
+
+  private final int slotSize;
+
+  private final int keyOffset;
+
+  private final int hashOffset;
+
+  private final int mask;
+
+  private final IntFunction<ByteBuffer> keyChunkAllocator;
+
+  private final ReentrantLock[] balanceLocks = new ReentrantLock[BALANCE_STRIPES];
+
+  private final StampedLock tableLock = new StampedLock();
+
+  private volatile ByteBuffer[] keyChunks;
+
+  private int keyChunkUsed;
+
+  /**
+   * @param slots             chunks of {@code 1 << SLOT_CHUNK_SHIFT} slots each
+   * @param keyChunks         key chunks already filled, the last one up to keyChunkUsed bytes
+   * @param keyChunkAllocator gives the key chunk of the given index, {@code KEY_CHUNK_SIZE} bytes long
+   */
+  AccountSlotTable(ByteBuffer[] slots, int slotSize, int keyOffset, int hashOffset, ByteBuffer[] keyChunks,
+    int keyChunkUsed, IntFunction<ByteBuffer> keyChunkAllocator) {
+    this.slots = slots;
+    this.slotSize = slotSize;
+    this.keyOffset = keyOffset;
+    this.hashOffset = hashOffset;
+    this.mask = (slots.length << SLOT_CHUNK_SHIFT) - 1;
+    this.keyChunks = keyChunks;
+    this.keyChunkUsed = keyChunkUsed;
+    this.keyChunkAllocator = keyChunkAllocator;
+    for (int i = 0; i < BALANCE_STRIPES; i++) {
+      balanceLocks[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Number of slots a table needs to hold capacity accounts under the maximum load, a whole number of chunks.
+   */
+  static int tableSize(int capacity) {
+    int tableSize = 1 << SLOT_CHUNK_SHIFT;
+    while (tableSize * MAX_LOAD < capacity) {
+      tableSize <<= 1;
+    }
+    return tableSize;
+  }
+
+  StampedLock getTableLock() {
+    return tableLock;
+  }
+
+  int getTableSize() {
+    return mask + 1;
+  }
+
+  /**
+   * Slot of the account, -1 if there is none.
+   */
+  int lookup(String accountId) {
+    int hash = hash(accountId);
+    long stamp = tableLock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        int found = find(accountId, hash);
+        if (tableLock.validate(stamp)) {
+          return found;
+        }
+      } catch (RuntimeException e) {
+        // read half of a concurrent insert, done again under the lock
+      }
+    }
+    stamp = tableLock.readLock();
+    try {
+      return find(accountId, hash);
+    } finally {
+      tableLock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * The slots of both accounts, the first one in the high half, found under a single optimistic read of the table.
+   */
+  long lookup(String accountId1, String accountId2) {
+    int hash1 = hash(accountId1);
+    int hash2 = hash(accountId2);
+    long stamp = tableLock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        long found = pack(find(accountId1, hash1), find(accountId2, hash2));
+        if (tableLock.validate(stamp)) {
+          return found;
+        }
+      } catch (RuntimeException e) {
+        // read half of a concurrent insert, done again under the lock
+      }
+    }
+    stamp = tableLock.readLock();
+    try {
+      return pack(find(accountId1, hash1), find(accountId2, hash2));
+    } finally {
+      tableLock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * The slot holding the account, or the empty slot it would go in.
+   */
+  int probe(String accountId, int hash) {
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      long key = keyRef(slot);
+      if (key == 0
+        || (slotBuffer(slot).getInt(slotOffset(slot) + hashOffset) == hash && keyEquals(key - 1, accountId))) {
+        return slot;
+      }
+    }
+  }
+
+  /**
+   * The accounts of every taken slot, each made under the table read lock.
+   */
+  Stream<Account> streamAccounts(SlotAccountFactory factory) {
+    return IntStream.rangeClosed(0, mask)
+      .mapToObj(slot -> accountAt(slot, factory))
+      .filter(account -> account != null);
+  }
+
+  /**
+   * Reference to the id of the account in the slot, plus one so that 0 marks an empty slot.
+   */
+  long keyRef(int slot) {
+    return slotBuffer(slot).getLong(slotOffset(slot) + keyOffset);
+  }
+
+  /**
+   * Appends the id to the key arena: a length, with the high bit set when it takes two bytes per character, then the
+   * characters. Must hold the table write lock.
+   *
+   * @return the reference to the id, which goes in the slot plus one
+   */
+  long storeKey(String accountId) {
+    checkKey(accountId);
+    int length = accountId.length();
+    boolean wide = !isAscii(accountId);
+    int bytes = 2 + (wide ? 2 * length : length);
+    ByteBuffer[] chunks = keyChunks;
+    if (chunks.length == 0 || keyChunkUsed + bytes > KEY_CHUNK_SIZE) {
+      chunks = Arrays.copyOf(chunks, chunks.length + 1);
+      chunks[chunks.length - 1] = keyChunkAllocator.apply(chunks.length - 1);
+      keyChunks = chunks;
+      keyChunkUsed = 0;
+    }
+    ByteBuffer chunk = chunks[chunks.length - 1];
+    int offset = keyChunkUsed;
+    chunk.putShort(offset, (short) (wide ? length | WIDE : length));
+    for (int i = 0; i < length; i++) {
+      if (wide) {
+        chunk.putChar(offset + 2 + 2 * i, accountId.charAt(i));
+      } else {
+        chunk.put(offset + 2 + i, (byte) accountId.charAt(i));
+      }
+    }
+    keyChunkUsed += bytes;
+    return ((long) (chunks.length - 1) << 32) | offset;
+  }
+
+  /**
+   * Fails for an id whose length doesn't fit in the key header, before anything about the account is logged or
+   * written.
+   */
+  static void checkKey(String accountId) {
+    if (accountId.length() >= WIDE) {
+      throw new IllegalArgumentException("Account id is too long");
+    }
+  }
+
+  String readKey(long key) {
+    ByteBuffer chunk = keyChunks[(int) (key >>> 32)];
+    int offset = (int) key;
+    int header = chunk.getShort(offset) & 0xFFFF;
+    boolean wide = (header & WIDE) != 0;
+    char[] chars = new char[header & ~WIDE];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = wide ? chunk.getChar(offset + 2 + 2 * i) : (char) (chunk.get(offset + 2 + i) & 0xFF);
+    }
+    return new String(chars);
+  }
+
+  ByteBuffer[] getKeyChunks() {
+    return keyChunks;
+  }
+
+  int getKeyChunkUsed() {
+    return keyChunkUsed;
+  }
+
+  /**
+   * Empties every slot and drops the key arena. Must hold the table write lock.
+   */
+  void clear() {
+    for (ByteBuffer chunk : slots) {
+      for (int offset = 0; offset < chunk.capacity(); offset += 8) {
+        chunk.putLong(offset, 0);
+      }
+    }
+    keyChunks = new ByteBuffer[0];
+    keyChunkUsed = 0;
+  }
+
+  ByteBuffer slotBuffer(int slot) {
+    return slots[slot >>> SLOT_CHUNK_SHIFT];
+  }
+
+  int slotOffset(int slot) {
+    return (slot & SLOT_CHUNK_MASK) * slotSize;
+  }
+
+  ReentrantLock balanceLock(int slot) {
+    return balanceLocks[slot & (BALANCE_STRIPES - 1)];
+  }
+
+  /**
+   * Reads a long written with {@link #setLongRelease}, seeing everything written before it. The index must be a
+   * multiple of 8, which every slot field read this way is.
+   */
+  static long getLongAcquire(ByteBuffer buffer, int index) {
+    return (long) LONGS.getAcquire(buffer, index);
+  }
+
+  static void setLongRelease(ByteBuffer buffer, int index, long value) {
+    LONGS.setRelease(buffer, index, value);
+  }
+
+  static int hash(String accountId) {
+    int hash = accountId.hashCode() * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * The slot holding the account, or -1.
+   */
+  private int find(String accountId, int hash) {
+    int slot = probe(accountId, hash);
+    return keyRef(slot) != 0 ? slot : -1;
+  }
+
+  private static long pack(int slot1, int slot2) {
+    return ((long) slot1 << 32) | (slot2 & 0xFFFFFFFFL);
+  }
+
+  private Account accountAt(int slot, SlotAccountFactory factory) {
+    long stamp = tableLock.readLock();
+    try {
+      long key = keyRef(slot);
+      return key == 0 ? null : factory.create(readKey(key - 1), slot);
+    } finally {
+      tableLock.unlockRead(stamp);
+    }
+  }
+
+  private boolean keyEquals(long key, String accountId) {
+    ByteBuffer chunk = keyChunks[(int) (key >>> 32)];
+    int offset = (int) key;
+    int header = chunk.getShort(offset) & 0xFFFF;
+    boolean wide = (header & WIDE) != 0;
+    int length = header & ~WIDE;
+    if (length != accountId.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = wide ? chunk.getChar(offset + 2 + 2 * i) : (char) (chunk.get(offset + 2 + i) & 0xFF);
+      if (c != accountId.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAscii(String accountId) {
+    for (int i = 0; i < accountId.length(); i++) {
+      if (accountId.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
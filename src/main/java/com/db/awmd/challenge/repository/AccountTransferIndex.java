@@ -0,0 +1,132 @@
+package com.db.awmd.challenge.repository;
+
+import java.util.Arrays;
+
+/**
+ * Ids of the transfers of each account, in the order they were made. Each account has an append-only array of ids
+ * split into fixed chunks, so a page is read by position without looking at the rest of the history, and an entry
+ * costs 8 bytes plus its share of a chunk header. The first chunk starts small and doubles up to the chunk size, so
+ * accounts with a handful of transfers don't pay for a whole chunk.
+ * <p>
+ * Accounts are given by their {@link com.db.awmd.challenge.domain.Account#getHandle() handle}, and the histories
+ * are an array indexed by it, split into pages that are added as handles are given out. Finding a history is two
+ * array reads, no id is hashed. Appends to an account are serialized, reads take no lock.
+ */
+public class AccountTransferIndex {
+
+    private static final int CHUNK_SHIFT = 8;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final int FIRST_CHUNK_SIZE = 4;
+
+    private static final int PAGE_SHIFT = 12;
+
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final long[] NONE = new long[0];
+
+    private volatile History[][] pages = new History[0][];
+
+    public void add(int handle, long transferId) {
+        History history = find(handle);
+        if (history == null) {
+            history = create(handle);
+        }
+        history.append(transferId);
+    }
+
+    /**
+     * Number of transfers the account took part in, which is also the position right after its latest one.
+     */
+    public long size(int handle) {
+        History history = find(handle);
+        return history == null ? 0 : history.size;
+    }
+
+    /**
+     * Up to limit ids from the positions right before the given one, the latest first.
+     */
+    public long[] before(int handle, long position, int limit) {
+        History history = find(handle);
+        return history == null ? NONE : history.before(position, limit);
+    }
+
+    public synchronized void clear() {
+        pages = new History[0][];
+    }
+
+    /**
+     * The history of the account, null for a negative handle or an account without transfers.
+     */
+    private History find(int handle) {
+        History[][] current = pages;
+        int page = handle >> PAGE_SHIFT;
+        if (handle < 0 || page >= current.length || current[page] == null) {
+            return null;
+        }
+        return current[page][handle & PAGE_MASK];
+    }
+
+    private synchronized History create(int handle) {
+        History[][] current = pages;
+        int page = handle >> PAGE_SHIFT;
+        if (page >= current.length) {
+            current = Arrays.copyOf(current, page + 1);
+        }
+        if (current[page] == null) {
+            current[page] = new History[PAGE_SIZE];
+        }
+        History history = current[page][handle & PAGE_MASK];
+        if (history == null) {
+            history = new History();
+            current[page][handle & PAGE_MASK] = history;
+        }
+        // republished, so readers seeing the new page see the history in it
+        pages = current;
+        return history;
+    }
+
+    private static final class History {
+
+        private volatile long[][] chunks = {new long[FIRST_CHUNK_SIZE]};
+
+        /**
+         * Written after the id it covers, and read before the chunks, so readers see every id below it.
+         */
+        private volatile long size;
+
+        private synchronized void append(long transferId) {
+            long position = size;
+            int chunk = (int) (position >>> CHUNK_SHIFT);
+            int offset = (int) (position & CHUNK_MASK);
+            long[][] current = chunks;
+            if (chunk == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                chunks = current;
+            }
+            if (current[chunk] == null) {
+                current[chunk] = new long[CHUNK_SIZE];
+            } else if (offset == current[chunk].length) {
+                current[chunk] = Arrays.copyOf(current[chunk], Math.min(offset * 2, CHUNK_SIZE));
+            }
+            current[chunk][offset] = transferId;
+            size = position + 1;
+        }
+
+        private long[] before(long position, int limit) {
+            long start = Math.min(position, size);
+            long[][] current = chunks;
+            long[] ids = new long[(int) Math.max(0, Math.min(limit, start))];
+            for (int i = 0; i < ids.length; i++) {
+                long at = start - 1 - i;
+                ids[i] = current[(int) (at >>> CHUNK_SHIFT)][(int) (at & CHUNK_MASK)];
+            }
+            return ids;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 
 import java.math.BigDecimal;
+import java.util.stream.Stream;
 
 public interface AccountsRepository {
 
@@ -11,6 +12,33 @@ public interface AccountsRepository {
 
   Account getAccount(String accountId);
 
+  /**
+   * Both accounts of a transfer in one call, in the order asked for, null for an account that doesn't exist
+   */
+  default Account[] getAccounts(String accountIdFrom, String accountIdTo) {
+    return new Account[]{getAccount(accountIdFrom), getAccount(accountIdTo)};
+  }
+
+  /**
+   * Puts back an account rebuilt from persisted state, without logging it again
+   */
+  void restoreAccount(Account account);
+
+  /**
+   * Every account, in no particular order. Meant for snapshots, so it is not a point in time view on a live repository
+   */
+  Stream<Account> streamAccounts();
+
+  long countAccounts();
+
+  /**
+   * Whether the balances came back on their own as they were at the last shutdown, recovery must then not apply the
+   * logged transfers to them again and {@link #restoreAccount} leaves existing accounts alone
+   */
+  default boolean hasRecoveredBalances() {
+    return false;
+  }
+
   void clearAccounts();
 
 }
@@ -1,33 +1,121 @@
 package com.db.awmd.challenge.repository;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountHandleRegistry;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import com.db.awmd.challenge.persistence.WalRecord;
+import com.db.awmd.challenge.persistence.WriteAheadLog;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
+/**
+ * Accounts on the heap, in an array indexed by their handle. The handles come from the repository's own
+ * {@link AccountHandleRegistry}, so a lookup hashes the id once and the account then carries its handle.
+ */
 @Repository
+@Profile("!offheap & !mapped")
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
-  private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+  private static final int CHUNK_SHIFT = 12;
+
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private static final VarHandle ACCOUNTS = MethodHandles.arrayElementVarHandle(Account[].class);
+
+  private final AccountHandleRegistry handles = new AccountHandleRegistry();
+
+  /**
+   * Accounts by handle, stored with release semantics once their handle is set and read with acquire semantics.
+   */
+  private volatile Account[][] accounts = new Account[0][];
+
+  private volatile int size;
+
+  private final WriteAheadLog writeAheadLog;
+
+  public AccountsRepositoryInMemory(WriteAheadLog writeAheadLog) {
+    this.writeAheadLog = writeAheadLog;
+  }
 
   @Override
   public void createAccount(Account account) throws DuplicateAccountIdException {
-    Account previousAccount = accounts.putIfAbsent(account.getAccountId(), account);
-    if (previousAccount != null) {
-      throw new DuplicateAccountIdException(
-        "Account id " + account.getAccountId() + " already exists!");
+    long lsn;
+    synchronized (this) {
+      int handle = handles.register(account.getAccountId());
+      if (accountAt(handle) != null) {
+        throw new DuplicateAccountIdException(
+          "Account id " + account.getAccountId() + " already exists!");
+      }
+      // logged under the lock, so no transfer on this account can reach the log before its creation does
+      lsn = writeAheadLog.append(WalRecord.accountCreated(account));
+      store(handle, account);
     }
+    writeAheadLog.awaitDurable(lsn);
   }
 
   @Override
   public Account getAccount(String accountId) {
-    return accounts.get(accountId);
+    return accountAt(handles.find(accountId));
+  }
+
+  @Override
+  public synchronized void restoreAccount(Account account) {
+    store(handles.register(account.getAccountId()), account);
   }
 
   @Override
-  public void clearAccounts() {
-    accounts.clear();
+  public Stream<Account> streamAccounts() {
+    return IntStream.range(0, handles.size())
+      .mapToObj(this::accountAt)
+      .filter(Objects::nonNull);
   }
 
+  @Override
+  public long countAccounts() {
+    return size;
+  }
+
+  @Override
+  public synchronized void clearAccounts() {
+    accounts = new Account[0][];
+    handles.clear();
+    size = 0;
+  }
+
+  private Account accountAt(int handle) {
+    Account[][] chunks = accounts;
+    if (handle < 0 || (handle >>> CHUNK_SHIFT) >= chunks.length) {
+      return null;
+    }
+    return (Account) ACCOUNTS.getAcquire(chunks[handle >>> CHUNK_SHIFT], handle & CHUNK_MASK);
+  }
+
+  /**
+   * Must hold the lock of the repository.
+   */
+  private void store(int handle, Account account) {
+    Account[][] chunks = accounts;
+    int chunk = handle >>> CHUNK_SHIFT;
+    if (chunk >= chunks.length) {
+      int added = chunks.length;
+      chunks = Arrays.copyOf(chunks, chunk + 1);
+      for (; added <= chunk; added++) {
+        chunks[added] = new Account[CHUNK_SIZE];
+      }
+      accounts = chunks;
+    }
+    if (accountAt(handle) == null) {
+      size++;
+    }
+    account.setHandle(handle);
+    ACCOUNTS.setRelease(chunks[chunk], handle & CHUNK_MASK, account);
+  }
 }
@@ -0,0 +1,515 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.persistence.WalRecord;
+import com.db.awmd.challenge.persistence.WriteAheadLog;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Accounts kept in a memory mapped ledger file, so their balances survive a restart without replaying any history.
+ * The file is an {@link AccountSlotTable} like the one of {@link OffHeapAccountsRepository}, with a 64 byte slot per
+ * account, and the ids go to a second mapped file. Opening the ledger is mapping both files, there is no index to
+ * rebuild. The slot is the account's handle, like there.
+ * <p>
+ * Each slot holds two copies of the balance, each with a sequence number and a checksum over the slot, its id and
+ * the balance. An update writes the older copy, sequence number last, so a process dying half way through an update
+ * leaves the other copy as it was. Reads take the copy with the highest sequence number.
+ * <p>
+ * The ledger is marked open while in use and closed once forced to disk on shutdown. When it was not closed the
+ * integrity scan runs on open: it drops the copies whose checksum doesn't match, and marks the accounts left with no
+ * valid copy as damaged, their balance can't be read until {@link #restoreAccount} puts it back. The balances then
+ * come back from the snapshot and the write-ahead log like with any other store, which also undoes a transfer cut
+ * half way. After a clean shutdown they are taken as they are and recovery leaves them alone, see
+ * {@link #hasRecoveredBalances()}. A transfer caught between its debit and its credit is logged as debited, so
+ * recovery then only credits it. {@code accounts.mapped.scan-on-open} runs the scan on every start.
+ * <p>
+ * Writes go through the page cache, which survives the process but not the machine, the write-ahead log is what
+ * covers a power loss. Like the off-heap store the table doesn't grow. Selected with the {@code mapped} profile.
+ */
+@Slf4j
+@Repository
+@Profile("mapped")
+public class MappedAccountsRepository implements AccountsRepository {
+
+  private static final String LEDGER_FILE = "accounts.ledger";
+
+  private static final String KEYS_FILE = "accounts.keys";
+
+  private static final int MAGIC = 0x4C454447;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 4096;
+
+  private static final int HEADER_TABLE_SIZE = 8;
+
+  private static final int HEADER_SIZE_FIELD = 12;
+
+  private static final int HEADER_STATE = 16;
+
+  private static final int HEADER_KEY_CHUNKS = 20;
+
+  private static final int HEADER_KEY_USED = 24;
+
+  private static final int OPEN = 1;
+
+  private static final int CLOSED = 2;
+
+  private static final int SLOT_SIZE = 64;
+
+  private static final int KEY = 0;
+
+  private static final int HASH = 8;
+
+  private static final int COPY_A = 16;
+
+  private static final int COPY_B = 40;
+
+  private static final int SEQUENCE = 0;
+
+  private static final int BALANCE = 8;
+
+  private static final int CHECKSUM = 16;
+
+  /**
+   * Sequence number of both copies of a damaged account.
+   */
+  private static final long DAMAGED = -1;
+
+  private final WriteAheadLog writeAheadLog;
+
+  private final FileChannel ledgerChannel;
+
+  private final FileChannel keysChannel;
+
+  private final MappedByteBuffer header;
+
+  private final MappedByteBuffer[] slots;
+
+  private final int capacity;
+
+  private final BalanceVersions balanceVersions;
+
+  private final AccountSlotTable table;
+
+  private volatile int size;
+
+  private volatile boolean recoveredBalances;
+
+  @Autowired
+  public MappedAccountsRepository(WriteAheadLog writeAheadLog, BalanceVersions balanceVersions,
+    @Value("${persistence.directory:data}") String directory,
+    @Value("${accounts.mapped.capacity:1048576}") int capacity,
+    @Value("${accounts.mapped.scan-on-open:false}") boolean scanOnOpen) throws IOException {
+    this(writeAheadLog, balanceVersions, Paths.get(directory, "ledger"), capacity, scanOnOpen);
+  }
+
+  /**
+   * Opens the ledger in the directory, creating it with room for the given number of accounts when there is none. An
+   * existing ledger keeps the capacity it was created with.
+   */
+  public MappedAccountsRepository(WriteAheadLog writeAheadLog, BalanceVersions balanceVersions, Path directory,
+    int capacity, boolean scanOnOpen) throws IOException {
+    Files.createDirectories(directory);
+    this.writeAheadLog = writeAheadLog;
+    this.balanceVersions = balanceVersions;
+    this.ledgerChannel = FileChannel.open(directory.resolve(LEDGER_FILE), StandardOpenOption.CREATE,
+      StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.keysChannel = FileChannel.open(directory.resolve(KEYS_FILE), StandardOpenOption.CREATE,
+      StandardOpenOption.READ, StandardOpenOption.WRITE);
+    boolean created = ledgerChannel.size() == 0;
+    this.header = ledgerChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+    if (created) {
+      header.putInt(0, MAGIC).putInt(4, VERSION).putInt(HEADER_TABLE_SIZE, AccountSlotTable.tableSize(capacity));
+    } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+      throw new IllegalStateException("Ledger in " + directory + " has an invalid header");
+    }
+    int tableSize = header.getInt(HEADER_TABLE_SIZE);
+    this.capacity = (int) (tableSize * AccountSlotTable.MAX_LOAD);
+    this.slots = new MappedByteBuffer[tableSize >>> AccountSlotTable.SLOT_CHUNK_SHIFT];
+    for (int i = 0; i < slots.length; i++) {
+      long chunkSize = (long) (AccountSlotTable.SLOT_CHUNK_MASK + 1) * SLOT_SIZE;
+      slots[i] = ledgerChannel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + i * chunkSize, chunkSize);
+    }
+    ByteBuffer[] keyChunks = new ByteBuffer[header.getInt(HEADER_KEY_CHUNKS)];
+    for (int i = 0; i < keyChunks.length; i++) {
+      keyChunks[i] = mapKeyChunk(i);
+    }
+    this.table = new AccountSlotTable(slots, SLOT_SIZE, KEY, HASH, keyChunks, header.getInt(HEADER_KEY_USED),
+      this::mapKeyChunk);
+    this.size = header.getInt(HEADER_SIZE_FIELD);
+
+    boolean closedCleanly = header.getInt(HEADER_STATE) == CLOSED;
+    if (!created && !closedCleanly) {
+      log.warn("Ledger in {} was not closed, scanning it", directory);
+    }
+    long damaged = !created && (scanOnOpen || !closedCleanly) ? scan() : 0;
+    this.recoveredBalances = closedCleanly && damaged == 0;
+    header.putInt(HEADER_STATE, OPEN);
+    header.force();
+    if (!created) {
+      log.info("Opened ledger in {} with {} accounts", directory, size);
+    }
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    String accountId = account.getAccountId();
+    AccountSlotTable.checkKey(accountId);
+    long lsn;
+    StampedLock tableLock = table.getTableLock();
+    long stamp = tableLock.writeLock();
+    try {
+      int hash = AccountSlotTable.hash(accountId);
+      int slot = table.probe(accountId, hash);
+      if (table.keyRef(slot) != 0) {
+        throw new DuplicateAccountIdException("Account id " + accountId + " already exists!");
+      }
+      if (size >= capacity) {
+        throw new IllegalStateException("The ledger is full at " + capacity + " accounts");
+      }
+      // logged under the table lock, so no transfer on this account can reach the log before its creation does
+      lsn = writeAheadLog.append(WalRecord.accountCreated(account));
+      occupy(slot, accountId, hash, account.getBalanceMinorUnits());
+    } finally {
+      tableLock.unlockWrite(stamp);
+    }
+    writeAheadLog.awaitDurable(lsn);
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    int slot = table.lookup(accountId);
+    return slot < 0 ? null : new LedgerAccount(accountId, slot);
+  }
+
+  /**
+   * Both slots are found under a single optimistic read of the table.
+   */
+  @Override
+  public Account[] getAccounts(String accountIdFrom, String accountIdTo) {
+    long slots = table.lookup(accountIdFrom, accountIdTo);
+    int slotFrom = (int) (slots >> 32);
+    int slotTo = (int) slots;
+    return new Account[]{
+      slotFrom < 0 ? null : new LedgerAccount(accountIdFrom, slotFrom),
+      slotTo < 0 ? null : new LedgerAccount(accountIdTo, slotTo)};
+  }
+
+  /**
+   * Leaves the accounts already in the ledger alone when it holds the balances of a clean shutdown.
+   */
+  @Override
+  public void restoreAccount(Account account) {
+    String accountId = account.getAccountId();
+    StampedLock tableLock = table.getTableLock();
+    long stamp = tableLock.writeLock();
+    try {
+      int hash = AccountSlotTable.hash(accountId);
+      int slot = table.probe(accountId, hash);
+      if (table.keyRef(slot) == 0) {
+        occupy(slot, accountId, hash, account.getBalanceMinorUnits());
+      } else if (!recoveredBalances) {
+        balanceVersions.beginWrite(slot);
+        try {
+          writeBalance(slot, account.getBalanceMinorUnits());
+        } finally {
+          balanceVersions.endWrite(slot);
+        }
+      }
+    } finally {
+      tableLock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public Stream<Account> streamAccounts() {
+    return table.streamAccounts(LedgerAccount::new);
+  }
+
+  @Override
+  public long countAccounts() {
+    return size;
+  }
+
+  @Override
+  public void clearAccounts() {
+    StampedLock tableLock = table.getTableLock();
+    long stamp = tableLock.writeLock();
+    try {
+      table.clear();
+      size = 0;
+      recoveredBalances = false;
+      header.putInt(HEADER_SIZE_FIELD, 0).putInt(HEADER_KEY_CHUNKS, 0).putInt(HEADER_KEY_USED, 0);
+    } finally {
+      tableLock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public boolean hasRecoveredBalances() {
+    return recoveredBalances;
+  }
+
+  /**
+   * Checks both copies of every account, see the class comment.
+   *
+   * @return the number of damaged accounts
+   */
+  public long scan() {
+    long start = System.nanoTime();
+    StampedLock tableLock = table.getTableLock();
+    long stamp = tableLock.writeLock();
+    try {
+      int accounts = 0;
+      long droppedCopies = 0;
+      long damaged = 0;
+      for (int slot = 0; slot < table.getTableSize(); slot++) {
+        long key = table.keyRef(slot);
+        if (key == 0) {
+          continue;
+        }
+        accounts++;
+        ByteBuffer buffer = table.slotBuffer(slot);
+        int offset = table.slotOffset(slot);
+        boolean validA = isValid(buffer, offset, COPY_A, slot, key);
+        boolean validB = isValid(buffer, offset, COPY_B, slot, key);
+        boolean balanceA = validA && buffer.getLong(offset + COPY_A + SEQUENCE) > 0;
+        boolean balanceB = validB && buffer.getLong(offset + COPY_B + SEQUENCE) > 0;
+        if (!balanceA && !balanceB) {
+          writeCopy(buffer, offset, COPY_A, slot, key, DAMAGED, 0);
+          writeCopy(buffer, offset, COPY_B, slot, key, DAMAGED, 0);
+          damaged++;
+          log.error("Account {} is damaged in the ledger", table.readKey(key - 1));
+        } else if (!validA || !validB) {
+          // the copy being written when the process died, it must never look newer than the valid one
+          writeCopy(buffer, offset, validA ? COPY_B : COPY_A, slot, key, 0, 0);
+          droppedCopies++;
+        }
+      }
+      size = accounts;
+      header.putInt(HEADER_SIZE_FIELD, accounts);
+      log.info("Scanned {} accounts of the ledger in {} ms, dropped {} torn copies, {} accounts damaged", accounts,
+        (System.nanoTime() - start) / 1_000_000, droppedCopies, damaged);
+      return damaged;
+    } finally {
+      tableLock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Forces the ledger to disk and marks it closed, the next open then trusts its balances.
+   */
+  @PreDestroy
+  public void close() {
+    StampedLock tableLock = table.getTableLock();
+    long stamp = tableLock.writeLock();
+    try {
+      if (!ledgerChannel.isOpen()) {
+        return;
+      }
+      for (ByteBuffer chunk : table.getKeyChunks()) {
+        ((MappedByteBuffer) chunk).force();
+      }
+      for (MappedByteBuffer chunk : slots) {
+        chunk.force();
+      }
+      header.putInt(HEADER_STATE, CLOSED);
+      header.force();
+      ledgerChannel.close();
+      keysChannel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not close the ledger", e);
+    } finally {
+      tableLock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Must hold the table write lock. The key reference goes in last, it is what makes the slot taken, so a process
+   * dying before it leaves the slot empty.
+   */
+  private void occupy(int slot, String accountId, int hash, long balance) {
+    ByteBuffer buffer = table.slotBuffer(slot);
+    int offset = table.slotOffset(slot);
+    long key = table.storeKey(accountId) + 1;
+    // the header follows the key arena before the slot refers to the key
+    header.putInt(HEADER_KEY_CHUNKS, table.getKeyChunks().length).putInt(HEADER_KEY_USED, table.getKeyChunkUsed());
+    buffer.putInt(offset + HASH, hash);
+    writeCopy(buffer, offset, COPY_B, slot, key, 0, 0);
+    writeCopy(buffer, offset, COPY_A, slot, key, 1, balance);
+    buffer.putLong(offset + KEY, key);
+    size++;
+    header.putInt(HEADER_SIZE_FIELD, size);
+  }
+
+  /**
+   * Takes no lock: a copy is only written once it is the older one, balance first and sequence number last with
+   * release semantics, so the copy found latest holds a balance that was current at some point.
+   */
+  private long readBalance(int slot) {
+    return AccountSlotTable.getLongAcquire(table.slotBuffer(slot), table.slotOffset(slot) + intactCopy(slot) + BALANCE);
+  }
+
+  private void writeBalance(int slot, long balance) {
+    ReentrantLock lock = table.balanceLock(slot);
+    lock.lock();
+    try {
+      update(slot, balance);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean tryDebit(int slot, long amount) {
+    ReentrantLock lock = table.balanceLock(slot);
+    lock.lock();
+    try {
+      long balance = table.slotBuffer(slot).getLong(table.slotOffset(slot) + intactCopy(slot) + BALANCE);
+      if (balance < amount) {
+        return false;
+      }
+      update(slot, balance - amount);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void credit(int slot, String accountId, long amount) {
+    ReentrantLock lock = table.balanceLock(slot);
+    lock.lock();
+    try {
+      long balance = table.slotBuffer(slot).getLong(table.slotOffset(slot) + intactCopy(slot) + BALANCE);
+      if (balance > Long.MAX_VALUE - amount) {
+        throw new ArithmeticException("Balance of account " + accountId + " would overflow");
+      }
+      update(slot, balance + amount);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes the balance over the older copy. Must hold the balance lock of the slot.
+   */
+  private void update(int slot, long balance) {
+    ByteBuffer buffer = table.slotBuffer(slot);
+    int offset = table.slotOffset(slot);
+    int latest = latestCopy(buffer, offset);
+    long sequence = Math.max(buffer.getLong(offset + latest + SEQUENCE), 0) + 1;
+    writeCopy(buffer, offset, latest == COPY_A ? COPY_B : COPY_A, slot, buffer.getLong(offset + KEY), sequence,
+      balance);
+  }
+
+  /**
+   * The latest copy of the balance, unless the account is damaged.
+   */
+  private int intactCopy(int slot) {
+    ByteBuffer buffer = table.slotBuffer(slot);
+    int offset = table.slotOffset(slot);
+    int latest = latestCopy(buffer, offset);
+    if (buffer.getLong(offset + latest + SEQUENCE) == DAMAGED) {
+      throw new IllegalStateException("Account " + table.readKey(table.keyRef(slot) - 1)
+        + " is damaged in the ledger, its balance has to be restored");
+    }
+    return latest;
+  }
+
+  private static int latestCopy(ByteBuffer buffer, int offset) {
+    return AccountSlotTable.getLongAcquire(buffer, offset + COPY_B + SEQUENCE)
+      > AccountSlotTable.getLongAcquire(buffer, offset + COPY_A + SEQUENCE) ? COPY_B : COPY_A;
+  }
+
+  /**
+   * The sequence number goes in last, a copy only becomes the latest once the rest of it is written.
+   */
+  private static void writeCopy(ByteBuffer buffer, int offset, int copy, int slot, long key, long sequence,
+    long balance) {
+    buffer.putLong(offset + copy + BALANCE, balance);
+    buffer.putLong(offset + copy + CHECKSUM, checksum(slot, key, sequence, balance));
+    AccountSlotTable.setLongRelease(buffer, offset + copy + SEQUENCE, sequence);
+  }
+
+  private static boolean isValid(ByteBuffer buffer, int offset, int copy, int slot, long key) {
+    long sequence = buffer.getLong(offset + copy + SEQUENCE);
+    long balance = buffer.getLong(offset + copy + BALANCE);
+    return buffer.getLong(offset + copy + CHECKSUM) == checksum(slot, key, sequence, balance);
+  }
+
+  private static long checksum(int slot, long key, long sequence, long balance) {
+    long checksum = mix(0x9E3779B97F4A7C15L ^ slot);
+    checksum = mix(checksum ^ key);
+    checksum = mix(checksum ^ sequence);
+    return mix(checksum ^ balance);
+  }
+
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+    value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return value ^ (value >>> 33);
+  }
+
+  private MappedByteBuffer mapKeyChunk(int index) {
+    try {
+      return keysChannel.map(FileChannel.MapMode.READ_WRITE, (long) index * AccountSlotTable.KEY_CHUNK_SIZE,
+        AccountSlotTable.KEY_CHUNK_SIZE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not map the ledger keys", e);
+    }
+  }
+
+  /**
+   * An account whose balance lives in its ledger slot. Any number of them can exist for the same account, they all
+   * see the same balance.
+   */
+  private final class LedgerAccount extends Account {
+
+    private final int slot;
+
+    private LedgerAccount(String accountId, int slot) {
+      super(accountId);
+      this.slot = slot;
+      setHandle(slot);
+    }
+
+    @Override
+    public long getBalanceMinorUnits() {
+      return readBalance(slot);
+    }
+
+    @Override
+    public void setBalanceMinorUnits(long balanceMinorUnits) {
+      writeBalance(slot, balanceMinorUnits);
+    }
+
+    @Override
+    public boolean tryDebit(long amount) {
+      return MappedAccountsRepository.this.tryDebit(slot, amount);
+    }
+
+    @Override
+    public void credit(long amount) {
+      MappedAccountsRepository.this.credit(slot, getAccountId(), amount);
+    }
+  }
+}
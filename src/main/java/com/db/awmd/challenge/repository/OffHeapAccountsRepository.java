@@ -0,0 +1,246 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.persistence.WalRecord;
+import com.db.awmd.challenge.persistence.WriteAheadLog;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Accounts kept off the heap, for when there are too many of them for an object each. It is an
+ * {@link AccountSlotTable} in direct buffers: every account is a fixed 24 byte slot holding its balance, a reference
+ * to its id and the hash of the id. The slot is the account's handle, so the accounts handed out carry it without
+ * looking anything up.
+ * <p>
+ * {@link #getAccount} hands out a small {@link Account} whose balance lives in the slot, so nothing but the table
+ * stays on the heap.
+ * <p>
+ * The table doesn't grow, {@code accounts.offheap.capacity} has to cover every account. Selected with the
+ * {@code offheap} profile.
+ */
+@Repository
+@Profile("offheap")
+public class OffHeapAccountsRepository implements AccountsRepository {
+
+  private static final int SLOT_SIZE = 24;
+
+  private static final int BALANCE = 0;
+
+  private static final int KEY = 8;
+
+  private static final int HASH = 16;
+
+  private final WriteAheadLog writeAheadLog;
+
+  private final int capacity;
+
+  private final BalanceVersions balanceVersions;
+
+  private final AccountSlotTable table;
+
+  private volatile int size;
+
+  @Autowired
+  public OffHeapAccountsRepository(WriteAheadLog writeAheadLog, BalanceVersions balanceVersions,
+    @Value("${accounts.offheap.capacity:1048576}") int capacity) {
+    ByteBuffer[] slots = new ByteBuffer[AccountSlotTable.tableSize(capacity) >>> AccountSlotTable.SLOT_CHUNK_SHIFT];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = ByteBuffer.allocateDirect((AccountSlotTable.SLOT_CHUNK_MASK + 1) * SLOT_SIZE);
+    }
+    this.writeAheadLog = writeAheadLog;
+    this.balanceVersions = balanceVersions;
+    this.capacity = capacity;
+    this.table = new AccountSlotTable(slots, SLOT_SIZE, KEY, HASH, new ByteBuffer[0], 0,
+      index -> ByteBuffer.allocateDirect(AccountSlotTable.KEY_CHUNK_SIZE));
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    String accountId = account.getAccountId();
+    AccountSlotTable.checkKey(accountId);
+    long lsn;
+    StampedLock tableLock = table.getTableLock();
+    long stamp = tableLock.writeLock();
+    try {
+      int hash = AccountSlotTable.hash(accountId);
+      int slot = table.probe(accountId, hash);
+      if (table.keyRef(slot) != 0) {
+        throw new DuplicateAccountIdException("Account id " + accountId + " already exists!");
+      }
+      if (size >= capacity) {
+        throw new IllegalStateException("The account store is full at " + capacity + " accounts");
+      }
+      // logged under the table lock, so no transfer on this account can reach the log before its creation does
+      lsn = writeAheadLog.append(WalRecord.accountCreated(account));
+      occupy(slot, accountId, hash, account.getBalanceMinorUnits());
+    } finally {
+      tableLock.unlockWrite(stamp);
+    }
+    writeAheadLog.awaitDurable(lsn);
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    int slot = table.lookup(accountId);
+    return slot < 0 ? null : new SlotAccount(accountId, slot);
+  }
+
+  /**
+   * Both slots are found under a single optimistic read of the table.
+   */
+  @Override
+  public Account[] getAccounts(String accountIdFrom, String accountIdTo) {
+    long slots = table.lookup(accountIdFrom, accountIdTo);
+    int slotFrom = (int) (slots >> 32);
+    int slotTo = (int) slots;
+    return new Account[]{
+      slotFrom < 0 ? null : new SlotAccount(accountIdFrom, slotFrom),
+      slotTo < 0 ? null : new SlotAccount(accountIdTo, slotTo)};
+  }
+
+  @Override
+  public void restoreAccount(Account account) {
+    String accountId = account.getAccountId();
+    StampedLock tableLock = table.getTableLock();
+    long stamp = tableLock.writeLock();
+    try {
+      int hash = AccountSlotTable.hash(accountId);
+      int slot = table.probe(accountId, hash);
+      if (table.keyRef(slot) != 0) {
+        balanceVersions.beginWrite(slot);
+        try {
+          writeBalance(slot, account.getBalanceMinorUnits());
+        } finally {
+          balanceVersions.endWrite(slot);
+        }
+      } else {
+        occupy(slot, accountId, hash, account.getBalanceMinorUnits());
+      }
+    } finally {
+      tableLock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public Stream<Account> streamAccounts() {
+    return table.streamAccounts(SlotAccount::new);
+  }
+
+  @Override
+  public long countAccounts() {
+    return size;
+  }
+
+  @Override
+  public void clearAccounts() {
+    StampedLock tableLock = table.getTableLock();
+    long stamp = tableLock.writeLock();
+    try {
+      table.clear();
+      size = 0;
+    } finally {
+      tableLock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Must hold the table write lock. The key reference goes in last, it is what makes the slot taken.
+   */
+  private void occupy(int slot, String accountId, int hash, long balance) {
+    ByteBuffer buffer = table.slotBuffer(slot);
+    int offset = table.slotOffset(slot);
+    writeBalance(slot, balance);
+    buffer.putInt(offset + HASH, hash);
+    buffer.putLong(offset + KEY, table.storeKey(accountId) + 1);
+    size++;
+  }
+
+  /**
+   * Takes no lock, the balance is written with release semantics.
+   */
+  private long readBalance(int slot) {
+    return AccountSlotTable.getLongAcquire(table.slotBuffer(slot), table.slotOffset(slot) + BALANCE);
+  }
+
+  private void writeBalance(int slot, long balance) {
+    ReentrantLock lock = table.balanceLock(slot);
+    lock.lock();
+    try {
+      AccountSlotTable.setLongRelease(table.slotBuffer(slot), table.slotOffset(slot) + BALANCE, balance);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean tryDebit(int slot, long amount) {
+    ReentrantLock lock = table.balanceLock(slot);
+    lock.lock();
+    try {
+      long balance = table.slotBuffer(slot).getLong(table.slotOffset(slot) + BALANCE);
+      if (balance < amount) {
+        return false;
+      }
+      AccountSlotTable.setLongRelease(table.slotBuffer(slot), table.slotOffset(slot) + BALANCE, balance - amount);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void credit(int slot, String accountId, long amount) {
+    ReentrantLock lock = table.balanceLock(slot);
+    lock.lock();
+    try {
+      long balance = table.slotBuffer(slot).getLong(table.slotOffset(slot) + BALANCE);
+      if (balance > Long.MAX_VALUE - amount) {
+        throw new ArithmeticException("Balance of account " + accountId + " would overflow");
+      }
+      AccountSlotTable.setLongRelease(table.slotBuffer(slot), table.slotOffset(slot) + BALANCE, balance + amount);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * An account whose balance lives in its slot. Any number of them can exist for the same account, they all see
+   * the same balance.
+   */
+  private final class SlotAccount extends Account {
+
+    private final int slot;
+
+    private SlotAccount(String accountId, int slot) {
+      super(accountId);
+      this.slot = slot;
+      setHandle(slot);
+    }
+
+    @Override
+    public long getBalanceMinorUnits() {
+      return readBalance(slot);
+    }
+
+    @Override
+    public void setBalanceMinorUnits(long balanceMinorUnits) {
+      writeBalance(slot, balanceMinorUnits);
+    }
+
+    @Override
+    public boolean tryDebit(long amount) {
+      return OffHeapAccountsRepository.this.tryDebit(slot, amount);
+    }
+
+    @Override
+    public void credit(long amount) {
+      OffHeapAccountsRepository.this.credit(slot, getAccountId(), amount);
+    }
+  }
+}
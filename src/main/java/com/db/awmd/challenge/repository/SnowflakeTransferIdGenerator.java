@@ -0,0 +1,73 @@
+package com.db.awmd.challenge.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake style ids: 41 bits of milliseconds since {@link #EPOCH}, 10 bits of node id and a 12 bit sequence.
+ * If the sequence of a millisecond runs out, or the clock steps backwards, the generator carries on from the last
+ * id it handed out instead of waiting, so ids stay unique and increasing without ever blocking.
+ */
+@Component
+public class SnowflakeTransferIdGenerator implements TransferIdGenerator {
+
+    public static final long EPOCH = 1640995200000L;
+
+    public static final int MAX_NODE_ID = (1 << 10) - 1;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final int NODE_SHIFT = SEQUENCE_BITS;
+
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + 10;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+
+    private final LongSupplier clock;
+
+    /**
+     * Last issued timestamp and sequence, packed as {@code (millis - EPOCH) << SEQUENCE_BITS | sequence}.
+     */
+    private final AtomicLong lastTick = new AtomicLong();
+
+    @Autowired
+    public SnowflakeTransferIdGenerator(@Value("${transfer.id.node-id:0}") int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    public SnowflakeTransferIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    @Override
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+        while (true) {
+            long last = lastTick.get();
+            long next = Math.max(last + 1, now);
+            if (lastTick.compareAndSet(last, next)) {
+                return (next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT | nodeId << NODE_SHIFT | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Moves the last tick up to the one of the id, so the clock stepping back across a restart, or ids taken ahead of
+     * it before a crash, can't hand out an id again.
+     */
+    @Override
+    public void advancePast(long id) {
+        long tick = (id >>> TIMESTAMP_SHIFT) << SEQUENCE_BITS | (id & SEQUENCE_MASK);
+        lastTick.accumulateAndGet(tick, Math::max);
+    }
+}
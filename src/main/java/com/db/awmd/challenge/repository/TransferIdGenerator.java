@@ -0,0 +1,14 @@
+package com.db.awmd.challenge.repository;
+
+public interface TransferIdGenerator {
+
+    /**
+     * Returns an id that was never handed out before by this generator, greater than any id it returned earlier.
+     */
+    long nextId();
+
+    /**
+     * Makes every id returned from now on greater than the given one, an id handed out before a restart.
+     */
+    void advancePast(long id);
+}
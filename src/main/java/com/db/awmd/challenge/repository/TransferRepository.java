@@ -6,20 +6,108 @@ import com.db.awmd.challenge.domain.TransferState;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransferRepository {
 
     void createTransfer(Transfer transfer);
 
+    Transfer findById(long id);
+
     List<Transfer> findByState(TransferState state);
 
     /**
-     * This should be a query that updates the balances of the accounts and the transfer status in the same transaction
+     * One page of the transfers in the given state, in creation order, starting after the transfer with id afterId
+     */
+    List<Transfer> findByState(TransferState state, long afterId, int limit);
+
+    Stream<Transfer> streamByState(TransferState state);
+
+    long countByState(TransferState state);
+
+    /**
+     * Transfers held, on the heap and archived.
+     */
+    long countTransfers();
+
+    /**
+     * Moves the oldest completed and failed transfers off the heap until at most maxOnHeap transfers are left on it,
+     * stopping at the first one made after the given date. Archived transfers are still found by id and in the
+     * account history, but no longer by state.
+     *
+     * @return the number of transfers archived
+     */
+    int archive(long maxOnHeap, Date notAfter);
+
+    /**
+     * Up to limit transfers of the account, the latest first, from the position right before the given one in its
+     * history. Positions count the account's transfers from 0 in the order they were made. The account is the one
+     * the accounts repository handed out, it carries the handle its history is found by.
+     */
+    List<Transfer> findByAccount(Account account, long before, int limit);
+
+    /**
+     * Number of transfers the account took part in, the position right after its latest one.
+     */
+    long countByAccount(Account account);
+
+    /**
+     * This should be a query that updates the balances of the accounts and the transfer status in the same transaction.
+     * The completion is logged before the balances change, but not waited for: callers holding the account locks
+     * release them first and then wait with {@link #awaitDurable}.
+     *
+     * @return the log sequence number of the completion
+     */
+    long executeTransfer(Transfer transfer) throws SQLIntegrityConstraintViolationException;
+
+    /**
+     * Waits until the log record with the given sequence number is durable.
      */
-    void executeTransfer(Transfer transfer) throws SQLIntegrityConstraintViolationException;
+    void awaitDurable(long lsn);
+
+    /**
+     * First step of a transfer executed without locks. Takes the amount from the account from, if it has the funds, and
+     * marks the transfer as debited, see {@link #debited}.
+     */
+    void executeDebit(Transfer transfer) throws SQLIntegrityConstraintViolationException;
+
+    /**
+     * The balance half of {@link #executeDebit}, for engines that record the debit on another thread: takes the
+     * amount from the account from, if it has the funds, without marking or logging the transfer.
+     */
+    void debit(Transfer transfer) throws SQLIntegrityConstraintViolationException;
+
+    /**
+     * Marks a transfer whose amount has just been taken from the account from as debited, and logs it so a recovery
+     * that keeps the balances as they were stored only has the credit left to do.
+     */
+    void debited(Transfer transfer);
+
+    /**
+     * Second step of a transfer executed without locks. Adds the amount to the account to and completes the transfer.
+     * If the account to can't take it, the amount is given back to the account from.
+     */
+    void executeCredit(Transfer transfer) throws SQLIntegrityConstraintViolationException;
+
+    /**
+     * The balance half of {@link #executeCredit}, for engines that record the completion on another thread.
+     */
+    void credit(Transfer transfer) throws SQLIntegrityConstraintViolationException;
+
+    /**
+     * The recording half of {@link #executeCredit}: marks a credited transfer as completed and persists it.
+     */
+    void complete(Transfer transfer);
 
     void save(Transfer transfer);
 
+    /**
+     * Puts back a transfer rebuilt from persisted state, without logging it again. Transfers made afterwards never get
+     * its id.
+     */
+    void restoreTransfer(Transfer transfer);
+
     void clearTransfers();
 }
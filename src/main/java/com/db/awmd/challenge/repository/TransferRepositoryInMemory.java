@@ -1,54 +1,359 @@
 package com.db.awmd.challenge.repository;
 
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.domain.Money;
 import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.persistence.NoOpTransferArchive;
+import com.db.awmd.challenge.persistence.TransferArchive;
+import com.db.awmd.challenge.persistence.WalRecord;
+import com.db.awmd.challenge.persistence.WriteAheadLog;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import javax.validation.Valid;
+import jakarta.validation.Valid;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 public class TransferRepositoryInMemory implements TransferRepository {
 
-    private final Map<String, Transfer> transfers = new ConcurrentHashMap<>();
+    private static final TransferState[] STATES = TransferState.values();
+
+    private final Map<Long, Transfer> transfers = new ConcurrentHashMap<>();
+
+    /**
+     * Secondary index of transfer ids by state. Ids grow with time, so each set is also in creation order.
+     */
+    private final Map<TransferState, NavigableSet<Long>> idsByState = newStateIndex();
+
+    private final Map<TransferState, AtomicLong> countByState = newStateCounters();
+
+    private final AccountTransferIndex transfersByAccount = new AccountTransferIndex();
+
+    private final TransferIdGenerator transferIdGenerator;
+
+    private final WriteAheadLog writeAheadLog;
+
+    private final TransferArchive transferArchive;
+
+    private final BalanceVersions balanceVersions;
+
+    @Autowired
+    public TransferRepositoryInMemory(TransferIdGenerator transferIdGenerator, WriteAheadLog writeAheadLog,
+                                      TransferArchive transferArchive, BalanceVersions balanceVersions) {
+        this.transferIdGenerator = transferIdGenerator;
+        this.writeAheadLog = writeAheadLog;
+        this.transferArchive = transferArchive;
+        this.balanceVersions = balanceVersions;
+    }
+
+    /**
+     * Keeps every transfer on the heap.
+     */
+    public TransferRepositoryInMemory(TransferIdGenerator transferIdGenerator, WriteAheadLog writeAheadLog,
+                                      BalanceVersions balanceVersions) {
+        this(transferIdGenerator, writeAheadLog, new NoOpTransferArchive(), balanceVersions);
+    }
 
     @Override
     public void createTransfer(Transfer transfer) {
-        Date date = new Date();
-        transfer.setId(String.valueOf(date.getTime()));
-        transfer.setDate(date);
-        save(transfer);
+        transfer.setId(transferIdGenerator.nextId());
+        transfer.setDate(new Date());
+        long lsn = writeAheadLog.append(WalRecord.transferCreated(transfer));
+        store(transfer);
+        writeAheadLog.awaitDurable(lsn);
+    }
+
+    @Override
+    public Transfer findById(long id) {
+        Transfer transfer = transfers.get(id);
+        return transfer != null ? transfer : transferArchive.findById(id);
     }
 
     @Override
     public List<Transfer> findByState(TransferState state) {
-        return transfers.values().stream().filter(transfer -> transfer.getState() == state).collect(Collectors.toList());
+        return streamByState(state).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Transfer> findByState(TransferState state, long afterId, int limit) {
+        return streamByState(state, afterId).limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Transfer> streamByState(TransferState state) {
+        return streamByState(state, Long.MIN_VALUE);
+    }
+
+    @Override
+    public long countByState(TransferState state) {
+        return countByState.get(state).get();
+    }
+
+    @Override
+    public List<Transfer> findByAccount(Account account, long before, int limit) {
+        long[] ids = transfersByAccount.before(account.getHandle(), before, limit);
+        List<Transfer> page = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Transfer transfer = findById(id);
+            if (transfer != null) {
+                page.add(transfer);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public long countByAccount(Account account) {
+        return transfersByAccount.size(account.getHandle());
+    }
+
+    @Override
+    public long countTransfers() {
+        return transfers.size() + transferArchive.size();
+    }
+
+    @Override
+    public int archive(long maxOnHeap, Date notAfter) {
+        int excess = (int) Math.min(Integer.MAX_VALUE, transfers.size() - maxOnHeap);
+        if (excess <= 0) {
+            return 0;
+        }
+        int archived = 0;
+        for (long id : oldestFinished(excess)) {
+            Transfer transfer = transfers.get(id);
+            if (transfer == null || !isFinished(transfer.getState())) {
+                continue;
+            }
+            if (transfer.getDate().after(notAfter)) {
+                break;
+            }
+            // archived before it leaves the map, so a lookup finds it in one or the other all along
+            transferArchive.append(transfer);
+            transfers.compute(id, (key, previous) -> {
+                if (previous != null && idsByState.get(previous.getState()).remove(key)) {
+                    countByState.get(previous.getState()).decrementAndGet();
+                }
+                return null;
+            });
+            archived++;
+        }
+        return archived;
     }
 
     @Override
     @Valid
-    public void executeTransfer(Transfer transfer) throws SQLIntegrityConstraintViolationException {
-        if (transfer.getAccountFrom().getBalance().compareTo(transfer.getAmount()) < 0) {
+    public long executeTransfer(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        Account accountFrom = transfer.getAccountFrom();
+        Account accountTo = transfer.getAccountTo();
+        long amount = transfer.getAmountMinorUnits();
+        if (accountFrom.getBalanceMinorUnits() < amount) {
             throw new SQLIntegrityConstraintViolationException();
         }
-        transfer.getAccountFrom().setBalance(transfer.getAccountFrom().getBalance().subtract(transfer.getAmount()));
-        transfer.getAccountTo().setBalance(transfer.getAccountTo().getBalance().add(transfer.getAmount()));
+        // both computed before either is stored, so an overflow leaves the balances untouched
+        long balanceFrom = Money.subtract(accountFrom.getBalanceMinorUnits(), amount);
+        long balanceTo = Money.add(accountTo.getBalanceMinorUnits(), amount);
+        // logged before the balances change, a failed append leaves them as they were
+        long lsn = writeAheadLog.append(WalRecord.transferCompleted(transfer));
+        int handleFrom = accountFrom.getHandle();
+        int handleTo = accountTo.getHandle();
+        balanceVersions.beginWrite(handleFrom, handleTo);
+        try {
+            accountFrom.setBalanceMinorUnits(balanceFrom);
+            accountTo.setBalanceMinorUnits(balanceTo);
+        } finally {
+            balanceVersions.endWrite(handleFrom, handleTo);
+        }
         transfer.setState(TransferState.COMPLETED);
+        store(transfer);
+        return lsn;
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+        writeAheadLog.awaitDurable(lsn);
+    }
+
+    @Override
+    public void executeDebit(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        debit(transfer);
+        try {
+            debited(transfer);
+        } catch (RuntimeException e) {
+            // a debit the log doesn't know about would be lost by a recovery that trusts the balances
+            credit(transfer.getAccountFrom(), transfer.getAmountMinorUnits());
+            transfer.setState(TransferState.PENDING);
+            throw e;
+        }
+    }
+
+    @Override
+    public void debit(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        Account accountFrom = transfer.getAccountFrom();
+        boolean debited;
+        balanceVersions.beginWrite(accountFrom.getHandle());
+        try {
+            debited = accountFrom.tryDebit(transfer.getAmountMinorUnits());
+        } finally {
+            balanceVersions.endWrite(accountFrom.getHandle());
+        }
+        if (!debited) {
+            throw new SQLIntegrityConstraintViolationException();
+        }
+    }
+
+    @Override
+    public void debited(Transfer transfer) {
+        transfer.setState(TransferState.DEBITED);
+        // not waited for: balances are only trusted after a clean shutdown, which flushes the log first
+        writeAheadLog.append(WalRecord.transferState(transfer));
+        store(transfer);
+    }
+
+    @Override
+    public void executeCredit(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        credit(transfer);
+        complete(transfer);
+    }
+
+    @Override
+    public void credit(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        try {
+            credit(transfer.getAccountTo(), transfer.getAmountMinorUnits());
+        } catch (ArithmeticException e) {
+            credit(transfer.getAccountFrom(), transfer.getAmountMinorUnits());
+            throw new SQLIntegrityConstraintViolationException(e.getMessage());
+        }
+    }
+
+    private void credit(Account account, long amount) {
+        balanceVersions.beginWrite(account.getHandle());
+        try {
+            account.credit(amount);
+        } finally {
+            balanceVersions.endWrite(account.getHandle());
+        }
+    }
+
+    @Override
+    public void complete(Transfer transfer) {
+        transfer.setState(TransferState.COMPLETED);
+        long lsn = writeAheadLog.append(WalRecord.transferCompleted(transfer));
+        store(transfer);
+        writeAheadLog.awaitDurable(lsn);
     }
 
     @Override
     public void save(Transfer transfer) {
-        transfers.put(transfer.getId(), transfer);
+        long lsn = writeAheadLog.append(WalRecord.transferState(transfer));
+        store(transfer);
+        writeAheadLog.awaitDurable(lsn);
+    }
+
+    /**
+     * The id generator is moved past the transfer's id, so no transfer made after recovery can take it over.
+     */
+    @Override
+    public void restoreTransfer(Transfer transfer) {
+        transferIdGenerator.advancePast(transfer.getId());
+        store(transfer);
     }
 
     @Override
     public void clearTransfers() {
         transfers.clear();
+        transfersByAccount.clear();
+        transferArchive.clear();
+        for (TransferState state : STATES) {
+            idsByState.get(state).clear();
+            countByState.get(state).set(0);
+        }
+    }
+
+    private void store(Transfer transfer) {
+        // compute() serializes concurrent saves of the same transfer, so its index entry always follows its last state
+        transfers.compute(transfer.getId(), (id, previous) -> {
+            if (previous == null) {
+                transfersByAccount.add(transfer.getAccountFrom().getHandle(), id);
+                transfersByAccount.add(transfer.getAccountTo().getHandle(), id);
+            }
+            updateStateIndex(id, transfer.getState());
+            return transfer;
+        });
+    }
+
+    /**
+     * Up to limit ids of completed and failed transfers, the oldest first.
+     */
+    private List<Long> oldestFinished(int limit) {
+        Iterator<Long> completed = idsByState.get(TransferState.COMPLETED).iterator();
+        Iterator<Long> failed = idsByState.get(TransferState.FAILED).iterator();
+        List<Long> ids = new ArrayList<>(limit);
+        Long nextCompleted = completed.hasNext() ? completed.next() : null;
+        Long nextFailed = failed.hasNext() ? failed.next() : null;
+        while (ids.size() < limit && (nextCompleted != null || nextFailed != null)) {
+            if (nextFailed == null || (nextCompleted != null && nextCompleted < nextFailed)) {
+                ids.add(nextCompleted);
+                nextCompleted = completed.hasNext() ? completed.next() : null;
+            } else {
+                ids.add(nextFailed);
+                nextFailed = failed.hasNext() ? failed.next() : null;
+            }
+        }
+        return ids;
+    }
+
+    private static boolean isFinished(TransferState state) {
+        return state == TransferState.COMPLETED || state == TransferState.FAILED;
+    }
+
+    private Stream<Transfer> streamByState(TransferState state, long afterId) {
+        // an id can briefly sit in two sets while its state moves, so the transfer's own state has the final say
+        return idsByState.get(state).tailSet(afterId, false).stream()
+                .map(transfers::get)
+                .filter(Objects::nonNull)
+                .filter(transfer -> transfer.getState() == state);
+    }
+
+    private void updateStateIndex(long id, TransferState state) {
+        if (idsByState.get(state).add(id)) {
+            countByState.get(state).incrementAndGet();
+        }
+        for (TransferState other : STATES) {
+            if (other != state && idsByState.get(other).remove(id)) {
+                countByState.get(other).decrementAndGet();
+            }
+        }
+    }
+
+    private static Map<TransferState, NavigableSet<Long>> newStateIndex() {
+        Map<TransferState, NavigableSet<Long>> index = new EnumMap<>(TransferState.class);
+        for (TransferState state : STATES) {
+            index.put(state, new ConcurrentSkipListSet<>());
+        }
+        return index;
+    }
+
+    private static Map<TransferState, AtomicLong> newStateCounters() {
+        Map<TransferState, AtomicLong> counters = new EnumMap<>(TransferState.class);
+        for (TransferState state : STATES) {
+            counters.put(state, new AtomicLong());
+        }
+        return counters;
     }
 
 }
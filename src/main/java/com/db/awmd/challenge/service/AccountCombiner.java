@@ -0,0 +1,170 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Flat combining of balance updates on hot accounts. Each debit or credit is queued on the lock stripe of its
+ * account, and whichever thread gets the stripe lock applies everything queued on it, so a burst of updates on a
+ * hot account costs one lock acquisition instead of one per transfer. The other threads find their update done
+ * without ever taking the lock.
+ * <p>
+ * Updates are applied in queue order and each debit is checked against the balance left by the updates before it,
+ * so every transfer still succeeds or fails on its own. Consecutive updates of the same account are folded into a
+ * single balance write.
+ */
+@Component
+public class AccountCombiner {
+
+    private static final int SPINS_BEFORE_LOCKING = 64;
+
+    private static final int MAX_COMBINED = 256;
+
+    private static final int PENDING = 0;
+
+    private static final int APPLIED = 1;
+
+    private static final int INSUFFICIENT_FUNDS = 2;
+
+    private static final int OVERFLOW = 3;
+
+    private final AccountLockManager accountLockManager;
+
+    private final BalanceVersions balanceVersions;
+
+    private final Queue<Update>[] queues;
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public AccountCombiner(AccountLockManager accountLockManager, BalanceVersions balanceVersions) {
+        this.accountLockManager = accountLockManager;
+        this.balanceVersions = balanceVersions;
+        this.queues = new Queue[accountLockManager.getStripeCount()];
+        for (int i = 0; i < queues.length; i++) {
+            this.queues[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Takes the amount off the balance unless that would make it negative.
+     *
+     * @return false if the account doesn't have the funds
+     */
+    public boolean debit(Account account, long amount) {
+        return apply(account, -amount) == APPLIED;
+    }
+
+    /**
+     * @throws ArithmeticException if the balance would overflow, in which case it is left as it was
+     */
+    public void credit(Account account, long amount) {
+        if (apply(account, amount) == OVERFLOW) {
+            throw new ArithmeticException("Balance of account " + account.getAccountId() + " would overflow");
+        }
+    }
+
+    private int apply(Account account, long amount) {
+        Update update = new Update(account, amount);
+        int handle = account.getHandle();
+        Queue<Update> queue = queues[accountLockManager.stripeOf(handle)];
+        queue.offer(update);
+
+        for (int spins = 0; update.result == PENDING; spins++) {
+            boolean locked;
+            if (spins < SPINS_BEFORE_LOCKING) {
+                locked = accountLockManager.tryLock(handle);
+            } else {
+                accountLockManager.lock(handle);
+                locked = true;
+            }
+            if (!locked) {
+                Thread.yield();
+                continue;
+            }
+            try {
+                while (update.result == PENDING) {
+                    combine(queue);
+                }
+            } finally {
+                accountLockManager.unlock(handle);
+            }
+        }
+        return update.result;
+    }
+
+    /**
+     * Applies up to MAX_COMBINED queued updates. Must be called holding the stripe lock.
+     */
+    private void combine(Queue<Update> queue) {
+        Update first = null;
+        Update last = null;
+        Account current = null;
+        long balance = 0;
+        for (int combined = 0; combined < MAX_COMBINED; combined++) {
+            Update update = queue.poll();
+            if (update == null) {
+                break;
+            }
+            if (update.account != current) {
+                if (current != null) {
+                    writeBalance(current, balance);
+                }
+                current = update.account;
+                balance = current.getBalanceMinorUnits();
+            }
+            if (update.amount < 0 && balance < -update.amount) {
+                update.outcome = INSUFFICIENT_FUNDS;
+            } else if (update.amount > 0 && balance > Long.MAX_VALUE - update.amount) {
+                update.outcome = OVERFLOW;
+            } else {
+                balance += update.amount;
+                update.outcome = APPLIED;
+            }
+            if (first == null) {
+                first = update;
+            } else {
+                last.next = update;
+            }
+            last = update;
+        }
+        if (current != null) {
+            writeBalance(current, balance);
+        }
+        // results are published once the balances are written, a thread seeing its update done sees the new balance
+        for (Update update = first; update != null; update = update.next) {
+            update.result = update.outcome;
+        }
+    }
+
+    private void writeBalance(Account account, long balance) {
+        balanceVersions.beginWrite(account.getHandle());
+        try {
+            account.setBalanceMinorUnits(balance);
+        } finally {
+            balanceVersions.endWrite(account.getHandle());
+        }
+    }
+
+    private static final class Update {
+
+        private final Account account;
+
+        private final long amount;
+
+        private int outcome;
+
+        private Update next;
+
+        private volatile int result = PENDING;
+
+        private Update(Account account, long amount) {
+            this.account = account;
+            this.amount = amount;
+        }
+    }
+}
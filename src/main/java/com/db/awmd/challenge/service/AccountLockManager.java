@@ -0,0 +1,145 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.metrics.TransferMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Guards account balances with a fixed table of striped locks. Both accounts of a transfer are always locked in
+ * ascending stripe order, so transfers can't deadlock and there is no lock every transfer has to go through.
+ * Accounts are given by their {@link com.db.awmd.challenge.domain.Account#getHandle() handle} and an account's
+ * stripe is its handle modulo the stripe count, so no id is hashed. Handles are dense or slots of a hash table, so
+ * accounts spread evenly over the stripes.
+ * <p>
+ * It also spots hot accounts: every time a stripe is found already locked it counts as contention on that stripe,
+ * and the counts are halved every window. An account is hot while its stripe's count is over the threshold. The time
+ * spent waiting for a taken lock goes to the lock wait timer.
+ */
+@Component
+public class AccountLockManager {
+
+    private final ReentrantLock[] stripes;
+
+    private final int mask;
+
+    private final AtomicIntegerArray contention;
+
+    private final int hotThreshold;
+
+    private final long windowNanos;
+
+    private final AtomicLong nextDecay;
+
+    private final TransferMetrics transferMetrics;
+
+    @Autowired
+    public AccountLockManager(TransferMetrics transferMetrics,
+                              @Value("${transfer.lock-stripes:1024}") int stripeCount,
+                              @Value("${transfer.hot-accounts.threshold:0}") int hotThreshold,
+                              @Value("${transfer.hot-accounts.window-ms:100}") long windowMillis) {
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.contention = new AtomicIntegerArray(size);
+        this.hotThreshold = hotThreshold > 0 ? hotThreshold : Integer.MAX_VALUE;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.nextDecay = new AtomicLong(System.nanoTime() + windowNanos);
+        this.transferMetrics = transferMetrics;
+    }
+
+    /**
+     * Without metrics.
+     */
+    public AccountLockManager(int stripeCount, int hotThreshold, long windowMillis) {
+        this(TransferMetrics.disabled(), stripeCount, hotThreshold, windowMillis);
+    }
+
+    /**
+     * Without hot account detection nor metrics.
+     */
+    public AccountLockManager(int stripeCount) {
+        this(stripeCount, 0, 100);
+    }
+
+    public void lock(int handle1, int handle2) {
+        int stripe1 = stripeOf(handle1);
+        int stripe2 = stripeOf(handle2);
+        lockStripe(Math.min(stripe1, stripe2));
+        if (stripe1 != stripe2) {
+            lockStripe(Math.max(stripe1, stripe2));
+        }
+    }
+
+    public void unlock(int handle1, int handle2) {
+        int stripe1 = stripeOf(handle1);
+        int stripe2 = stripeOf(handle2);
+        if (stripe1 != stripe2) {
+            stripes[Math.max(stripe1, stripe2)].unlock();
+        }
+        stripes[Math.min(stripe1, stripe2)].unlock();
+    }
+
+    /**
+     * Locks the stripe of a single account. The caller must not hold any other stripe.
+     */
+    public void lock(int handle) {
+        lockStripe(stripeOf(handle));
+    }
+
+    /**
+     * Failed attempts count as contention, like a lock that has to wait.
+     */
+    public boolean tryLock(int handle) {
+        int stripe = stripeOf(handle);
+        if (stripes[stripe].tryLock()) {
+            return true;
+        }
+        contention.incrementAndGet(stripe);
+        return false;
+    }
+
+    public void unlock(int handle) {
+        stripes[stripeOf(handle)].unlock();
+    }
+
+    public boolean isHot(int handle) {
+        long now = System.nanoTime();
+        long decayAt = nextDecay.get();
+        if (now - decayAt >= 0 && nextDecay.compareAndSet(decayAt, now + windowNanos)) {
+            for (int i = 0; i < contention.length(); i++) {
+                contention.set(i, contention.get(i) >> 1);
+            }
+        }
+        return contention.get(stripeOf(handle)) >= hotThreshold;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public int stripeOf(int handle) {
+        return handle & mask;
+    }
+
+    private void lockStripe(int stripe) {
+        ReentrantLock lock = stripes[stripe];
+        if (!lock.tryLock()) {
+            contention.incrementAndGet(stripe);
+            long start = System.nanoTime();
+            lock.lock();
+            transferMetrics.recordLockWait(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.db.awmd.challenge.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks that each touch two accounts on a shared executor. A task only starts once every task submitted
+ * before it on either of its accounts has finished, so tasks on disjoint accounts run in parallel while each
+ * account still sees its tasks in submission order. Tasks must be submitted from a single thread.
+ */
+public class AccountOrderedExecutor {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final Executor executor;
+
+    private final Map<String, CompletableFuture<Void>> lastTaskByAccount = new HashMap<>();
+
+    private final int maxTrackedAccounts;
+
+    public AccountOrderedExecutor(Executor executor) {
+        this(executor, Integer.MAX_VALUE);
+    }
+
+    /**
+     * For an unbounded run of tasks: once more accounts than that are tracked, the accounts whose last task has
+     * finished are forgotten, so the executor only holds on to the accounts of tasks still running.
+     */
+    public AccountOrderedExecutor(Executor executor, int maxTrackedAccounts) {
+        this.executor = executor;
+        this.maxTrackedAccounts = maxTrackedAccounts;
+    }
+
+    public <T> CompletableFuture<T> submit(String accountId1, String accountId2, Supplier<T> task) {
+        CompletableFuture<Void> previous1 = lastTaskByAccount.getOrDefault(accountId1, DONE);
+        CompletableFuture<Void> previous2 = lastTaskByAccount.getOrDefault(accountId2, DONE);
+
+        CompletableFuture<T> result = CompletableFuture.allOf(previous1, previous2).thenApplyAsync(ignored -> task.get(), executor);
+
+        // the next task on these accounts waits for this one whether it succeeds or fails
+        CompletableFuture<Void> finished = result.handle((value, error) -> null);
+        lastTaskByAccount.put(accountId1, finished);
+        lastTaskByAccount.put(accountId2, finished);
+        if (lastTaskByAccount.size() > maxTrackedAccounts) {
+            lastTaskByAccount.values().removeIf(CompletableFuture::isDone);
+        }
+        return result;
+    }
+}
@@ -1,6 +1,9 @@
 package com.db.awmd.challenge.service;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.dto.AccountSnapshotDto;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
 import com.db.awmd.challenge.repository.AccountsRepository;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -8,14 +11,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 @AllArgsConstructor
 public class AccountsService {
 
+  public static final int MAX_SNAPSHOT_ACCOUNTS = 500;
+
   @Getter
   private final AccountsRepository accountsRepository;
 
+  private final BalanceVersions balanceVersions;
+
   public void createAccount(Account account) {
     this.accountsRepository.createAccount(account);
   }
@@ -24,4 +33,50 @@ public class AccountsService {
     return this.accountsRepository.getAccount(accountId);
   }
 
+  public Account[] getAccounts(String accountIdFrom, String accountIdTo) {
+    return this.accountsRepository.getAccounts(accountIdFrom, accountIdTo);
+  }
+
+  /**
+   * The account as it is now, read without taking any lock a transfer could be waiting on.
+   *
+   * @return null if there is no such account
+   */
+  public AccountSnapshotDto getSnapshot(String accountId) {
+    Account account = this.accountsRepository.getAccount(accountId);
+    if (account == null) {
+      return null;
+    }
+    return snapshot(account, balanceVersions.readBalance(account));
+  }
+
+  /**
+   * The accounts, in the order of their ids, as they all were at one point in time: a transfer between two of them
+   * is either in both balances or in neither.
+   *
+   * @throws AccountNotFoundException for the first id without an account
+   */
+  public List<AccountSnapshotDto> getSnapshots(List<String> accountIds) {
+    Account[] accounts = new Account[accountIds.size()];
+    for (int i = 0; i < accounts.length; i++) {
+      accounts[i] = this.accountsRepository.getAccount(accountIds.get(i));
+      if (accounts[i] == null) {
+        throw new AccountNotFoundException(accountIds.get(i));
+      }
+    }
+    long[] balances = balanceVersions.readBalances(accounts);
+    List<AccountSnapshotDto> snapshots = new ArrayList<>(accounts.length);
+    for (int i = 0; i < accounts.length; i++) {
+      snapshots.add(snapshot(accounts[i], balances[i]));
+    }
+    return snapshots;
+  }
+
+  private static AccountSnapshotDto snapshot(Account account, long balanceMinorUnits) {
+    return AccountSnapshotDto.builder()
+      .accountId(account.getAccountId())
+      .balanceMinorUnits(balanceMinorUnits)
+      .build();
+  }
+
 }
@@ -0,0 +1,208 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.metrics.TransferMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Takes notifications off the transfer path. They are put on a bounded ring buffer and handed to the sink by a pool
+ * of dispatcher threads, which coalesce the messages for the same account in a batch into a single notification.
+ * When the buffer stays full the caller delivers its own notification, which slows producers down to the pace of
+ * the sink instead of dropping messages.
+ */
+@Slf4j
+@Primary
+@Service
+public class AsyncNotificationService implements NotificationService {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final NotificationService sink;
+
+    private final BlockingQueue<Notification> queue;
+
+    private final int batchSize;
+
+    private final long offerTimeoutMillis;
+
+    private final ExecutorService dispatchers;
+
+    private final TransferMetrics transferMetrics;
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public AsyncNotificationService(@Qualifier("emailNotificationService") NotificationService sink,
+                                    TransferMetrics transferMetrics,
+                                    @Value("${notification.queue-capacity:65536}") int queueCapacity,
+                                    @Value("${notification.dispatchers:2}") int dispatcherCount,
+                                    @Value("${notification.batch-size:256}") int batchSize,
+                                    @Value("${notification.offer-timeout-ms:50}") long offerTimeoutMillis) {
+        this.sink = sink;
+        this.transferMetrics = transferMetrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.dispatchers = Executors.newFixedThreadPool(dispatcherCount, dispatcherThreadFactory());
+        for (int i = 0; i < dispatcherCount; i++) {
+            this.dispatchers.execute(this::dispatchLoop);
+        }
+    }
+
+    /**
+     * Without metrics.
+     */
+    public AsyncNotificationService(NotificationService sink, int queueCapacity, int dispatcherCount, int batchSize,
+                                    long offerTimeoutMillis) {
+        this(sink, TransferMetrics.disabled(), queueCapacity, dispatcherCount, batchSize, offerTimeoutMillis);
+    }
+
+    @Override
+    public void notifyAboutTransfer(Account account, String transferDescription) {
+        notifyAboutTransfer(account, () -> transferDescription);
+    }
+
+    /**
+     * The description is built by the dispatcher delivering it, not by the caller. A notification queued while the
+     * service shuts down may come after the last drain of the queue, so once shut down the caller takes it back and
+     * delivers it itself; whoever takes a notification off the queue delivers it, so it goes out exactly once.
+     */
+    @Override
+    public void notifyAboutTransfer(Account account, Supplier<String> transferDescription) {
+        Notification notification = new Notification(account, transferDescription);
+        if (!running) {
+            deliver(notification);
+            return;
+        }
+        try {
+            if (!queue.offer(notification, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Notification queue is full, delivering notification to {} on the caller thread",
+                        account.getAccountId());
+                deliver(notification);
+            } else if (!running && queue.remove(notification)) {
+                deliver(notification);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deliver(notification);
+        }
+    }
+
+    public int getQueuedNotifications() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting notifications and waits for the dispatchers to drain what is still queued. Notifications made
+     * from then on are delivered on the caller's thread.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        dispatchers.shutdown();
+        if (!dispatchers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Notification dispatchers did not finish in time, delivering {} notifications on shutdown",
+                    queue.size());
+            dispatchers.shutdownNow();
+        }
+        List<Notification> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        deliverBatch(remaining);
+    }
+
+    private void dispatchLoop() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Notification first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                deliverBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliverBatch(List<Notification> batch) {
+        Map<String, List<Notification>> byAccount = new LinkedHashMap<>();
+        for (Notification notification : batch) {
+            byAccount.computeIfAbsent(notification.account.getAccountId(), accountId -> new ArrayList<>(1))
+                    .add(notification);
+        }
+        for (List<Notification> notifications : byAccount.values()) {
+            deliver(notifications.get(0).account, () -> describe(notifications));
+        }
+    }
+
+    private void deliver(Notification notification) {
+        deliver(notification.account, notification.description);
+    }
+
+    private void deliver(Account account, Supplier<String> description) {
+        long start = System.nanoTime();
+        try {
+            sink.notifyAboutTransfer(account, description);
+        } catch (RuntimeException e) {
+            log.error("Could not notify the owner of {}", account.getAccountId(), e);
+        }
+        transferMetrics.recordNotificationDelivery(System.nanoTime() - start);
+    }
+
+    /**
+     * The descriptions of the notifications to one account coalesced, a line each.
+     */
+    private static String describe(List<Notification> notifications) {
+        if (notifications.size() == 1) {
+            return notifications.get(0).description.get();
+        }
+        StringJoiner description = new StringJoiner(System.lineSeparator());
+        for (Notification notification : notifications) {
+            description.add(notification.description.get());
+        }
+        return description.toString();
+    }
+
+    private static ThreadFactory dispatcherThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> new Thread(runnable, "notification-dispatcher-" + counter.incrementAndGet());
+    }
+
+    private static final class Notification {
+
+        private final Account account;
+
+        private final Supplier<String> description;
+
+        private Notification(Account account, Supplier<String> description) {
+            this.account = account;
+            this.description = description;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.dto.TransferResultDto;
+import com.db.awmd.challenge.exception.TransferRejectedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Outcomes of the transfers created with an idempotency key, so a client retrying one gets the first outcome back
+ * instead of a second transfer. Outcomes expire after a time to live and the cache holds a bounded number of them.
+ * <p>
+ * It is split into lock stripes by key, each a W-TinyLFU cache of its own: new keys go into a small LRU window, and
+ * a key falling out of the window only makes it into the main segmented LRU if a frequency sketch has seen it more
+ * often than the key it would evict. Keys looked up once, the bulk of them, then go without pushing out the ones
+ * clients keep retrying.
+ * <p>
+ * A retry arriving while the first attempt still runs waits for its outcome rather than running it again. Attempts
+ * in flight are kept apart from the cache, so eviction never lets a second attempt in.
+ */
+@Component
+public class IdempotencyCache {
+
+    private final Stripe[] stripes;
+
+    private final int mask;
+
+    private final long timeToLiveNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final Map<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public IdempotencyCache(@Value("${transfer.idempotency.max-size:1000000}") int maxSize,
+                            @Value("${transfer.idempotency.ttl-ms:86400000}") long timeToLiveMillis,
+                            @Value("${transfer.idempotency.stripes:64}") int stripeCount) {
+        this(maxSize, timeToLiveMillis, stripeCount, System::nanoTime);
+    }
+
+    /**
+     * With the given clock, in nanoseconds.
+     */
+    public IdempotencyCache(int maxSize, long timeToLiveMillis, int stripeCount, LongSupplier nanoClock) {
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe(Math.max(1, maxSize / size), evictions);
+        }
+        this.mask = size - 1;
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Runs the transfer the first time the key is seen and returns its outcome, then returns that same outcome for
+     * the key until it expires.
+     *
+     * @throws TransferRejectedException if the key was used for a different transfer
+     */
+    public TransferResultDto execute(String key, TransferDto request, Supplier<TransferResultDto> transfer) {
+        Stripe stripe = stripes[stripeOf(key)];
+        Outcome cached = stripe.get(key, nanoClock.getAsLong(), true);
+        if (cached != null) {
+            hits.increment();
+            return replay(key, cached, request);
+        }
+
+        CompletableFuture<Outcome> attempt = new CompletableFuture<>();
+        CompletableFuture<Outcome> running = inFlight.putIfAbsent(key, attempt);
+        if (running != null) {
+            hits.increment();
+            return replay(key, await(running), request);
+        }
+        try {
+            // the first attempt may have finished between the lookup and now, it is cached before it leaves inFlight;
+            // the key was counted by the lookup already, so the sketch isn't told again
+            long now = nanoClock.getAsLong();
+            cached = stripe.get(key, now, false);
+            if (cached != null) {
+                hits.increment();
+                attempt.complete(cached);
+                return replay(key, cached, request);
+            }
+            misses.increment();
+            Outcome outcome = new Outcome(request, transfer.get(), now + timeToLiveNanos);
+            stripe.put(key, outcome, now);
+            attempt.complete(outcome);
+            return outcome.result;
+        } catch (RuntimeException e) {
+            attempt.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, attempt);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Share of the lookups answered from the cache, 0 before the first one.
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    private int stripeOf(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static TransferResultDto replay(String key, Outcome outcome, TransferDto request) {
+        TransferDto original = outcome.request;
+        if (!Objects.equals(original.getAccountFrom(), request.getAccountFrom())
+                || !Objects.equals(original.getAccountTo(), request.getAccountTo())
+                || !sameAmount(original.getAmount(), request.getAmount())) {
+            throw new TransferRejectedException("Idempotency key " + key + " was already used for another transfer.");
+        }
+        return outcome.result;
+    }
+
+    private static boolean sameAmount(BigDecimal amount, BigDecimal other) {
+        return amount == null ? other == null : other != null && amount.compareTo(other) == 0;
+    }
+
+    /**
+     * Fails like the first attempt did when it threw.
+     */
+    private static Outcome await(CompletableFuture<Outcome> attempt) {
+        try {
+            return attempt.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Outcome {
+
+        private final TransferDto request;
+
+        private final TransferResultDto result;
+
+        private final long expiresAt;
+
+        private Outcome(TransferDto request, TransferResultDto result, long expiresAt) {
+            this.request = request;
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * A W-TinyLFU cache guarded by its own monitor. The window takes 1% of the capacity and the rest is a segmented
+     * LRU, where a key read again on probation moves to the protected segment, 80% of it.
+     */
+    private static final class Stripe {
+
+        private final LinkedHashMap<String, Outcome> window = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final LinkedHashMap<String, Outcome> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final LinkedHashMap<String, Outcome> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final int windowCapacity;
+
+        private final int mainCapacity;
+
+        private final int protectedCapacity;
+
+        private final FrequencySketch sketch;
+
+        private final LongAdder evictions;
+
+        private Stripe(int capacity, LongAdder evictions) {
+            this.windowCapacity = Math.max(1, capacity / 100);
+            this.mainCapacity = Math.max(1, capacity - windowCapacity);
+            this.protectedCapacity = (int) (mainCapacity * 0.8);
+            this.sketch = new FrequencySketch(capacity);
+            this.evictions = evictions;
+        }
+
+        /**
+         * @param recordAccess whether the sketch counts this lookup, false when the same request looks again
+         */
+        private synchronized Outcome get(String key, long now, boolean recordAccess) {
+            if (recordAccess) {
+                sketch.increment(key.hashCode());
+            }
+            Outcome outcome = window.get(key);
+            if (outcome == null) {
+                outcome = protectedSegment.get(key);
+            }
+            if (outcome == null) {
+                outcome = probation.remove(key);
+                if (outcome != null) {
+                    protectedSegment.put(key, outcome);
+                    if (protectedSegment.size() > protectedCapacity) {
+                        Map.Entry<String, Outcome> demoted = eldest(protectedSegment);
+                        protectedSegment.remove(demoted.getKey());
+                        probation.put(demoted.getKey(), demoted.getValue());
+                    }
+                }
+            }
+            if (outcome != null && outcome.isExpired(now)) {
+                window.remove(key);
+                protectedSegment.remove(key);
+                probation.remove(key);
+                return null;
+            }
+            return outcome;
+        }
+
+        private synchronized void put(String key, Outcome outcome, long now) {
+            window.put(key, outcome);
+            if (window.size() <= windowCapacity) {
+                return;
+            }
+            Map.Entry<String, Outcome> candidate = eldest(window);
+            window.remove(candidate.getKey());
+            if (probation.size() + protectedSegment.size() < mainCapacity) {
+                probation.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+            LinkedHashMap<String, Outcome> victims = probation.isEmpty() ? protectedSegment : probation;
+            Map.Entry<String, Outcome> victim = eldest(victims);
+            if (victim.getValue().isExpired(now)
+                    || sketch.frequency(candidate.getKey().hashCode()) > sketch.frequency(victim.getKey().hashCode())) {
+                victims.remove(victim.getKey());
+                probation.put(candidate.getKey(), candidate.getValue());
+            }
+            evictions.increment();
+        }
+
+        private synchronized int size() {
+            return window.size() + probation.size() + protectedSegment.size();
+        }
+
+        private synchronized void clear() {
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+        }
+
+        private static Map.Entry<String, Outcome> eldest(LinkedHashMap<String, Outcome> segment) {
+            Iterator<Map.Entry<String, Outcome>> entries = segment.entrySet().iterator();
+            return entries.next();
+        }
+    }
+
+    /**
+     * Count-min sketch of how often keys were seen lately, four rows of counters saturating at 15. Every counter is
+     * halved once there have been ten times as many increments as the cache holds, so old popularity fades.
+     */
+    private static final class FrequencySketch {
+
+        private static final int[] SEEDS = {0x97CB3127, 0xB5A4A2D1, 0x5A7E6E39, 0xC2B2AE35};
+
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] rows = new byte[SEEDS.length][];
+
+        private final int mask;
+
+        private final int sampleSize;
+
+        private int additions;
+
+        private FrequencySketch(int capacity) {
+            int width = 16;
+            while (width < capacity) {
+                width <<= 1;
+            }
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = new byte[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(capacity, 16);
+        }
+
+        private void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < rows.length; row++) {
+                int index = indexOf(hash, row);
+                if (rows[row][index] < MAX_COUNT) {
+                    rows[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (byte[] counters : rows) {
+                    for (int i = 0; i < counters.length; i++) {
+                        counters[i] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        private int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < rows.length; row++) {
+                frequency = Math.min(frequency, rows[row][indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.repository.TransferRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * Takes no locks. The debit is a compare-and-set loop on the balance of the account from, which fails as soon as
+ * the funds aren't there, and the credit is an atomic add on the account to. In between the transfer is
+ * {@link com.db.awmd.challenge.domain.TransferState#DEBITED}, so a reader that sees the money missing from one
+ * account can tell it is on its way to the other.
+ */
+@Component
+@AllArgsConstructor
+@ConditionalOnProperty(name = "transfer.engine", havingValue = "lock-free")
+public class LockFreeTransferEngine implements TransferEngine {
+
+    private final TransferRepository transferRepository;
+
+    @Override
+    public void execute(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        transferRepository.executeDebit(transfer);
+        transferRepository.executeCredit(transfer);
+    }
+
+    @Override
+    public void resume(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        transferRepository.executeCredit(transfer);
+    }
+}
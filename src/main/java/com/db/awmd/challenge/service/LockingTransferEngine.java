@@ -0,0 +1,76 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.repository.TransferRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * Holds the locks of both accounts for the whole transfer. Transfers touching a hot account instead debit and credit
+ * through the {@link AccountCombiner}, one account at a time, with the transfer
+ * {@link TransferState#DEBITED} in between.
+ */
+@Component
+@AllArgsConstructor
+@ConditionalOnProperty(name = "transfer.engine", havingValue = "locking", matchIfMissing = true)
+public class LockingTransferEngine implements TransferEngine {
+
+    private final TransferRepository transferRepository;
+
+    private final AccountLockManager accountLockManager;
+
+    private final AccountCombiner accountCombiner;
+
+    @Override
+    public void execute(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        int accountFrom = transfer.getAccountFrom().getHandle();
+        int accountTo = transfer.getAccountTo().getHandle();
+        if (accountLockManager.isHot(accountFrom) || accountLockManager.isHot(accountTo)) {
+            executeCombined(transfer);
+            return;
+        }
+
+        long lsn;
+        accountLockManager.lock(accountFrom, accountTo);
+        try {
+            lsn = transferRepository.executeTransfer(transfer);
+        } finally {
+            accountLockManager.unlock(accountFrom, accountTo);
+        }
+        // the next transfers on these accounts are logged after this one, so they never outlive it in a crash
+        transferRepository.awaitDurable(lsn);
+    }
+
+    private void executeCombined(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        Account accountFrom = transfer.getAccountFrom();
+        long amount = transfer.getAmountMinorUnits();
+        if (!accountCombiner.debit(accountFrom, amount)) {
+            throw new SQLIntegrityConstraintViolationException();
+        }
+        try {
+            transferRepository.debited(transfer);
+        } catch (RuntimeException e) {
+            accountCombiner.credit(accountFrom, amount);
+            transfer.setState(TransferState.PENDING);
+            throw e;
+        }
+        resume(transfer);
+    }
+
+    @Override
+    public void resume(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        long amount = transfer.getAmountMinorUnits();
+        try {
+            accountCombiner.credit(transfer.getAccountTo(), amount);
+        } catch (ArithmeticException e) {
+            accountCombiner.credit(transfer.getAccountFrom(), amount);
+            throw new SQLIntegrityConstraintViolationException(e.getMessage());
+        }
+        transferRepository.complete(transfer);
+    }
+}
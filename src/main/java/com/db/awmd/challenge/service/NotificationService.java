@@ -2,7 +2,16 @@ package com.db.awmd.challenge.service;
 
 import com.db.awmd.challenge.domain.Account;
 
+import java.util.function.Supplier;
+
 public interface NotificationService {
 
   void notifyAboutTransfer(Account account, String transferDescription);
+
+  /**
+   * With the description built only once it is delivered, so it can be formatted off the transfer path.
+   */
+  default void notifyAboutTransfer(Account account, Supplier<String> transferDescription) {
+    notifyAboutTransfer(account, transferDescription.get());
+  }
 }
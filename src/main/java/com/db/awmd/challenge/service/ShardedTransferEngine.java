@@ -0,0 +1,309 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.repository.TransferRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Partitions the accounts by handle over a fixed number of shards, each run by a single thread that is the only one to
+ * change the balances of its accounts. Shards take commands from a lock free queue, so no thread ever waits on a
+ * monitor.
+ * <p>
+ * A transfer is sent to the shard of the account from, which debits it when the funds are there and passes a credit
+ * on to the shard of the account to. The shards only move balances: the caller logs the debit as soon as the shard
+ * reports it, while the credit runs, and records the completion once the credit is done, so the shards never wait
+ * on the write-ahead log.
+ * <p>
+ * A shard queues at most {@code transfer.shard-queue-capacity} transfers of callers, past that a caller waits for
+ * room. Credits passed on between shards don't count, so two shards passing each other credits never both wait. A
+ * transfer caught in a queue by a shutdown is failed if nothing happened to it yet, and credited by whoever finds it
+ * if it was already debited.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.engine", havingValue = "sharded")
+public class ShardedTransferEngine implements TransferEngine {
+
+    /**
+     * Empty polls before a shard parks, enough to catch the next command of a busy caller without a wake up.
+     */
+    private static final int SPINS_BEFORE_PARKING = 1_000;
+
+    private final TransferRepository transferRepository;
+
+    private final Shard[] shards;
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public ShardedTransferEngine(TransferRepository transferRepository,
+                                 @Value("${transfer.shards:0}") int shardCount,
+                                 @Value("${transfer.shard-queue-capacity:1024}") int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("The shard queue capacity must be positive");
+        }
+        this.transferRepository = transferRepository;
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new Shard("transfer-shard-" + i, queueCapacity);
+        }
+    }
+
+    @Override
+    public void execute(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        if (!running) {
+            throw new IllegalStateException("The transfer engine is shut down");
+        }
+        Shard shardFrom = shardOf(transfer.getAccountFrom().getHandle());
+        Shard shardTo = shardOf(transfer.getAccountTo().getHandle());
+        CompletableFuture<Void> debited = new CompletableFuture<>();
+        CompletableFuture<Void> credited = new CompletableFuture<>();
+        shardFrom.admit(new Command(() -> debit(transfer, shardFrom, shardTo, debited, credited), debited, false));
+        await(debited);
+        try {
+            transferRepository.debited(transfer);
+        } catch (RuntimeException e) {
+            // the credit is under way already, the completion logged next is what a recovery goes by
+            log.warn("Could not log the debit of transfer {}", transfer.getId(), e);
+        }
+        complete(transfer, credited);
+    }
+
+    @Override
+    public void resume(Transfer transfer) throws SQLIntegrityConstraintViolationException {
+        if (!running) {
+            throw new IllegalStateException("The transfer engine is shut down");
+        }
+        CompletableFuture<Void> credited = new CompletableFuture<>();
+        shardOf(transfer.getAccountTo().getHandle())
+                .admit(new Command(() -> credit(transfer, credited), credited, true));
+        complete(transfer, credited);
+    }
+
+    /**
+     * Stops the shards once they have run every command already queued, then deals with whatever a shard that didn't
+     * stop in time left behind.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            shard.thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        for (Shard shard : shards) {
+            shard.drain();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    private void complete(Transfer transfer, CompletableFuture<Void> credited)
+            throws SQLIntegrityConstraintViolationException {
+        await(credited);
+        transferRepository.complete(transfer);
+    }
+
+    private static void await(CompletableFuture<Void> step) throws SQLIntegrityConstraintViolationException {
+        try {
+            step.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLIntegrityConstraintViolationException) {
+                throw (SQLIntegrityConstraintViolationException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void debit(Transfer transfer, Shard shardFrom, Shard shardTo, CompletableFuture<Void> debited,
+                       CompletableFuture<Void> credited) {
+        try {
+            transferRepository.debit(transfer);
+        } catch (SQLIntegrityConstraintViolationException | RuntimeException e) {
+            debited.completeExceptionally(e);
+            return;
+        }
+        debited.complete(null);
+        if (shardTo == shardFrom) {
+            credit(transfer, credited);
+        } else {
+            shardTo.forward(new Command(() -> credit(transfer, credited), credited, true));
+        }
+    }
+
+    private void credit(Transfer transfer, CompletableFuture<Void> credited) {
+        try {
+            // on overflow the amount goes back to the account from with an atomic add, which the owning shard's
+            // compare-and-set debits tolerate
+            transferRepository.credit(transfer);
+            credited.complete(null);
+        } catch (SQLIntegrityConstraintViolationException | RuntimeException e) {
+            credited.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Handles are dense, so consecutive accounts go round the shards. An account no repository handed out has
+     * {@link com.db.awmd.challenge.domain.Account#NO_HANDLE}, and still gets a shard.
+     */
+    private Shard shardOf(int handle) {
+        return shards[Math.floorMod(handle, shards.length)];
+    }
+
+    /**
+     * A step of a transfer queued on a shard.
+     */
+    private static final class Command {
+
+        private final Runnable step;
+
+        /**
+         * What the caller waits on for this step, the debit or the credit.
+         */
+        private final CompletableFuture<Void> outcome;
+
+        /**
+         * Whether the account from was debited already, the step is then the credit and can't just be dropped.
+         */
+        private final boolean debited;
+
+        private boolean admitted;
+
+        private Command(Runnable step, CompletableFuture<Void> outcome, boolean debited) {
+            this.step = step;
+            this.outcome = outcome;
+            this.debited = debited;
+        }
+    }
+
+    private final class Shard implements Runnable {
+
+        private final Queue<Command> commands = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Room left in the queue for the commands of callers.
+         */
+        private final Semaphore room;
+
+        private final Thread thread;
+
+        private volatile boolean parked;
+
+        private Shard(String name, int queueCapacity) {
+            this.room = new Semaphore(queueCapacity);
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        /**
+         * Queues the command of a caller, waiting for room. Shards drain their queues until they stop, so the wait
+         * always ends.
+         */
+        private void admit(Command command) {
+            room.acquireUninterruptibly();
+            command.admitted = true;
+            submit(command);
+        }
+
+        /**
+         * Queues a credit passed on by another shard, without waiting.
+         */
+        private void forward(Command command) {
+            submit(command);
+        }
+
+        private void submit(Command command) {
+            commands.offer(command);
+            if (!running) {
+                // the shard may have stopped before the command got in: whoever takes it out deals with it, this
+                // thread, the shard or the shutdown
+                if (commands.remove(command)) {
+                    abandon(command);
+                }
+                return;
+            }
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        /**
+         * Takes out the commands left in the queue.
+         */
+        private void drain() {
+            for (Command command = commands.poll(); command != null; command = commands.poll()) {
+                abandon(command);
+            }
+        }
+
+        /**
+         * Fails a command the shard will never run, or runs it on the current thread if it is a credit owed. Credits
+         * are atomic on the repository side, so one running off its shard is still safe.
+         */
+        private void abandon(Command command) {
+            if (command.admitted) {
+                room.release();
+            }
+            if (command.debited) {
+                run(command.step);
+            } else {
+                command.outcome.completeExceptionally(new IllegalStateException("The transfer engine is shut down"));
+            }
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running || !commands.isEmpty()) {
+                Command command = commands.poll();
+                if (command != null) {
+                    idle = 0;
+                    if (command.admitted) {
+                        room.release();
+                    }
+                    run(command.step);
+                } else if (++idle >= SPINS_BEFORE_PARKING) {
+                    // a producer offers before it reads parked, and we set parked before checking the queue again,
+                    // so one of us always sees the other
+                    parked = true;
+                    if (running && commands.isEmpty()) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                    idle = 0;
+                }
+            }
+        }
+
+        private void run(Runnable command) {
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                log.error("Transfer command failed on {}", thread.getName(), e);
+            }
+        }
+    }
+}
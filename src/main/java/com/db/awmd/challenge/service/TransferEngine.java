@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Transfer;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * Moves the money of a registered transfer between its accounts and completes it. The implementation is picked with
+ * {@code transfer.engine}.
+ */
+public interface TransferEngine {
+
+    /**
+     * @throws SQLIntegrityConstraintViolationException if the transfer can't be executed, in which case no balance
+     *                                                  has changed
+     */
+    void execute(Transfer transfer) throws SQLIntegrityConstraintViolationException;
+
+    /**
+     * Finishes a transfer recovered as {@link com.db.awmd.challenge.domain.TransferState#DEBITED}: credits the account
+     * to and completes it.
+     *
+     * @throws SQLIntegrityConstraintViolationException if the account to can't take the amount, in which case it is
+     *                                                  given back to the account from
+     */
+    void resume(Transfer transfer) throws SQLIntegrityConstraintViolationException;
+}
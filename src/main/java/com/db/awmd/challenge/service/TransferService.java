@@ -3,21 +3,34 @@ package com.db.awmd.challenge.service;
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.dto.TransferCommand;
 import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.dto.TransferPageDto;
+import com.db.awmd.challenge.dto.TransferResultDto;
+import com.db.awmd.challenge.dto.TransferSummaryDto;
 import com.db.awmd.challenge.exception.AccountNotFoundException;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 import com.db.awmd.challenge.exception.TransferRejectedException;
+import com.db.awmd.challenge.metrics.TransferMetrics;
 import com.db.awmd.challenge.repository.AccountsRepository;
 import com.db.awmd.challenge.repository.TransferRepository;
-import com.sun.javafx.binding.StringFormatter;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
@@ -33,63 +46,304 @@ public class TransferService {
     @Getter
     private final NotificationService notificationService;
 
-    private static final ReentrantLock ARBITRATOR = new ReentrantLock();
+    private final TransferEngine transferEngine;
+
+    private final ExecutorService transferExecutor;
+
+    private final TransferMetrics transferMetrics;
+
+    private final IdempotencyCache idempotencyCache;
+
+    private final Validator validator;
+
+    public static final int MAX_BATCH_SIZE = 50_000;
+
+    public static final int MAX_PAGE_SIZE = 500;
 
     public void createTransfer(TransferDto transferDto) {
+        transfer(transferDto);
+    }
 
-        if (transferDto.getAccountTo().equals(transferDto.getAccountFrom())) {
+    /**
+     * Like {@link #createTransfer(TransferDto)}, for a transfer read from the binary protocol. Its fields are checked
+     * when the command is wrapped around the record and validated by the controller like a TransferDto, and it is
+     * only read before this returns.
+     */
+    public void createTransfer(TransferCommand command) {
+        transfer(command.getAccountFrom(), command.getAccountTo(), command.getAmount());
+    }
+
+    /**
+     * Like {@link #createTransfer(TransferDto)}, but a retry with the same idempotency key gets the outcome of the
+     * first attempt back instead of moving the money again. Replays don't touch the accounts, and a retry arriving
+     * while the first attempt still runs waits for it.
+     *
+     * @throws TransferRejectedException if the key was already used for a different transfer
+     */
+    public TransferResultDto createTransfer(String idempotencyKey, TransferDto transferDto) {
+        return idempotencyCache.execute(idempotencyKey, transferDto, () -> {
+            try {
+                return transferResult(TransferResultDto.Status.CREATED, transfer(transferDto).getId(), null);
+            } catch (AccountNotFoundException e) {
+                return transferResult(TransferResultDto.Status.NOT_FOUND, null, e.getMessage());
+            } catch (DuplicateAccountIdException | TransferRejectedException e) {
+                return transferResult(TransferResultDto.Status.BAD_REQUEST, null, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Validates and registers every transfer of the batch up front, in order, and then executes them on the
+     * transfer executor. Transfers on disjoint accounts run in parallel, transfers sharing an account run in the
+     * order they were submitted. Each transfer succeeds or fails on its own, exactly like {@link #createTransfer}.
+     */
+    public List<TransferResultDto> createTransfers(List<TransferDto> transferDtos) {
+        if (transferDtos.size() > MAX_BATCH_SIZE) {
+            throw new TransferRejectedException("A batch cannot have more than " + MAX_BATCH_SIZE + " transfers.");
+        }
+
+        Map<String, Account> accounts = findAccounts(transferDtos);
+        AccountOrderedExecutor orderedExecutor = new AccountOrderedExecutor(transferExecutor);
+        List<CompletableFuture<TransferResultDto>> results = new ArrayList<>(transferDtos.size());
+
+        for (int index = 0; index < transferDtos.size(); index++) {
+            TransferDto transferDto = transferDtos.get(index);
+            TransferResultDto rejection = checkBatchItem(index, transferDto, accounts);
+            if (rejection != null) {
+                results.add(CompletableFuture.completedFuture(rejection));
+                continue;
+            }
+
+            Transfer transfer = registerTransfer(accounts.get(transferDto.getAccountFrom()),
+                    accounts.get(transferDto.getAccountTo()), transferDto.getAmount());
+            int itemIndex = index;
+            results.add(orderedExecutor.submit(transferDto.getAccountFrom(), transferDto.getAccountTo(),
+                    () -> executeBatchItem(itemIndex, transfer)));
+        }
+
+        return results.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    /**
+     * Opens a stream to submit an unbounded run of transfers to, for feeds too long to send as one batch. Each
+     * transfer is checked and executed exactly like in {@link #createTransfers}, and its result is queued for the
+     * stream's reader as soon as it is known, in completion order. Submitting blocks while the stream has
+     * maxPendingResults results not taken yet, or while the streams sharing the engine capacity have as many
+     * transfers executing as it has permits.
+     *
+     * @param engineCapacity permits for the transfers executing, shared by the streams feeding the same executor
+     */
+    public TransferStream openTransferStream(Semaphore engineCapacity, int maxPendingResults) {
+        return new TransferStream(this, transferExecutor, engineCapacity, maxPendingResults);
+    }
+
+    public void makeTransfer(Transfer transfer) {
+        long start = System.nanoTime();
+        try {
+            if (transfer.getState() == TransferState.DEBITED) {
+                transferEngine.resume(transfer);
+            } else {
+                transferEngine.execute(transfer);
+            }
+            transferMetrics.recordExecution(System.nanoTime() - start);
+            transferMetrics.transitioned(TransferState.COMPLETED);
+            log.info("Transfer with ID {} successful", transfer.getId());
+        } catch (Exception e) {
+            transferMetrics.recordExecution(System.nanoTime() - start);
+            failTransfer(transfer);
+            log.info("Transfer with ID {} NOT successful", transfer.getId());
+            throw new TransferRejectedException("Transfer cannot be processed.");
+        }
+
+        notificationService.notifyAboutTransfer(transfer.getAccountFrom(), () ->
+                "Sent transfer to " + transfer.getAccountTo().getAccountId() + " in the amount of " + transfer.getAmount());
+        notificationService.notifyAboutTransfer(transfer.getAccountTo(), () ->
+                "Received transfer from " + transfer.getAccountFrom().getAccountId() + " in the amount of " + transfer.getAmount());
+    }
+
+    /**
+     * A page of the account's transfers, the latest first. The first page is asked for without a cursor, the next
+     * ones with the cursor of the page before, so pages don't shift as new transfers come in.
+     */
+    public TransferPageDto findAccountTransfers(String accountId, Long before, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new TransferRejectedException("The page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        Account account = getAccount(accountId);
+
+        long start = before == null ? transferRepository.countByAccount(account) : Math.max(0, before);
+        List<TransferSummaryDto> transfers = transferRepository.findByAccount(account, start, limit).stream()
+                .map(TransferService::summary)
+                .collect(Collectors.toList());
+        long next = start - limit;
+        return TransferPageDto.builder()
+                .transfers(transfers)
+                .nextCursor(next > 0 ? next : null)
+                .build();
+    }
+
+    public List<Transfer> findPendingTransfers() {
+        return getTransferRepository().findByState(TransferState.PENDING);
+    }
+
+    public List<Transfer> findPendingTransfers(long afterId, int limit) {
+        return getTransferRepository().findByState(TransferState.PENDING, afterId, limit);
+    }
+
+    /**
+     * Transfers recovered halfway, with their amount taken from the account from but not yet added to the account to.
+     */
+    public List<Transfer> findDebitedTransfers() {
+        return getTransferRepository().findByState(TransferState.DEBITED);
+    }
+
+    public long countPendingTransfers() {
+        return getTransferRepository().countByState(TransferState.PENDING);
+    }
+
+    private Transfer transfer(TransferDto transferDto) {
+        return transfer(transferDto.getAccountFrom(), transferDto.getAccountTo(), transferDto.getAmount());
+    }
+
+    private Transfer transfer(String accountIdFrom, String accountIdTo, BigDecimal amount) {
+        if (accountIdTo.equals(accountIdFrom)) {
             throw new DuplicateAccountIdException("Cannot transfer to the same account");
         }
 
-        Account accountFrom = getAccount(transferDto.getAccountFrom());
-        Account accountTo = getAccount(transferDto.getAccountTo());
+        Account[] accounts = accountsService.getAccounts(accountIdFrom, accountIdTo);
+        if (accounts[0] == null) {
+            throw new AccountNotFoundException(accountIdFrom);
+        }
+        if (accounts[1] == null) {
+            throw new AccountNotFoundException(accountIdTo);
+        }
 
+        Transfer transfer = registerTransfer(accounts[0], accounts[1], amount);
+        makeTransfer(transfer);
+        return transfer;
+    }
+
+    Transfer registerTransfer(Account accountFrom, Account accountTo, BigDecimal amount) {
         Transfer transfer = Transfer.builder()
                 .accountFrom(accountFrom)
                 .accountTo(accountTo)
-                .amount(transferDto.getAmount())
+                .amount(amount)
                 .state(TransferState.PENDING)
                 .build();
 
         transferRepository.createTransfer(transfer);
+        transferMetrics.transitioned(TransferState.PENDING);
         log.info("Registered new transfer from {} to {} in the amount of {}, with the ID {}",
                 transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getAmount(), transfer.getId() );
-
-        makeTransfer(transfer);
+        return transfer;
     }
 
-    public void makeTransfer(Transfer transfer) {
-        TransferService.ARBITRATOR.lock();
-        synchronized (transfer.getAccountFrom()) {
-            synchronized (transfer.getAccountTo()) {
-                TransferService.ARBITRATOR.unlock();
-                try {
-                    transferRepository.executeTransfer(transfer);
-                    log.info("Transfer with ID {} successful", transfer.getId());
-                } catch (Exception e) {
-                    transfer.setState(TransferState.FAILED);
-                    transferRepository.save(transfer);
-                    log.info("Transfer with ID {} NOT successful", transfer.getId());
-                    throw new TransferRejectedException("Transfer cannot be processed.");
-                }
+    private Map<String, Account> findAccounts(List<TransferDto> transferDtos) {
+        Map<String, Account> accounts = new HashMap<>();
+        for (TransferDto transferDto : transferDtos) {
+            if (transferDto == null) {
+                continue;
             }
+            findAccount(accounts, transferDto.getAccountFrom());
+            findAccount(accounts, transferDto.getAccountTo());
         }
+        return accounts;
+    }
 
-        notificationService.notifyAboutTransfer(transfer.getAccountFrom(),
-                StringFormatter.format("Sent transfer to %s in the amount of %s", transfer.getAccountTo().getAccountId(), transfer.getAmount()).getValue());
-        notificationService.notifyAboutTransfer(transfer.getAccountTo(),
-                StringFormatter.format("Received transfer from %s in the amount of %s", transfer.getAccountFrom().getAccountId(), transfer.getAmount()).getValue());
+    private void findAccount(Map<String, Account> accounts, String accountId) {
+        if (accountId != null && !accounts.containsKey(accountId)) {
+            accounts.put(accountId, accountsService.getAccount(accountId));
+        }
+    }
 
+    private TransferResultDto checkBatchItem(int index, TransferDto transferDto, Map<String, Account> accounts) {
+        TransferResultDto rejection = validate(index, transferDto);
+        if (rejection != null) {
+            return rejection;
+        }
+        return checkAccounts(index, transferDto,
+                accounts.get(transferDto.getAccountFrom()), accounts.get(transferDto.getAccountTo()));
     }
 
-    public List<Transfer> findPendingTransfers() {
-        return getTransferRepository().findByState(TransferState.PENDING);
+    /**
+     * Checks the transfer's own fields, before its accounts are looked up. A null entry of a batch is a bad request
+     * of its own.
+     */
+    TransferResultDto validate(int index, TransferDto transferDto) {
+        if (transferDto == null) {
+            return batchResult(index, TransferResultDto.Status.BAD_REQUEST, null, "The entry is not a transfer.");
+        }
+        Set<ConstraintViolation<TransferDto>> violations = validator.validate(transferDto);
+        if (!violations.isEmpty()) {
+            return batchResult(index, TransferResultDto.Status.BAD_REQUEST, null, violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .collect(Collectors.joining(", ")));
+        }
+        if (transferDto.getAccountTo().equals(transferDto.getAccountFrom())) {
+            return batchResult(index, TransferResultDto.Status.BAD_REQUEST, null, "Cannot transfer to the same account");
+        }
+        return null;
+    }
+
+    TransferResultDto checkAccounts(int index, TransferDto transferDto, Account accountFrom, Account accountTo) {
+        if (accountFrom == null) {
+            return batchResult(index, TransferResultDto.Status.NOT_FOUND, null,
+                    "Account " + transferDto.getAccountFrom() + " doesn't exist.");
+        }
+        if (accountTo == null) {
+            return batchResult(index, TransferResultDto.Status.NOT_FOUND, null,
+                    "Account " + transferDto.getAccountTo() + " doesn't exist.");
+        }
+        return null;
+    }
+
+    void failTransfer(Transfer transfer) {
+        transfer.setState(TransferState.FAILED);
+        transferRepository.save(transfer);
+        transferMetrics.transitioned(TransferState.FAILED);
+    }
+
+    TransferResultDto executeBatchItem(int index, Transfer transfer) {
+        try {
+            makeTransfer(transfer);
+            return batchResult(index, TransferResultDto.Status.CREATED, transfer.getId(), null);
+        } catch (TransferRejectedException e) {
+            return batchResult(index, TransferResultDto.Status.BAD_REQUEST, transfer.getId(), e.getMessage());
+        }
+    }
+
+    private static TransferSummaryDto summary(Transfer transfer) {
+        return TransferSummaryDto.builder()
+                .id(transfer.getId())
+                .accountFrom(transfer.getAccountFrom().getAccountId())
+                .accountTo(transfer.getAccountTo().getAccountId())
+                .amount(transfer.getAmount())
+                .state(transfer.getState())
+                .date(transfer.getDate())
+                .build();
+    }
+
+    private static TransferResultDto transferResult(TransferResultDto.Status status, Long transferId, String message) {
+        return TransferResultDto.builder()
+                .status(status)
+                .transferId(transferId)
+                .message(message)
+                .build();
+    }
+
+    static TransferResultDto batchResult(int index, TransferResultDto.Status status, Long transferId, String message) {
+        return TransferResultDto.builder()
+                .index(index)
+                .status(status)
+                .transferId(transferId)
+                .message(message)
+                .build();
     }
 
     private Account getAccount(String accountId){
         Account account = accountsService.getAccount(accountId);
         if(account == null) {
-            throw new AccountNotFoundException(StringFormatter.format("Account %s doesn't exist.", accountId));
+            throw new AccountNotFoundException(accountId);
         }
         return account;
     }
@@ -0,0 +1,170 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.dto.TransferResultDto;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * An open run of transfers, see {@link TransferService#openTransferStream}. Transfers are numbered in the order they
+ * are submitted, and that number is the index of their result. Like in a batch, transfers sharing an account are
+ * executed in submission order and the others in parallel. Nothing is kept of a transfer once its result is taken,
+ * so a stream can run for as long as its feed does.
+ * <p>
+ * Results are queued as transfers complete and taken by a thread of the stream's own. Every result holds a slot of
+ * the stream from its submission until it is taken, so the queue never fills up and the transfer executor never
+ * waits on it: a reader that falls behind only holds back the submissions of its own stream.
+ * <p>
+ * Meant for a single submitting thread and a single taking thread.
+ */
+@Slf4j
+public class TransferStream implements AutoCloseable {
+
+    private static final TransferResultDto END = TransferResultDto.builder().build();
+
+    private final TransferService transferService;
+
+    private final AccountOrderedExecutor orderedExecutor;
+
+    private final Semaphore engineCapacity;
+
+    private final Semaphore resultSlots;
+
+    private final int maxPendingResults;
+
+    private final BlockingQueue<TransferResultDto> results;
+
+    private int nextIndex;
+
+    TransferStream(TransferService transferService, Executor transferExecutor, Semaphore engineCapacity,
+                   int maxPendingResults) {
+        this.transferService = transferService;
+        // every transfer in flight holds two accounts, past twice as many the finished ones can go
+        this.orderedExecutor = new AccountOrderedExecutor(transferExecutor, 4 * maxPendingResults);
+        this.engineCapacity = engineCapacity;
+        this.resultSlots = new Semaphore(maxPendingResults);
+        this.maxPendingResults = maxPendingResults;
+        // room for the end of the stream on top of every result
+        this.results = new ArrayBlockingQueue<>(maxPendingResults + 1);
+    }
+
+    /**
+     * Checks the transfer and starts it. Waits first for a result slot if maxPendingResults results haven't been
+     * taken yet, and then for the engine if the transfers of every open stream take up its capacity. A transfer
+     * rejected by the checks gets its result right away.
+     */
+    public void submit(TransferDto transferDto) throws InterruptedException {
+        int index = nextIndex++;
+        resultSlots.acquire();
+        TransferResultDto rejection = transferService.validate(index, transferDto);
+        if (rejection != null) {
+            results.add(rejection);
+            return;
+        }
+        Account[] accounts = transferService.getAccountsService()
+                .getAccounts(transferDto.getAccountFrom(), transferDto.getAccountTo());
+        rejection = transferService.checkAccounts(index, transferDto, accounts[0], accounts[1]);
+        if (rejection != null) {
+            results.add(rejection);
+            return;
+        }
+
+        Transfer transfer;
+        try {
+            engineCapacity.acquire();
+        } catch (InterruptedException e) {
+            resultSlots.release();
+            throw e;
+        }
+        try {
+            transfer = transferService.registerTransfer(accounts[0], accounts[1], transferDto.getAmount());
+        } catch (RuntimeException e) {
+            engineCapacity.release();
+            resultSlots.release();
+            throw e;
+        }
+        orderedExecutor.submit(transferDto.getAccountFrom(), transferDto.getAccountTo(),
+                () -> transferService.executeBatchItem(index, transfer))
+                .whenComplete((result, error) -> {
+                    engineCapacity.release();
+                    // never full while the stream is open, the result has a slot
+                    results.offer(result != null ? result : failed(index, transfer, error));
+                });
+    }
+
+    /**
+     * The result of a transfer whose execution didn't give one. A transfer the executor rejected, as it does once it
+     * is shut down, never ran: it is saved as failed so that recovery doesn't execute it after its client was told
+     * otherwise.
+     */
+    private TransferResultDto failed(int index, Transfer transfer, Throwable error) {
+        if (error.getCause() instanceof RejectedExecutionException) {
+            try {
+                transferService.failTransfer(transfer);
+            } catch (RuntimeException e) {
+                log.warn("Transfer with ID {} was rejected and could not be saved as failed", transfer.getId(), e);
+            }
+        }
+        return TransferService.batchResult(index, TransferResultDto.Status.BAD_REQUEST, transfer.getId(),
+                "Transfer cannot be processed.");
+    }
+
+    /**
+     * Takes up an index for an entry that couldn't be read as a transfer, and answers it with a bad request.
+     */
+    public void reject(String message) throws InterruptedException {
+        resultSlots.acquire();
+        results.add(TransferService.batchResult(nextIndex++, TransferResultDto.Status.BAD_REQUEST, null, message));
+    }
+
+    /**
+     * Takes the next result, waiting for one.
+     *
+     * @return null once the stream is closed and every result has been taken
+     */
+    public TransferResultDto take() throws InterruptedException {
+        TransferResultDto result = results.take();
+        if (result == END) {
+            // keeps answering null
+            results.add(END);
+            return null;
+        }
+        resultSlots.release();
+        return result;
+    }
+
+    /**
+     * Takes the next result if there is one already.
+     *
+     * @return null if there is none, or once the stream is closed and every result has been taken
+     */
+    public TransferResultDto poll() {
+        TransferResultDto result = results.peek();
+        if (result == null || result == END) {
+            return null;
+        }
+        results.poll();
+        resultSlots.release();
+        return result;
+    }
+
+    /**
+     * Waits for every transfer submitted to be done and its result taken, and then ends the results.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        try {
+            resultSlots.acquire(maxPendingResults);
+            resultSlots.release(maxPendingResults);
+        } finally {
+            results.offer(END);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.TransferRejectedException;
+import com.db.awmd.challenge.service.TransferService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * The transfers of an account, as a resource of their own next to the account.
+ */
+@RestController
+@RequestMapping("/v1/accounts/{accountId}/transfers")
+@Slf4j
+@AllArgsConstructor
+public class AccountTransfersController {
+
+  private static final String DEFAULT_PAGE_SIZE = "50";
+
+  private final TransferService transferService;
+
+  @GetMapping
+  public ResponseEntity<Object> getTransfers(@PathVariable String accountId,
+                                             @RequestParam(required = false) Long before,
+                                             @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+    log.info("Retrieving transfers of account {} before {}", accountId, before);
+    try {
+      return new ResponseEntity<>(transferService.findAccountTransfers(accountId, before, limit), HttpStatus.OK);
+    }
+    catch (AccountNotFoundException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+    catch (TransferRejectedException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+}
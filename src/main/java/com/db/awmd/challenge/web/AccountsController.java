@@ -1,9 +1,12 @@
 package com.db.awmd.challenge.web;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.dto.AccountSnapshotDto;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.BalanceReadException;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 import com.db.awmd.challenge.service.AccountsService;
-import javax.validation.Valid;
+import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -11,6 +14,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/v1/accounts")
 @Slf4j
@@ -23,7 +28,7 @@ public class AccountsController {
     this.accountsService = accountsService;
   }
 
-  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+  @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, BinaryMessageConverter.MEDIA_TYPE_VALUE})
   public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account) {
     log.info("Creating account {}", account);
 
@@ -36,10 +41,40 @@ public class AccountsController {
     return new ResponseEntity<>(HttpStatus.CREATED);
   }
 
+  /**
+   * A snapshot of the account rather than the live account, so a transfer going on while it is written out can't show
+   * in it. As JSON, or as a binary record to clients asking for {@link BinaryMessageConverter#MEDIA_TYPE_VALUE}.
+   */
   @GetMapping(path = "/{accountId}")
-  public Account getAccount(@PathVariable String accountId) {
+  public AccountSnapshotDto getAccount(@PathVariable String accountId) {
     log.info("Retrieving account for id {}", accountId);
-    return this.accountsService.getAccount(accountId);
+    return this.accountsService.getSnapshot(accountId);
+  }
+
+  /**
+   * Several accounts as they all were at one point in time, for a comma separated list of ids.
+   */
+  @GetMapping(params = "ids")
+  public ResponseEntity<Object> getAccounts(@RequestParam List<String> ids) {
+    log.info("Retrieving accounts for ids {}", ids);
+    if (ids.isEmpty() || ids.size() > AccountsService.MAX_SNAPSHOT_ACCOUNTS) {
+      return new ResponseEntity<>("Between 1 and " + AccountsService.MAX_SNAPSHOT_ACCOUNTS + " accounts can be read at once.",
+        HttpStatus.BAD_REQUEST);
+    }
+    try {
+      return new ResponseEntity<>(this.accountsService.getSnapshots(ids), HttpStatus.OK);
+    } catch (AccountNotFoundException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+  }
+
+  /**
+   * Balances that writes kept changing past the read timeout. Transfers were never held back for them, so the client
+   * is the one asked to come back.
+   */
+  @ExceptionHandler(BalanceReadException.class)
+  public ResponseEntity<Object> balancesBusy(BalanceReadException e) {
+    return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
   }
 
 }
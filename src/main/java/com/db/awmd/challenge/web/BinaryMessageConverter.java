@@ -0,0 +1,150 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.dto.AccountSnapshotDto;
+import com.db.awmd.challenge.dto.TransferCommand;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes the bodies of /v1/transfer and /v1/accounts in a compact binary protocol, next to JSON, for
+ * clients that would rather not pay for parsing it. A body is a single length prefixed record of fixed layout, big
+ * endian, with amounts in minor units and account ids as UTF-8 bytes, at most
+ * {@link TransferCommand#MAX_ACCOUNT_ID_BYTES} of them. A transfer is laid out as in {@link TransferCommand}, which
+ * reads it in place, an account as:
+ * <pre>
+ * int length | long balance in minor units | ushort id length | id bytes
+ * </pre>
+ */
+public class BinaryMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  public static final String MEDIA_TYPE_VALUE = "application/x-awmd-binary";
+
+  public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+  public static final int ACCOUNT_BALANCE = 4;
+
+  public static final int ACCOUNT_ID_LENGTH = 12;
+
+  public static final int ACCOUNT_ID = 14;
+
+  public static final int MAX_ACCOUNT_LENGTH = ACCOUNT_ID + TransferCommand.MAX_ACCOUNT_ID_BYTES;
+
+  public BinaryMessageConverter() {
+    super(MEDIA_TYPE);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return Account.class.isAssignableFrom(clazz) || TransferCommand.class == clazz || AccountSnapshotDto.class == clazz;
+  }
+
+  /**
+   * Reads the body into a buffer of its own size, which the transfer command is then read from in place.
+   * <p>
+   * The buffer and the command are allocated for each request, neither is pooled. The command is read by the handler
+   * after this returns and nothing tells the converter when it is done with it, and with requests served on virtual
+   * threads a thread local buffer would be a new one per request anyway. Both are a few hundred bytes at most and
+   * die young.
+   */
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+    int maxLength = clazz == TransferCommand.class ? TransferCommand.MAX_LENGTH : MAX_ACCOUNT_LENGTH;
+    long contentLength = inputMessage.getHeaders().getContentLength();
+    int expected = contentLength >= 0 && contentLength <= maxLength ? (int) contentLength : maxLength + 1;
+    ByteBuffer body = ByteBuffer.wrap(inputMessage.getBody().readNBytes(expected));
+    try {
+      Object record;
+      int end;
+      if (clazz == TransferCommand.class) {
+        TransferCommand command = new TransferCommand();
+        end = command.wrap(body, 0);
+        record = command;
+      } else {
+        record = decodeAccount(body, 0);
+        end = body.getInt(0);
+      }
+      if (end != body.limit()) {
+        throw new IllegalArgumentException("The body must be a single record.");
+      }
+      return record;
+    } catch (IllegalArgumentException e) {
+      throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+    }
+  }
+
+  @Override
+  protected void writeInternal(Object record, HttpOutputMessage outputMessage) throws IOException {
+    outputMessage.getBody().write(encode(record));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the record is malformed or runs past the limit of the buffer
+   */
+  public static Account decodeAccount(ByteBuffer buffer, int offset) {
+    if (buffer.limit() - offset < ACCOUNT_ID) {
+      throw new IllegalArgumentException("The account record is truncated.");
+    }
+    int idLength = Short.toUnsignedInt(buffer.getShort(offset + ACCOUNT_ID_LENGTH));
+    if (buffer.getInt(offset) != ACCOUNT_ID + idLength) {
+      throw new IllegalArgumentException("The account record length doesn't match its account id.");
+    }
+    if (buffer.limit() - offset < ACCOUNT_ID + idLength) {
+      throw new IllegalArgumentException("The account record is truncated.");
+    }
+    return Account.ofMinorUnits(TransferCommand.decodeId(buffer, offset + ACCOUNT_ID, idLength),
+      buffer.getLong(offset + ACCOUNT_BALANCE));
+  }
+
+  /**
+   * @return the offset right after the record
+   * @throws IllegalArgumentException if the account id is empty or too long
+   */
+  public static int encodeAccount(ByteBuffer buffer, int offset, Account account) {
+    return encodeAccount(buffer, offset, account.getAccountId(), account.getBalanceMinorUnits());
+  }
+
+  /**
+   * An account snapshot is written as the account record it was read from.
+   */
+  public static int encodeAccount(ByteBuffer buffer, int offset, AccountSnapshotDto snapshot) {
+    return encodeAccount(buffer, offset, snapshot.getAccountId(), snapshot.getBalanceMinorUnits());
+  }
+
+  private static int encodeAccount(ByteBuffer buffer, int offset, String accountId, long balanceMinorUnits) {
+    int idLength = TransferCommand.putId(buffer, offset + ACCOUNT_ID, accountId);
+    buffer.putInt(offset, ACCOUNT_ID + idLength);
+    buffer.putLong(offset + ACCOUNT_BALANCE, balanceMinorUnits);
+    buffer.putShort(offset + ACCOUNT_ID_LENGTH, (short) idLength);
+    return offset + ACCOUNT_ID + idLength;
+  }
+
+  /**
+   * A transfer command, an account or an account snapshot as a record of its own, written straight into an array of
+   * its exact size.
+   */
+  public static byte[] encode(Object record) {
+    if (record instanceof TransferCommand) {
+      TransferCommand command = (TransferCommand) record;
+      return TransferCommand.encode(command.getAccountFrom(), command.getAccountTo(), command.getAmountMinorUnits());
+    }
+    if (record instanceof AccountSnapshotDto) {
+      AccountSnapshotDto snapshot = (AccountSnapshotDto) record;
+      return encodeAccount(snapshot.getAccountId(), snapshot.getBalanceMinorUnits());
+    }
+    Account account = (Account) record;
+    return encodeAccount(account.getAccountId(), account.getBalanceMinorUnits());
+  }
+
+  private static byte[] encodeAccount(String accountId, long balanceMinorUnits) {
+    byte[] bytes = new byte[ACCOUNT_ID + TransferCommand.idLength(accountId)];
+    encodeAccount(ByteBuffer.wrap(bytes), 0, accountId, balanceMinorUnits);
+    return bytes;
+  }
+}
@@ -1,35 +1,211 @@
 package com.db.awmd.challenge.web;
 
-import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.dto.TransferCommand;
 import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.dto.TransferResultDto;
 import com.db.awmd.challenge.exception.AccountNotFoundException;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 import com.db.awmd.challenge.exception.TransferRejectedException;
 import com.db.awmd.challenge.service.AccountsService;
 import com.db.awmd.challenge.service.TransferService;
-import lombok.AllArgsConstructor;
+import com.db.awmd.challenge.service.TransferStream;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
-import javax.validation.Valid;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/v1/transfer")
 @Slf4j
-@AllArgsConstructor
 public class TransferController {
 
+  public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+  public static final String NDJSON = "application/x-ndjson";
+
+  private static final MediaType NDJSON_TYPE = MediaType.parseMediaType(NDJSON);
+
+  private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+  /**
+   * A servlet async timeout of 0 or less never expires.
+   */
+  private static final long NO_TIMEOUT = -1;
+
+  private static final int MAX_STREAM_WRITE = 64 * 1024;
+
   private final TransferService transferService;
 
+  private final ObjectMapper objectMapper;
+
+  private final Semaphore streamCapacity;
+
+  private final int streamMaxPendingResults;
+
+  private final Semaphore openStreams;
+
+  private final ExecutorService streamExecutor;
+
+  /**
+   * @param streamMaxInFlight transfers of every open stream executing at a time, as many as the transfer executor
+   *                          queues, so streams keep it busy without overflowing it
+   */
+  @Autowired
+  public TransferController(TransferService transferService, ObjectMapper objectMapper,
+    @Value("${transfer.stream.max-in-flight:10000}") int streamMaxInFlight,
+    @Value("${transfer.stream.max-pending-results:1024}") int streamMaxPendingResults,
+    @Value("${transfer.stream.max-open:64}") int streamMaxOpen,
+    @Qualifier("transferStreamExecutor") ExecutorService streamExecutor) {
+    this.transferService = transferService;
+    this.objectMapper = objectMapper;
+    this.streamCapacity = new Semaphore(streamMaxInFlight);
+    this.streamMaxPendingResults = streamMaxPendingResults;
+    this.openStreams = new Semaphore(streamMaxOpen);
+    this.streamExecutor = streamExecutor;
+  }
+
+  /**
+   * With an Idempotency-Key header, a retry with the same key answers what the first attempt did and doesn't make
+   * the transfer again.
+   */
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<Object> transfer(@RequestBody @Valid TransferDto transfer) {
+  public ResponseEntity<Object> transfer(@RequestBody @Valid TransferDto transfer,
+    @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
     log.info("Received request to create transfer from {} to {} in the amount of {}", transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getAmount() );
+    return createTransfer(idempotencyKey, () -> transfer, () -> transferService.createTransfer(transfer));
+  }
+
+  /**
+   * The same, with the transfer as a binary record. It reaches the service as the command read in place from the
+   * request body, a TransferDto is only made of it when an idempotency key needs one to compare retries with. It is
+   * validated against the same constraints as the JSON body.
+   */
+  @PostMapping(consumes = BinaryMessageConverter.MEDIA_TYPE_VALUE)
+  public ResponseEntity<Object> transferBinary(@RequestBody @Valid TransferCommand transfer,
+    @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+    log.info("Received request to create transfer from {} to {} in the amount of {} minor units", transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getAmountMinorUnits());
+    return createTransfer(idempotencyKey, transfer::toDto, () -> transferService.createTransfer(transfer));
+  }
+
+  @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> transferBatch(@RequestBody List<TransferDto> transfers) {
+    log.info("Received request to create a batch of {} transfers", transfers.size());
     try {
-      transferService.createTransfer(transfer);
+      return new ResponseEntity<>(transferService.createTransfers(transfers), HttpStatus.OK);
+    }
+    catch (TransferRejectedException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  /**
+   * Takes an unbounded feed of transfers as newline delimited JSON, one transfer a line, and writes back a line for
+   * each transfer as soon as it is done, carrying its index in the feed, blank lines aside. The feed is read and the
+   * results are written on threads of the stream's own, never on the transfer executor, so a slow client only slows
+   * its own stream down. Lines are only read as fast as the engine takes transfers and the client takes results, so
+   * a feed faster than either is held back by TCP rather than piling up in memory. The stream doesn't time out.
+   */
+  @PostMapping(path = "/stream", consumes = NDJSON, produces = NDJSON)
+  public ResponseEntity<Object> transferStream(HttpServletRequest request) {
+    if (!openStreams.tryAcquire()) {
+      return new ResponseEntity<>("Too many transfer streams are open.", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    log.info("Opening a transfer stream");
+    ResponseBodyEmitter emitter = new ResponseBodyEmitter(NO_TIMEOUT);
+    TransferStream stream = transferService.openTransferStream(streamCapacity, streamMaxPendingResults);
+    AtomicBoolean broken = new AtomicBoolean();
+    streamExecutor.execute(() -> writeResults(stream, emitter, broken));
+    streamExecutor.execute(() -> readFeed(request, stream, broken));
+    return ResponseEntity.ok().contentType(NDJSON_TYPE).body(emitter);
+  }
+
+  private void readFeed(HttpServletRequest request, TransferStream stream, AtomicBoolean broken) {
+    try (stream; BufferedReader lines = new BufferedReader(
+           new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while (!broken.get() && (line = lines.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        TransferDto transfer = readTransfer(line);
+        if (transfer == null) {
+          stream.reject("The line is not a transfer.");
+        } else {
+          stream.submit(transfer);
+        }
+      }
+    } catch (IOException e) {
+      // the client went away, the transfers already submitted complete all the same
+      broken.set(true);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Writes the results as they are taken from the stream. The results waiting when a write starts go out together in
+   * one flush, so results trickling in go out right away and results pouring in share a flush. Once the client is
+   * gone the results are still taken, for the feed to be let go of.
+   */
+  private void writeResults(TransferStream stream, ResponseBodyEmitter emitter, AtomicBoolean broken) {
+    ByteArrayOutputStream lines = new ByteArrayOutputStream();
+    try {
+      for (TransferResultDto result = stream.take(); result != null; result = stream.take()) {
+        if (broken.get()) {
+          continue;
+        }
+        try {
+          do {
+            lines.writeBytes(objectMapper.writeValueAsBytes(result));
+            lines.write('\n');
+            result = lines.size() < MAX_STREAM_WRITE ? stream.poll() : null;
+          } while (result != null);
+          emitter.send(lines.toByteArray(), NDJSON_TYPE);
+        } catch (IOException | IllegalStateException e) {
+          // the client went away, the transfers already submitted complete all the same
+          broken.set(true);
+        }
+        lines.reset();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      emitter.complete();
+      openStreams.release();
+      log.info("Closed a transfer stream");
+    }
+  }
+
+  private ResponseEntity<Object> createTransfer(String idempotencyKey, Supplier<TransferDto> transfer,
+    Runnable createTransfer) {
+    try {
+      if (idempotencyKey != null) {
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+          return new ResponseEntity<>("The idempotency key must have between 1 and " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters.", HttpStatus.BAD_REQUEST);
+        }
+        return response(transferService.createTransfer(idempotencyKey, transfer.get()));
+      }
+      createTransfer.run();
       return new ResponseEntity<>(null, HttpStatus.CREATED);
     }
     catch (AccountNotFoundException e) {
@@ -40,4 +216,22 @@ public class TransferController {
     }
   }
 
+  private TransferDto readTransfer(String line) {
+    try {
+      return objectMapper.readValue(line, TransferDto.class);
+    } catch (JsonProcessingException e) {
+      return null;
+    }
+  }
+
+  private static ResponseEntity<Object> response(TransferResultDto result) {
+    switch (result.getStatus()) {
+      case CREATED:
+        return new ResponseEntity<>(null, HttpStatus.CREATED);
+      case NOT_FOUND:
+        return new ResponseEntity<>(result.getMessage(), HttpStatus.NOT_FOUND);
+      default:
+        return new ResponseEntity<>(result.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
 }
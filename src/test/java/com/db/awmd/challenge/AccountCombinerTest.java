@@ -0,0 +1,62 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.service.AccountCombiner;
+import com.db.awmd.challenge.service.AccountLockManager;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountCombinerTest {
+
+    private final AccountCombiner testObj = new AccountCombiner(new AccountLockManager(16), new BalanceVersions(16));
+
+    @Test
+    public void testingDebit_whenTheFundsArentThere_shouldLeaveTheBalance() {
+        Account account = Account.ofMinorUnits("acc-1", 100);
+
+        //act
+        boolean testResult = testObj.debit(account, 101);
+
+        //assert
+        assertThat(testResult).isFalse();
+        assertThat(account.getBalanceMinorUnits()).isEqualTo(100);
+    }
+
+    @Test
+    public void testingDebitsAndCredits_fromManyThreads_shouldKeepEveryUpdateAndNeverOverdraw() throws InterruptedException {
+        Account hot = Account.ofMinorUnits("hot", 1_000);
+        int threads = 8;
+        int updatesPerThread = 10_000;
+        AtomicLong debited = new AtomicLong();
+        AtomicLong credited = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads);
+
+        //act
+        for (int t = 0; t < threads; t++) {
+            boolean debiting = t % 2 == 0;
+            new Thread(() -> {
+                for (int i = 0; i < updatesPerThread; i++) {
+                    if (debiting) {
+                        if (testObj.debit(hot, 3)) {
+                            debited.addAndGet(3);
+                        }
+                    } else {
+                        testObj.credit(hot, 2);
+                        credited.addAndGet(2);
+                    }
+                    assertThat(hot.getBalanceMinorUnits()).isNotNegative();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        //assert
+        assertThat(hot.getBalanceMinorUnits()).isEqualTo(1_000 + credited.get() - debited.get());
+    }
+}
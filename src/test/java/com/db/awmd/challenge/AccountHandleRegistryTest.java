@@ -0,0 +1,93 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountHandleRegistry;
+import com.db.awmd.challenge.persistence.NoOpWriteAheadLog;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountHandleRegistryTest {
+
+    private final AccountHandleRegistry testObj = new AccountHandleRegistry();
+
+    @Test
+    public void testingRegisteringIds_shouldGiveDenseHandlesInOrder() {
+        //act
+        int first = testObj.register("acc-1");
+        int second = testObj.register("acc-2");
+        int again = testObj.register("acc-1");
+
+        //assert
+        assertThat(first).isEqualTo(0);
+        assertThat(second).isEqualTo(1);
+        assertThat(again).isEqualTo(first);
+        assertThat(testObj.accountId(second)).isEqualTo("acc-2");
+        assertThat(testObj.find("acc-3")).isEqualTo(Account.NO_HANDLE);
+        assertThat(testObj.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testingRegisteringTheSameIds_fromManyThreads_shouldGiveEachIdOneHandle() {
+        int ids = 10_000;
+        List<CompletableFuture<int[]>> registrations = new ArrayList<>();
+
+        //act
+        for (int t = 0; t < 4; t++) {
+            registrations.add(CompletableFuture.supplyAsync(() -> {
+                int[] handles = new int[ids];
+                for (int i = 0; i < ids; i++) {
+                    handles[i] = testObj.register("acc-" + i);
+                }
+                return handles;
+            }));
+        }
+
+        //assert
+        int[] expected = registrations.get(0).join();
+        for (CompletableFuture<int[]> registration : registrations) {
+            assertThat(registration.join()).isEqualTo(expected);
+        }
+        assertThat(testObj.size()).isEqualTo(ids);
+        for (int i = 0; i < ids; i++) {
+            assertThat(testObj.accountId(expected[i])).isEqualTo("acc-" + i);
+        }
+    }
+
+    @Test
+    public void testingClearing_shouldGiveHandlesFromZeroAgain() {
+        testObj.register("acc-1");
+        testObj.register("acc-2");
+
+        //act
+        testObj.clear();
+
+        //assert
+        assertThat(testObj.find("acc-1")).isEqualTo(Account.NO_HANDLE);
+        assertThat(testObj.register("acc-2")).isEqualTo(0);
+        assertThat(testObj.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testingAccountsOfTheInMemoryRepository_shouldCarryTheHandleOfTheirId() {
+        AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(new NoOpWriteAheadLog());
+        Account created = new Account("acc-handle-1");
+        repository.createAccount(created);
+        repository.restoreAccount(Account.ofMinorUnits("acc-handle-2", 100));
+
+        //act
+        Account testResult = repository.getAccount("acc-handle-2");
+
+        //assert
+        assertThat(created.getHandle()).isEqualTo(0);
+        assertThat(testResult.getHandle()).isEqualTo(1);
+        assertThat(repository.getAccount("acc-handle-1")).isSameAs(created);
+        assertThat(repository.getAccount("acc-handle-3")).isNull();
+        assertThat(repository.countAccounts()).isEqualTo(2);
+    }
+}
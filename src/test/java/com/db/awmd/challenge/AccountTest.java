@@ -0,0 +1,52 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountTest {
+
+  @Test
+  public void testingDebits_fromManyThreads_shouldNeverOverdrawTheAccount() throws InterruptedException {
+    Account testObj = Account.ofMinorUnits("acc-1", 10_000);
+    int threads = 8;
+    AtomicInteger succeeded = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(threads);
+
+    //act
+    for (int t = 0; t < threads; t++) {
+      new Thread(() -> {
+        for (int i = 0; i < 1_000; i++) {
+          if (testObj.tryDebit(7)) {
+            succeeded.incrementAndGet();
+          }
+        }
+        done.countDown();
+      }).start();
+    }
+    done.await();
+
+    //assert
+    assertThat(succeeded.get()).isEqualTo(10_000 / 7);
+    assertThat(testObj.getBalanceMinorUnits()).isEqualTo(10_000 % 7);
+  }
+
+  @Test
+  public void testingCredit_whenTheBalanceWouldOverflow_shouldLeaveItUnchanged() {
+    Account testObj = Account.ofMinorUnits("acc-1", Long.MAX_VALUE - 5);
+
+    //act
+    try {
+      testObj.credit(10);
+      Assert.fail("Should have rejected the credit");
+    } catch (ArithmeticException e) {
+      //assert
+      assertThat(testObj.getBalanceMinorUnits()).isEqualTo(Long.MAX_VALUE - 5);
+    }
+  }
+}
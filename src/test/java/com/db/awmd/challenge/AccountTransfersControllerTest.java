@@ -0,0 +1,114 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.TransferService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@WebAppConfiguration
+public class AccountTransfersControllerTest {
+
+  private static final String ACCOUNT_ID1 = "acc-001";
+  private static final String ACCOUNT_ID2 = "acc-002";
+  private static final String ACCOUNT_ID3 = "acc-003";
+  private static final String TRANSFER_URI = "/v1/transfer";
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private TransferService transferService;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private WebApplicationContext webApplicationContext;
+
+  @Before
+  public void prepareMockMvc() throws Exception {
+    this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
+    transferService.getTransferRepository().clearTransfers();
+    accountsService.getAccountsRepository().clearAccounts();
+
+    for (String accountId : new String[]{ACCOUNT_ID1, ACCOUNT_ID2, ACCOUNT_ID3}) {
+      accountsService.createAccount(Account.builder()
+              .accountId(accountId)
+              .balance(BigDecimal.valueOf(100))
+              .build());
+    }
+    transfer(ACCOUNT_ID1, ACCOUNT_ID2, 10);
+    transfer(ACCOUNT_ID3, ACCOUNT_ID2, 20);
+    transfer(ACCOUNT_ID2, ACCOUNT_ID1, 30);
+  }
+
+  @Test
+  public void whenGettingTransfers_theLatestShouldComeFirst() throws Exception {
+    this.mockMvc.perform(get(uri(ACCOUNT_ID2)).param("limit", "2"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.transfers.length()").value(2))
+      .andExpect(jsonPath("$.transfers[0].accountTo").value(ACCOUNT_ID1))
+      .andExpect(jsonPath("$.transfers[0].amount").value(30))
+      .andExpect(jsonPath("$.transfers[0].state").value("COMPLETED"))
+      .andExpect(jsonPath("$.transfers[1].accountFrom").value(ACCOUNT_ID3))
+      .andExpect(jsonPath("$.nextCursor").value(1));
+  }
+
+  @Test
+  public void whenGettingTransfers_theCursorShouldGiveTheOlderPage() throws Exception {
+    this.mockMvc.perform(get(uri(ACCOUNT_ID2)).param("limit", "2").param("before", "1"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.transfers.length()").value(1))
+      .andExpect(jsonPath("$.transfers[0].accountFrom").value(ACCOUNT_ID1))
+      .andExpect(jsonPath("$.transfers[0].amount").value(10))
+      .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+  }
+
+  @Test
+  public void whenGettingTransfers_onlyTheAccountsOwnShouldBeReturned() throws Exception {
+    this.mockMvc.perform(get(uri(ACCOUNT_ID3)))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.transfers.length()").value(1))
+      .andExpect(jsonPath("$.transfers[0].accountTo").value(ACCOUNT_ID2));
+  }
+
+  @Test
+  public void whenGettingTransfers_ofAnAccountThatDoesntExist_shouldReturnNotFound() throws Exception {
+    this.mockMvc.perform(get(uri("acc-404"))).andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void whenGettingTransfers_withATooLargePage_shouldReturnBadRequest() throws Exception {
+    this.mockMvc.perform(get(uri(ACCOUNT_ID1)).param("limit", String.valueOf(TransferService.MAX_PAGE_SIZE + 1)))
+      .andExpect(status().isBadRequest());
+  }
+
+  private void transfer(String accountFrom, String accountTo, int amount) throws Exception {
+    this.mockMvc.perform(post(TRANSFER_URI).contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountFrom\":\"" + accountFrom + "\",\"accountTo\":\"" + accountTo + "\",\"amount\":" + amount + "}"))
+      .andExpect(status().isCreated());
+  }
+
+  private static String uri(String accountId) {
+    return "/v1/accounts/" + accountId + "/transfers";
+  }
+}
@@ -9,7 +9,10 @@ import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppC
 
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.web.BinaryMessageConverter;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -85,6 +88,12 @@ public class AccountsControllerTest {
       .content("{\"accountId\":\"Id-123\",\"balance\":-1000}")).andExpect(status().isBadRequest());
   }
 
+  @Test
+  public void createAccountBalanceWithFractionsOfACent() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountId\":\"Id-123\",\"balance\":1000.001}")).andExpect(status().isBadRequest());
+  }
+
   @Test
   public void createAccountEmptyAccountId() throws Exception {
     this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
@@ -101,4 +110,58 @@ public class AccountsControllerTest {
       .andExpect(
         content().string("{\"accountId\":\"" + uniqueAccountId + "\",\"balance\":123.45}"));
   }
+
+  @Test
+  public void createAccountAsABinaryRecord() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(BinaryMessageConverter.MEDIA_TYPE)
+      .content(BinaryMessageConverter.encode(Account.ofMinorUnits("Id-123", 100050)))).andExpect(status().isCreated());
+
+    Account account = accountsService.getAccount("Id-123");
+    assertThat(account.getBalance()).isEqualByComparingTo("1000.50");
+  }
+
+  @Test
+  public void createAccountAsABinaryRecordNegativeBalance() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(BinaryMessageConverter.MEDIA_TYPE)
+      .content(BinaryMessageConverter.encode(Account.ofMinorUnits("Id-123", -100)))).andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void getAccountAsABinaryRecord() throws Exception {
+    Account account = new Account("Id-123", new BigDecimal("123.45"));
+    this.accountsService.createAccount(account);
+    byte[] body = this.mockMvc.perform(get("/v1/accounts/Id-123").accept(BinaryMessageConverter.MEDIA_TYPE))
+      .andExpect(status().isOk())
+      .andReturn().getResponse().getContentAsByteArray();
+
+    Account read = BinaryMessageConverter.decodeAccount(ByteBuffer.wrap(body), 0);
+    assertThat(read.getAccountId()).isEqualTo("Id-123");
+    assertThat(read.getBalanceMinorUnits()).isEqualTo(12345);
+  }
+
+  @Test
+  public void getAccounts() throws Exception {
+    this.accountsService.createAccount(new Account("Id-123", new BigDecimal("123.45")));
+    this.accountsService.createAccount(new Account("Id-456", new BigDecimal("10")));
+    this.mockMvc.perform(get("/v1/accounts").param("ids", "Id-456,Id-123"))
+      .andExpect(status().isOk())
+      .andExpect(content().string(
+        "[{\"accountId\":\"Id-456\",\"balance\":10.00},{\"accountId\":\"Id-123\",\"balance\":123.45}]"));
+  }
+
+  @Test
+  public void getAccountsMissingAccount() throws Exception {
+    this.accountsService.createAccount(new Account("Id-123", new BigDecimal("123.45")));
+    this.mockMvc.perform(get("/v1/accounts").param("ids", "Id-123,Id-999"))
+      .andExpect(status().isNotFound())
+      .andExpect(content().string("Account Id-999 doesn't exist."));
+  }
+
+  @Test
+  public void getAccountsTooMany() throws Exception {
+    String[] ids = new String[AccountsService.MAX_SNAPSHOT_ACCOUNTS + 1];
+    Arrays.fill(ids, "Id-123");
+    this.mockMvc.perform(get("/v1/accounts").param("ids", String.join(",", ids)))
+      .andExpect(status().isBadRequest());
+  }
 }
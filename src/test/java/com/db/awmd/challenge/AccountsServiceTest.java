@@ -4,9 +4,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.dto.AccountSnapshotDto;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 import com.db.awmd.challenge.service.AccountsService;
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,4 +47,41 @@ public class AccountsServiceTest {
     }
 
   }
+
+  @Test
+  public void getAccounts() throws Exception {
+    String uniqueId = "Id-" + System.nanoTime();
+    Account from = new Account(uniqueId + "-from", new BigDecimal("10.00"));
+    Account to = new Account(uniqueId + "-to", new BigDecimal("20.00"));
+    this.accountsService.createAccount(from);
+    this.accountsService.createAccount(to);
+
+    Account[] accounts = this.accountsService.getAccounts(to.getAccountId(), from.getAccountId());
+    assertThat(accounts).containsExactly(to, from);
+    assertThat(this.accountsService.getAccounts(from.getAccountId(), uniqueId + "-missing"))
+      .containsExactly(from, null);
+  }
+
+  @Test
+  public void getSnapshots() throws Exception {
+    String uniqueId = "Id-" + System.nanoTime();
+    Account from = new Account(uniqueId + "-from", new BigDecimal("10.00"));
+    Account to = new Account(uniqueId + "-to", new BigDecimal("20.00"));
+    this.accountsService.createAccount(from);
+    this.accountsService.createAccount(to);
+
+    List<AccountSnapshotDto> snapshots = this.accountsService.getSnapshots(
+      Arrays.asList(to.getAccountId(), from.getAccountId()));
+    assertThat(snapshots).extracting(AccountSnapshotDto::getAccountId)
+      .containsExactly(to.getAccountId(), from.getAccountId());
+    assertThat(snapshots).extracting(AccountSnapshotDto::getBalanceMinorUnits).containsExactly(2000L, 1000L);
+
+    try {
+      this.accountsService.getSnapshots(Arrays.asList(from.getAccountId(), uniqueId + "-missing"));
+      fail("Should have failed when reading a missing account");
+    } catch (AccountNotFoundException ex) {
+      assertThat(ex.getAccountId()).isEqualTo(uniqueId + "-missing");
+    }
+  }
 }
+
@@ -0,0 +1,183 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.metrics.TransferMetrics;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.AsyncNotificationService;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.TransferEngine;
+import com.db.awmd.challenge.service.TransferService;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import jakarta.validation.Validation;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncNotificationServiceTest {
+
+    private static final long SINK_LATENCY_MILLIS = 200;
+
+    @Mock
+    private TransferRepository transferRepositoryMock;
+    @Mock
+    private AccountsService accountsServiceMock;
+    @Mock
+    private TransferEngine transferEngineMock;
+    @Mock
+    private ExecutorService transferExecutorMock;
+    @Mock
+    private IdempotencyCache idempotencyCacheMock;
+
+    private final SlowNotificationSink slowSink = new SlowNotificationSink();
+
+    private AsyncNotificationService testObj;
+
+    private final Account account1 = new Account("acc-001", BigDecimal.valueOf(1000));
+
+    private final Account account2 = new Account("acc-002", BigDecimal.valueOf(1000));
+
+    @After
+    public void tearDown() throws InterruptedException {
+        testObj.shutdown();
+    }
+
+    @Test
+    public void testingNotifying_whenTheSinkIsSlow_shouldNotWaitForTheSink() {
+        testObj = new AsyncNotificationService(slowSink, 1024, 1, 64, 50);
+
+        //act
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            testObj.notifyAboutTransfer(account1, "message " + i);
+        }
+        long testResult = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        //assert
+        assertThat(testResult).isLessThan(SINK_LATENCY_MILLIS);
+    }
+
+    @Test
+    public void testingShuttingDown_shouldDeliverEveryQueuedMessageCoalescedPerAccount() throws InterruptedException {
+        testObj = new AsyncNotificationService(slowSink, 1024, 1, 64, 50);
+        for (int i = 0; i < 10; i++) {
+            testObj.notifyAboutTransfer(account1, "to account 1 - " + i);
+            testObj.notifyAboutTransfer(account2, "to account 2 - " + i);
+        }
+
+        //act
+        testObj.shutdown();
+
+        //assert
+        String delivered = String.join(System.lineSeparator(), slowSink.descriptions);
+        for (int i = 0; i < 10; i++) {
+            assertThat(delivered).contains("to account 1 - " + i).contains("to account 2 - " + i);
+        }
+        assertThat(slowSink.descriptions.size()).isLessThan(20);
+        assertThat(testObj.getQueuedNotifications()).isEqualTo(0);
+    }
+
+    @Test
+    public void testingNotifying_whenTheQueueIsFull_shouldDeliverOnTheCallerThread() throws InterruptedException {
+        testObj = new AsyncNotificationService(slowSink, 1, 1, 1, 1);
+
+        //act
+        for (int i = 0; i < 5; i++) {
+            testObj.notifyAboutTransfer(account1, "message " + i);
+        }
+        testObj.shutdown();
+
+        //assert
+        assertThat(slowSink.threads).contains(Thread.currentThread().getName());
+        assertThat(String.join(System.lineSeparator(), slowSink.descriptions))
+                .contains("message 0", "message 1", "message 2", "message 3", "message 4");
+    }
+
+    @Test(timeout = 10_000)
+    public void testingNotifying_whileTheServiceShutsDown_shouldDeliverEveryMessage() throws Exception {
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        testObj = new AsyncNotificationService((account, description) -> delivered.add(description), 1024, 2, 64, 50);
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicInteger sent = new AtomicInteger();
+        Thread notifier = new Thread(() -> {
+            while (!stopped.get()) {
+                testObj.notifyAboutTransfer(account1, "message " + sent.getAndIncrement());
+            }
+        });
+        notifier.start();
+        Thread.sleep(50);
+
+        //act
+        testObj.shutdown();
+        stopped.set(true);
+        notifier.join();
+
+        //assert
+        List<String> messages = new ArrayList<>();
+        for (String description : delivered) {
+            messages.addAll(Arrays.asList(description.split(System.lineSeparator())));
+        }
+        assertThat(messages).hasSize(sent.get()).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void testingMakingTransfers_whenTheSinkIsSlow_shouldNotAddTheSinkLatencyToTheTransfer() {
+        testObj = new AsyncNotificationService(slowSink, 1024, 2, 64, 50);
+        TransferService transferService =
+                new TransferService(transferRepositoryMock, accountsServiceMock, testObj, transferEngineMock,
+                        transferExecutorMock, TransferMetrics.disabled(), idempotencyCacheMock,
+                        Validation.buildDefaultValidatorFactory().getValidator());
+
+        //act
+        long worstMillis = 0;
+        for (int i = 0; i < 100; i++) {
+            Transfer transfer = Transfer.builder()
+                    .accountFrom(account1)
+                    .accountTo(account2)
+                    .amount(BigDecimal.ONE)
+                    .state(TransferState.PENDING)
+                    .build();
+            long start = System.nanoTime();
+            transferService.makeTransfer(transfer);
+            worstMillis = Math.max(worstMillis, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        //assert
+        assertThat(worstMillis).isLessThan(SINK_LATENCY_MILLIS);
+    }
+
+    private static class SlowNotificationSink implements NotificationService {
+
+        private final List<String> descriptions = new CopyOnWriteArrayList<>();
+
+        private final List<String> threads = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void notifyAboutTransfer(Account account, String transferDescription) {
+            try {
+                Thread.sleep(SINK_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            threads.add(Thread.currentThread().getName());
+            descriptions.add(transferDescription);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.exception.BalanceReadException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BalanceVersionsTest {
+
+    private final BalanceVersions testObj = new BalanceVersions(16);
+
+    @Test
+    public void testingReadBalances_withoutWriters_shouldReturnTheBalancesInOrder() {
+        Account account1 = Account.ofMinorUnits("acc-versions-1", 100);
+        Account account2 = Account.ofMinorUnits("acc-versions-2", 250);
+
+        //act
+        long[] testResult = testObj.readBalances(new Account[]{account2, account1, account2});
+
+        //assert
+        assertThat(testResult).containsExactly(250, 100, 250);
+        assertThat(testObj.readBalance(account1)).isEqualTo(100);
+    }
+
+    @Test
+    public void testingReadBalances_whileMoneyMovesBetweenTheAccounts_shouldAlwaysSeeTheSameTotal() {
+        Account account1 = Account.ofMinorUnits("acc-versions-3", 1_000_000);
+        Account account2 = Account.ofMinorUnits("acc-versions-4", 1_000_000);
+        Account[] accounts = {account1, account2};
+        AtomicBoolean reading = new AtomicBoolean(true);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (int i = 0; reading.get(); i++) {
+                Account from = accounts[i & 1];
+                Account to = accounts[(i + 1) & 1];
+                testObj.beginWrite(from.getHandle(), to.getHandle());
+                try {
+                    from.setBalanceMinorUnits(from.getBalanceMinorUnits() - 7);
+                    to.setBalanceMinorUnits(to.getBalanceMinorUnits() + 7);
+                } finally {
+                    testObj.endWrite(from.getHandle(), to.getHandle());
+                }
+            }
+        });
+
+        //act
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                long[] testResult = testObj.readBalances(accounts);
+
+                //assert
+                assertThat(testResult[0] + testResult[1]).isEqualTo(2_000_000);
+            }
+        } finally {
+            reading.set(false);
+            writer.join();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testingReadBalances_whileWritesOverlapWithoutPause_shouldStillReturnTheSameTotal() {
+        Account account1 = Account.ofMinorUnits("acc-versions-5", 1_000_000);
+        Account account2 = Account.ofMinorUnits("acc-versions-6", 1_000_000);
+        Account[] accounts = {account1, account2};
+        AtomicBoolean reading = new AtomicBoolean(true);
+        // several writers on the same stripes, so one of them is nearly always in the middle of a write
+        CompletableFuture<?>[] writers = IntStream.range(0, 4)
+                .mapToObj(writer -> CompletableFuture.runAsync(() -> {
+                    while (reading.get()) {
+                        testObj.beginWrite(account1.getHandle(), account2.getHandle());
+                        try {
+                            synchronized (accounts) {
+                                account1.setBalanceMinorUnits(account1.getBalanceMinorUnits() - 7);
+                                account2.setBalanceMinorUnits(account2.getBalanceMinorUnits() + 7);
+                            }
+                        } finally {
+                            testObj.endWrite(account1.getHandle(), account2.getHandle());
+                        }
+                    }
+                }))
+                .toArray(CompletableFuture<?>[]::new);
+
+        //act
+        try {
+            for (int i = 0; i < 10_000; i++) {
+                long[] testResult = testObj.readBalances(accounts);
+
+                //assert
+                assertThat(testResult[0] + testResult[1]).isEqualTo(2_000_000);
+            }
+        } finally {
+            reading.set(false);
+            CompletableFuture.allOf(writers).join();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testingReadBalances_whileAWriteStaysOpen_shouldFailWithoutHoldingBackOtherWrites() throws Exception {
+        BalanceVersions versions = new BalanceVersions(16, 500);
+        Account account = Account.ofMinorUnits("acc-versions-7", 100);
+        versions.beginWrite(account.getHandle());
+        CompletableFuture<long[]> reader = CompletableFuture.supplyAsync(() -> versions.readBalances(
+                new Account[]{account}));
+
+        //act
+        for (int i = 0; i < 1000; i++) {
+            versions.beginWrite(account.getHandle());
+            versions.endWrite(account.getHandle());
+        }
+
+        //assert
+        assertThat(reader).isNotDone();
+        try {
+            reader.join();
+            Assert.fail("Should have given up on a balance that never stops changing");
+        } catch (CompletionException e) {
+            assertThat(e.getCause()).isInstanceOf(BalanceReadException.class);
+        }
+        versions.endWrite(account.getHandle());
+        assertThat(versions.readBalance(account)).isEqualTo(100);
+    }
+}
@@ -0,0 +1,182 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.persistence.DurabilityMode;
+import com.db.awmd.challenge.persistence.FileWriteAheadLog;
+import com.db.awmd.challenge.persistence.NoOpSnapshotStore;
+import com.db.awmd.challenge.persistence.WalRecord;
+import com.db.awmd.challenge.persistence.WalRecovery;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.SnowflakeTransferIdGenerator;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileWriteAheadLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testingReopeningTheLog_shouldReplayEveryRecordInOrder() throws IOException {
+        Path path = folder.getRoot().toPath();
+        FileWriteAheadLog testObj = FileWriteAheadLog.open(path, DurabilityMode.SYNC, 0);
+        for (int i = 0; i < 100; i++) {
+            testObj.awaitDurable(testObj.append(WalRecord.accountCreated(new Account("acc-" + i, BigDecimal.valueOf(i)))));
+        }
+        testObj.close();
+
+        //act
+        List<WalRecord> testResult = replay(path);
+
+        //assert
+        assertThat(testResult).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(testResult.get(i).getLsn()).isEqualTo(i + 1);
+            assertThat(testResult.get(i).getAccountId()).isEqualTo("acc-" + i);
+            assertThat(testResult.get(i).getAmount()).isEqualTo(i * 100L);
+        }
+    }
+
+    @Test
+    public void testingReopeningTheLog_whenTheLastRecordIsTorn_shouldDropItAndKeepAppending() throws IOException {
+        Path path = folder.getRoot().toPath();
+        FileWriteAheadLog log = FileWriteAheadLog.open(path, DurabilityMode.SYNC, 0);
+        log.awaitDurable(log.append(WalRecord.accountCreated(new Account("acc-1", BigDecimal.TEN))));
+        log.close();
+        Files.write(FileWriteAheadLog.segmentFile(path, 1), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        //act
+        FileWriteAheadLog testObj = FileWriteAheadLog.open(path, DurabilityMode.SYNC, 0);
+        long testResult = testObj.append(WalRecord.accountCreated(new Account("acc-2", BigDecimal.ONE)));
+        testObj.awaitDurable(testResult);
+        testObj.close();
+
+        //assert
+        assertThat(testResult).isEqualTo(2);
+        List<WalRecord> records = replay(path);
+        assertThat(records).extracting(WalRecord::getAccountId).containsExactly("acc-1", "acc-2");
+    }
+
+    @Test
+    public void testingGroupCommit_fromManyThreads_shouldMakeEveryRecordDurable() throws Exception {
+        Path path = folder.getRoot().toPath();
+        FileWriteAheadLog testObj = FileWriteAheadLog.open(path, DurabilityMode.GROUP_COMMIT, 200);
+        int threads = 8;
+        int recordsPerThread = 200;
+        CountDownLatch done = new CountDownLatch(threads);
+
+        //act
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                for (int i = 0; i < recordsPerThread; i++) {
+                    long lsn = testObj.append(WalRecord.accountCreated(new Account(thread + "-" + i, BigDecimal.ONE)));
+                    testObj.awaitDurable(lsn);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        //assert
+        assertThat(testObj.getDurableLsn()).isEqualTo(threads * recordsPerThread);
+        testObj.close();
+        assertThat(replay(path)).hasSize(threads * recordsPerThread);
+    }
+
+    @Test
+    public void testingRoll_shouldStartANewSegmentAndKeepTheSequence() throws IOException {
+        Path path = folder.getRoot().toPath();
+        FileWriteAheadLog testObj = FileWriteAheadLog.open(path, DurabilityMode.SYNC, 0);
+        testObj.append(WalRecord.accountCreated(new Account("acc-1", BigDecimal.TEN)));
+        testObj.append(WalRecord.accountCreated(new Account("acc-2", BigDecimal.TEN)));
+
+        //act
+        long testResult = testObj.roll();
+        testObj.awaitDurable(testObj.append(WalRecord.accountCreated(new Account("acc-3", BigDecimal.TEN))));
+        testObj.truncateBefore(testResult);
+        testObj.close();
+
+        //assert
+        assertThat(testResult).isEqualTo(3);
+        assertThat(Files.exists(FileWriteAheadLog.segmentFile(path, 1))).isFalse();
+        assertThat(replay(path)).extracting(WalRecord::getAccountId).containsExactly("acc-3");
+    }
+
+    @Test
+    public void testingRecovery_shouldRebuildAccountsAndTransfers() throws IOException {
+        Path path = folder.getRoot().toPath();
+        FileWriteAheadLog log = FileWriteAheadLog.open(path, DurabilityMode.SYNC, 0);
+        AccountsRepositoryInMemory accounts = new AccountsRepositoryInMemory(log);
+        TransferRepositoryInMemory transfers = new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), log,
+                new BalanceVersions(16));
+        accounts.createAccount(new Account("acc-1", BigDecimal.valueOf(100)));
+        accounts.createAccount(new Account("acc-2", BigDecimal.valueOf(100)));
+        Transfer completed = newTransfer(accounts, BigDecimal.valueOf(30));
+        Transfer pending = newTransfer(accounts, BigDecimal.valueOf(20));
+        Transfer failed = newTransfer(accounts, BigDecimal.valueOf(500));
+        transfers.createTransfer(completed);
+        transfers.createTransfer(pending);
+        transfers.createTransfer(failed);
+        try {
+            transfers.executeTransfer(completed);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        failed.setState(TransferState.FAILED);
+        transfers.save(failed);
+        log.close();
+
+        FileWriteAheadLog reopened = FileWriteAheadLog.open(path, DurabilityMode.SYNC, 0);
+        AccountsRepositoryInMemory recoveredAccounts = new AccountsRepositoryInMemory(reopened);
+        TransferRepositoryInMemory recoveredTransfers =
+                new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), reopened, new BalanceVersions(16));
+        WalRecovery testObj = new WalRecovery(reopened, new NoOpSnapshotStore(), recoveredAccounts, recoveredTransfers,
+                new BalanceVersions(16));
+
+        //act
+        testObj.afterPropertiesSet();
+
+        //assert
+        assertThat(recoveredAccounts.getAccount("acc-1").getBalance()).isEqualByComparingTo("70");
+        assertThat(recoveredAccounts.getAccount("acc-2").getBalance()).isEqualByComparingTo("130");
+        assertThat(recoveredTransfers.findById(completed.getId()).getState()).isEqualTo(TransferState.COMPLETED);
+        assertThat(recoveredTransfers.findById(failed.getId()).getState()).isEqualTo(TransferState.FAILED);
+        assertThat(recoveredTransfers.findByState(TransferState.PENDING))
+                .extracting(Transfer::getId).containsExactly(pending.getId());
+        reopened.close();
+    }
+
+    private static Transfer newTransfer(AccountsRepositoryInMemory accounts, BigDecimal amount) {
+        return Transfer.builder()
+                .accountFrom(accounts.getAccount("acc-1"))
+                .accountTo(accounts.getAccount("acc-2"))
+                .amount(amount)
+                .state(TransferState.PENDING)
+                .build();
+    }
+
+    private static List<WalRecord> replay(Path path) throws IOException {
+        FileWriteAheadLog log = FileWriteAheadLog.open(path, DurabilityMode.SYNC, 0);
+        List<WalRecord> records = new ArrayList<>();
+        log.replay(records::add);
+        log.close();
+        return records;
+    }
+}
@@ -0,0 +1,148 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.dto.TransferResultDto;
+import com.db.awmd.challenge.exception.TransferRejectedException;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdempotencyCacheTest {
+
+    private static final long TTL_MILLIS = 60_000;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicInteger transfers = new AtomicInteger();
+
+    private final TransferDto transfer = transfer("50.00");
+
+    private IdempotencyCache testObj;
+
+    @Before
+    public void setup() {
+        testObj = new IdempotencyCache(1000, TTL_MILLIS, 4, clock::get);
+    }
+
+    @Test
+    public void testingRetryingATransfer_shouldReplayTheFirstOutcome() {
+        TransferResultDto first = testObj.execute("key-1", transfer, this::makeTransfer);
+
+        //act
+        TransferResultDto testResult = testObj.execute("key-1", transfer("50"), this::makeTransfer);
+
+        //assert
+        assertThat(testResult).isSameAs(first);
+        assertThat(transfers.get()).isEqualTo(1);
+        assertThat(testObj.getHitCount()).isEqualTo(1);
+        assertThat(testObj.getMissCount()).isEqualTo(1);
+        assertThat(testObj.getHitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void testingRetryingATransfer_withAnotherPayload_shouldBeRejected() {
+        testObj.execute("key-1", transfer, this::makeTransfer);
+
+        try {
+            //act
+            testObj.execute("key-1", transfer("60.00"), this::makeTransfer);
+            Assert.fail("Should have rejected a key used for another transfer");
+        } catch (TransferRejectedException e) {
+            //assert
+            assertThat(e.getMessage()).isEqualTo("Idempotency key key-1 was already used for another transfer.");
+            assertThat(transfers.get()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testingRetryingATransfer_afterTheTimeToLive_shouldMakeItAgain() {
+        testObj.execute("key-1", transfer, this::makeTransfer);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(TTL_MILLIS));
+
+        //act
+        testObj.execute("key-1", transfer, this::makeTransfer);
+
+        //assert
+        assertThat(transfers.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testingRetryingATransfer_whileTheFirstAttemptRuns_shouldWaitForIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<TransferResultDto> first = CompletableFuture.supplyAsync(
+                () -> testObj.execute("key-1", transfer, () -> {
+                    started.countDown();
+                    await(release);
+                    return makeTransfer();
+                }));
+        started.await();
+
+        //act
+        CompletableFuture<TransferResultDto> retry =
+                CompletableFuture.supplyAsync(() -> testObj.execute("key-1", transfer, this::makeTransfer));
+        Thread.sleep(50);
+        boolean retryDoneEarly = retry.isDone();
+        release.countDown();
+
+        //assert
+        assertThat(retryDoneEarly).isFalse();
+        assertThat(retry.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(transfers.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testingFillingTheCache_withOneOffKeys_shouldKeepTheKeysRetriedOften() {
+        testObj = new IdempotencyCache(100, TTL_MILLIS, 1, clock::get);
+        for (int i = 0; i < 50; i++) {
+            testObj.execute("hot-" + (i % 10), transfer, this::makeTransfer);
+        }
+
+        //act
+        for (int i = 0; i < 10_000; i++) {
+            testObj.execute("once-" + i, transfer, this::makeTransfer);
+        }
+
+        //assert
+        int before = transfers.get();
+        for (int i = 0; i < 10; i++) {
+            testObj.execute("hot-" + i, transfer, this::makeTransfer);
+        }
+        assertThat(transfers.get()).isEqualTo(before);
+        assertThat(testObj.size()).isLessThanOrEqualTo(100);
+        assertThat(testObj.getEvictionCount()).isGreaterThan(0);
+    }
+
+    private TransferResultDto makeTransfer() {
+        return TransferResultDto.builder()
+                .status(TransferResultDto.Status.CREATED)
+                .transferId((long) transfers.incrementAndGet())
+                .build();
+    }
+
+    private static TransferDto transfer(String amount) {
+        return TransferDto.builder()
+                .accountFrom("acc-1")
+                .accountTo("acc-2")
+                .amount(new BigDecimal(amount))
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.db.awmd.challenge;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs every transfer controller test again with the lock free engine.
+ */
+@TestPropertySource(properties = "transfer.engine=lock-free")
+public class LockFreeTransferControllerTest extends TransferControllerTest {
+}
@@ -0,0 +1,64 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.service.LockFreeTransferEngine;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LockFreeTransferEngineTest {
+
+    @Mock
+    private TransferRepository transferRepositoryMock;
+
+    private LockFreeTransferEngine testObj;
+
+    private Transfer transfer;
+
+    @Before
+    public void setup() {
+        testObj = new LockFreeTransferEngine(transferRepositoryMock);
+        transfer = Transfer.builder()
+                .accountFrom(new Account("acc-001", BigDecimal.valueOf(100)))
+                .accountTo(new Account("acc-002", BigDecimal.valueOf(100)))
+                .amount(BigDecimal.valueOf(50.0))
+                .state(TransferState.PENDING)
+                .build();
+    }
+
+    @Test
+    public void testingExecutingATransfer_shouldDebitBeforeCrediting() throws SQLIntegrityConstraintViolationException {
+        //act
+        testObj.execute(transfer);
+
+        //assert
+        InOrder inOrder = inOrder(transferRepositoryMock);
+        inOrder.verify(transferRepositoryMock).executeDebit(transfer);
+        inOrder.verify(transferRepositoryMock).executeCredit(transfer);
+    }
+
+    @Test(expected = SQLIntegrityConstraintViolationException.class)
+    public void testingExecutingATransfer_whenTheDebitFails_shouldNotCredit() throws SQLIntegrityConstraintViolationException {
+        doThrow(new SQLIntegrityConstraintViolationException()).when(transferRepositoryMock).executeDebit(any());
+
+        //act
+        try {
+            testObj.execute(transfer);
+        } finally {
+            //assert
+            verify(transferRepositoryMock, never()).executeCredit(any());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.service.AccountCombiner;
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.LockingTransferEngine;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LockingTransferEngineTest {
+
+    private static final String ACCOUNT_ID1 = "acc-001";
+    private static final String ACCOUNT_ID2 = "acc-002";
+
+    @Mock
+    private TransferRepository transferRepositoryMock;
+    @Mock
+    private AccountLockManager accountLockManagerMock;
+    @Mock
+    private AccountCombiner accountCombinerMock;
+
+    private LockingTransferEngine testObj;
+
+    private Transfer transfer;
+
+    private int handle1;
+
+    private int handle2;
+
+    @Before
+    public void setup() {
+        testObj = new LockingTransferEngine(transferRepositoryMock, accountLockManagerMock, accountCombinerMock);
+        transfer = Transfer.builder()
+                .accountFrom(new Account(ACCOUNT_ID1, BigDecimal.valueOf(100)))
+                .accountTo(new Account(ACCOUNT_ID2, BigDecimal.valueOf(100)))
+                .amount(BigDecimal.valueOf(50.0))
+                .state(TransferState.PENDING)
+                .build();
+        handle1 = transfer.getAccountFrom().getHandle();
+        handle2 = transfer.getAccountTo().getHandle();
+    }
+
+    @Test
+    public void testingExecutingATransfer_shouldHoldTheAccountLocksAroundItButNotWhileWaitingForTheLog() throws SQLIntegrityConstraintViolationException {
+        when(transferRepositoryMock.executeTransfer(transfer)).thenReturn(42L);
+
+        //act
+        testObj.execute(transfer);
+
+        //assert
+        InOrder inOrder = inOrder(accountLockManagerMock, transferRepositoryMock);
+        inOrder.verify(accountLockManagerMock).lock(handle1, handle2);
+        inOrder.verify(transferRepositoryMock).executeTransfer(transfer);
+        inOrder.verify(accountLockManagerMock).unlock(handle1, handle2);
+        inOrder.verify(transferRepositoryMock).awaitDurable(42L);
+    }
+
+    @Test
+    public void testingExecutingATransfer_whenItIsRejected_shouldReleaseTheAccountLocks() throws SQLIntegrityConstraintViolationException {
+        doThrow(new SQLIntegrityConstraintViolationException()).when(transferRepositoryMock).executeTransfer(any());
+
+        //act
+        try {
+            testObj.execute(transfer);
+            Assert.fail("Should have rejected the transfer");
+        } catch (SQLIntegrityConstraintViolationException e) {
+            //assert
+            verify(accountLockManagerMock, times(1)).lock(handle1, handle2);
+            verify(accountLockManagerMock, times(1)).unlock(handle1, handle2);
+        }
+    }
+
+    @Test
+    public void testingExecutingATransfer_whenAnAccountIsHot_shouldCombineInsteadOfLockingBoth() throws SQLIntegrityConstraintViolationException {
+        when(accountLockManagerMock.isHot(handle1)).thenReturn(true);
+        when(accountCombinerMock.debit(transfer.getAccountFrom(), 5000)).thenReturn(true);
+
+        //act
+        testObj.execute(transfer);
+
+        //assert
+        InOrder inOrder = inOrder(accountCombinerMock, transferRepositoryMock);
+        inOrder.verify(accountCombinerMock).debit(transfer.getAccountFrom(), 5000);
+        inOrder.verify(transferRepositoryMock).debited(transfer);
+        inOrder.verify(accountCombinerMock).credit(transfer.getAccountTo(), 5000);
+        inOrder.verify(transferRepositoryMock).complete(transfer);
+        verify(accountLockManagerMock, never()).lock(handle1, handle2);
+        verify(transferRepositoryMock, never()).executeTransfer(any());
+    }
+
+    @Test
+    public void testingExecutingATransfer_whenAHotAccountDoesntHaveTheFunds_shouldRejectItWithoutCrediting() {
+        when(accountLockManagerMock.isHot(handle2)).thenReturn(true);
+        when(accountCombinerMock.debit(transfer.getAccountFrom(), 5000)).thenReturn(false);
+
+        //act
+        try {
+            testObj.execute(transfer);
+            Assert.fail("Should have rejected the transfer");
+        } catch (SQLIntegrityConstraintViolationException e) {
+            //assert
+            verify(accountCombinerMock, never()).credit(any(), anyLong());
+            verify(transferRepositoryMock, never()).complete(any());
+            assertEquals(transfer.getState(), TransferState.PENDING);
+        }
+    }
+
+    @Test
+    public void testingResumingADebitedTransfer_shouldOnlyCreditAndComplete() throws SQLIntegrityConstraintViolationException {
+        transfer.setState(TransferState.DEBITED);
+
+        //act
+        testObj.resume(transfer);
+
+        //assert
+        InOrder inOrder = inOrder(accountCombinerMock, transferRepositoryMock);
+        inOrder.verify(accountCombinerMock).credit(transfer.getAccountTo(), 5000);
+        inOrder.verify(transferRepositoryMock).complete(transfer);
+        verify(accountCombinerMock, never()).debit(any(), anyLong());
+    }
+}
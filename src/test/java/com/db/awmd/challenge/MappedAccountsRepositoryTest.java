@@ -0,0 +1,180 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.persistence.NoOpWriteAheadLog;
+import com.db.awmd.challenge.repository.MappedAccountsRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedAccountsRepositoryTest {
+
+    /**
+     * Where the ledger file format puts the header fields and the two copies of a slot.
+     */
+    private static final int HEADER_SIZE = 4096;
+
+    private static final int HEADER_TABLE_SIZE = 8;
+
+    private static final int HEADER_STATE = 16;
+
+    private static final int OPEN = 1;
+
+    private static final int SLOT_SIZE = 64;
+
+    private static final int[] COPIES = {16, 40};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    private MappedAccountsRepository testObj;
+
+    @Before
+    public void setup() throws IOException {
+        directory = folder.getRoot().toPath();
+        testObj = open(false);
+        testObj.createAccount(new Account("acc-1", new BigDecimal("100.00")));
+        testObj.createAccount(new Account("acc-\u00e9", new BigDecimal("50.00")));
+    }
+
+    @After
+    public void tearDown() {
+        testObj.close();
+    }
+
+    @Test
+    public void testingReopening_afterClose_shouldKeepTheBalances() throws IOException {
+        Account account = testObj.getAccount("acc-1");
+        assertThat(account.tryDebit(2500)).isTrue();
+        testObj.getAccount("acc-\u00e9").credit(2500);
+        testObj.close();
+
+        //act
+        testObj = open(true);
+
+        //assert
+        assertThat(testObj.hasRecoveredBalances()).isTrue();
+        assertThat(testObj.countAccounts()).isEqualTo(2);
+        assertThat(testObj.getAccount("acc-1").getBalance()).isEqualByComparingTo("75.00");
+        assertThat(testObj.getAccount("acc-\u00e9").getBalance()).isEqualByComparingTo("75.00");
+    }
+
+    @Test
+    public void testingRestoringAnAccount_afterCleanClose_shouldKeepTheLedgerBalance() throws IOException {
+        testObj.getAccount("acc-1").credit(100);
+        testObj.close();
+        testObj = open(false);
+
+        //act
+        testObj.restoreAccount(new Account("acc-1", new BigDecimal("100.00")));
+
+        //assert
+        assertThat(testObj.getAccount("acc-1").getBalance()).isEqualByComparingTo("101.00");
+    }
+
+    @Test
+    public void testingReopening_afterTornUpdate_shouldFallBackToThePreviousCopy() throws IOException {
+        testObj.getAccount("acc-1").credit(100);
+        testObj.getAccount("acc-1").credit(100);
+        testObj.close();
+        corruptLatestCopies();
+
+        //act
+        testObj = open(false);
+
+        //assert
+        assertThat(testObj.hasRecoveredBalances()).isFalse();
+        assertThat(testObj.getAccount("acc-1").getBalance()).isEqualByComparingTo("101.00");
+        assertThat(testObj.getAccount("acc-1").tryDebit(100)).isTrue();
+        assertThat(testObj.getAccount("acc-1").getBalance()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    public void testingReopening_withItsOnlyCopyCorrupt_shouldRefuseTheBalanceUntilRestored() throws IOException {
+        testObj.close();
+        corruptLatestCopies();
+
+        //act
+        testObj = open(false);
+
+        //assert
+        try {
+            testObj.getAccount("acc-1").getBalance();
+            Assert.fail("Should have refused a damaged balance");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("acc-1");
+        }
+        testObj.restoreAccount(new Account("acc-1", new BigDecimal("100.00")));
+        assertThat(testObj.getAccount("acc-1").getBalance()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    public void testingCreatingAnAccount_thatExists_shouldFail() {
+        try {
+            //act
+            testObj.createAccount(new Account("acc-1", BigDecimal.ONE));
+            Assert.fail("Should have failed when adding duplicate account");
+        } catch (DuplicateAccountIdException e) {
+            //assert
+            assertThat(e.getMessage()).isEqualTo("Account id acc-1 already exists!");
+        }
+    }
+
+    /**
+     * Flips the balance of the latest copy of every account, without fixing its checksum, and leaves the ledger
+     * marked open as a process dying mid update would.
+     */
+    private void corruptLatestCopies() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("accounts.ledger"), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            int tableSize = readInt(channel, HEADER_TABLE_SIZE);
+            for (long slot = 0; slot < tableSize; slot++) {
+                long offset = HEADER_SIZE + slot * SLOT_SIZE;
+                if (readLong(channel, offset) == 0) {
+                    continue;
+                }
+                int latest = readLong(channel, offset + COPIES[1]) > readLong(channel, offset + COPIES[0])
+                        ? COPIES[1] : COPIES[0];
+                ByteBuffer balance = ByteBuffer.allocate(8).putLong(~readLong(channel, offset + latest + 8));
+                balance.flip();
+                channel.write(balance, offset + latest + 8);
+            }
+            ByteBuffer state = ByteBuffer.allocate(4).putInt(OPEN);
+            state.flip();
+            channel.write(state, HEADER_STATE);
+        }
+    }
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        channel.read(buffer, position);
+        return buffer.getInt(0);
+    }
+
+    private static long readLong(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        channel.read(buffer, position);
+        return buffer.getLong(0);
+    }
+
+    private MappedAccountsRepository open(boolean scanOnOpen) throws IOException {
+        return new MappedAccountsRepository(new NoOpWriteAheadLog(), new BalanceVersions(16), directory, 1000,
+                scanOnOpen);
+    }
+}
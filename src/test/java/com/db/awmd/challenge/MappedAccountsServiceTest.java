@@ -0,0 +1,25 @@
+package com.db.awmd.challenge;
+
+import org.junit.ClassRule;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Runs every accounts service test again with the accounts kept in the memory mapped ledger.
+ */
+@ActiveProfiles("mapped")
+public class MappedAccountsServiceTest extends AccountsServiceTest {
+
+  /**
+   * The ledger, the log and the snapshots go to a fresh folder, not to the data directory of the project.
+   */
+  @ClassRule
+  public static TemporaryFolder folder = new TemporaryFolder();
+
+  @DynamicPropertySource
+  static void persistenceDirectory(DynamicPropertyRegistry registry) {
+    registry.add("persistence.directory", () -> folder.getRoot().getAbsolutePath());
+  }
+}
@@ -0,0 +1,169 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.persistence.MappedTransferArchive;
+import com.db.awmd.challenge.persistence.NoOpWriteAheadLog;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.SnowflakeTransferIdGenerator;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedTransferArchiveTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AccountsRepositoryInMemory accounts = new AccountsRepositoryInMemory(new NoOpWriteAheadLog());
+
+    private MappedTransferArchive testObj;
+
+    @Before
+    public void setup() throws IOException {
+        accounts.restoreAccount(new Account("acc-1", BigDecimal.TEN));
+        accounts.restoreAccount(new Account("acc-2", BigDecimal.TEN));
+        testObj = MappedTransferArchive.open(folder.getRoot().toPath(), SEGMENT_SIZE, accounts::getAccount);
+    }
+
+    @After
+    public void tearDown() {
+        testObj.close();
+    }
+
+    @Test
+    public void testingFindingArchivedTransfers_acrossSegments_shouldReadThemBack() {
+        for (long id = 1; id <= 1000; id++) {
+            testObj.append(transfer(id, id % 3 == 0 ? TransferState.FAILED : TransferState.COMPLETED));
+        }
+
+        //act
+        Transfer testResult = testObj.findById(777);
+
+        //assert
+        assertThat(testObj.size()).isEqualTo(1000);
+        assertThat(testResult.getId()).isEqualTo(777);
+        assertThat(testResult.getAccountFrom()).isSameAs(accounts.getAccount("acc-1"));
+        assertThat(testResult.getAccountTo()).isSameAs(accounts.getAccount("acc-2"));
+        assertThat(testResult.getAmount()).isEqualByComparingTo("7.77");
+        assertThat(testResult.getState()).isEqualTo(TransferState.COMPLETED);
+        assertThat(testResult.getDate()).isEqualTo(new Date(777_000));
+        for (long id = 1; id <= 1000; id++) {
+            assertThat(testObj.findById(id).getId()).isEqualTo(id);
+        }
+        assertThat(testObj.findById(0)).isNull();
+        assertThat(testObj.findById(1001)).isNull();
+    }
+
+    @Test
+    public void testingFindingArchivedTransfers_whenOneCameOutOfOrder_shouldStillFindIt() {
+        for (long id = 10; id <= 20; id++) {
+            testObj.append(transfer(id, TransferState.COMPLETED));
+        }
+        testObj.append(transfer(5, TransferState.FAILED));
+        testObj.append(transfer(21, TransferState.COMPLETED));
+
+        //act
+        Transfer testResult = testObj.findById(5);
+
+        //assert
+        assertThat(testResult.getState()).isEqualTo(TransferState.FAILED);
+        assertThat(testObj.findById(15).getId()).isEqualTo(15);
+        assertThat(testObj.findById(21).getId()).isEqualTo(21);
+        assertThat(testObj.findById(6)).isNull();
+    }
+
+    @Test
+    public void testingClearingTheArchive_shouldUnmapAndDeleteItsSegments() throws IOException {
+        for (long id = 1; id <= 1000; id++) {
+            testObj.append(transfer(id, TransferState.COMPLETED));
+        }
+
+        //act
+        testObj.clear();
+
+        //assert
+        assertThat(testObj.size()).isEqualTo(0);
+        assertThat(testObj.findById(500)).isNull();
+        try (Stream<Path> files = Files.walk(folder.getRoot().toPath())) {
+            assertThat(files.filter(file -> file.toString().endsWith(".seg"))).isEmpty();
+        }
+        testObj.append(transfer(1001, TransferState.COMPLETED));
+        assertThat(testObj.findById(1001).getId()).isEqualTo(1001);
+    }
+
+    @Test
+    public void testingArchivingFromTheRepository_shouldKeepTheTransfersFindableById() {
+        TransferRepositoryInMemory repository =
+                new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), new NoOpWriteAheadLog(), testObj,
+                        new BalanceVersions(16));
+        long[] ids = new long[100];
+        for (int i = 0; i < ids.length; i++) {
+            Transfer transfer = transfer(0, TransferState.PENDING);
+            repository.createTransfer(transfer);
+            transfer.setState(i == 0 ? TransferState.PENDING : TransferState.COMPLETED);
+            repository.save(transfer);
+            ids[i] = transfer.getId();
+        }
+
+        //act
+        int testResult = repository.archive(10, new Date());
+
+        //assert
+        assertThat(testResult).isEqualTo(90);
+        assertThat(repository.countTransfers()).isEqualTo(100);
+        assertThat(repository.countByState(TransferState.COMPLETED)).isEqualTo(9);
+        assertThat(repository.countByState(TransferState.PENDING)).isEqualTo(1);
+        for (long id : ids) {
+            assertThat(repository.findById(id).getId()).isEqualTo(id);
+        }
+        assertThat(repository.findByAccount(accounts.getAccount("acc-1"), Long.MAX_VALUE, 100)).hasSize(100);
+    }
+
+    @Test
+    public void testingArchivingFromTheRepository_shouldLeaveRecentTransfersOnTheHeap() {
+        TransferRepositoryInMemory repository =
+                new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), new NoOpWriteAheadLog(), testObj,
+                        new BalanceVersions(16));
+        for (int i = 0; i < 20; i++) {
+            Transfer transfer = transfer(0, TransferState.PENDING);
+            repository.createTransfer(transfer);
+            transfer.setState(TransferState.COMPLETED);
+            repository.save(transfer);
+        }
+
+        //act
+        int testResult = repository.archive(10, new Date(0));
+
+        //assert
+        assertThat(testResult).isEqualTo(0);
+        assertThat(testObj.size()).isEqualTo(0);
+    }
+
+    private Transfer transfer(long id, TransferState state) {
+        return Transfer.builder()
+                .id(id)
+                .accountFrom(accounts.getAccount("acc-1"))
+                .accountTo(accounts.getAccount("acc-2"))
+                .amount(BigDecimal.valueOf(id, 2))
+                .state(state)
+                .date(new Date(id * 1000))
+                .build();
+    }
+}
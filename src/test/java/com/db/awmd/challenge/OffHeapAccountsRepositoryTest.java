@@ -0,0 +1,113 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.persistence.NoOpWriteAheadLog;
+import com.db.awmd.challenge.repository.OffHeapAccountsRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapAccountsRepositoryTest {
+
+    private static final int CAPACITY = 3;
+
+    private static final String WIDE_ID = "acc-\u00e9\u4e2d";
+
+    private OffHeapAccountsRepository testObj;
+
+    @Before
+    public void setup() {
+        testObj = new OffHeapAccountsRepository(new NoOpWriteAheadLog(), new BalanceVersions(16), CAPACITY);
+        testObj.createAccount(new Account("acc-1", new BigDecimal("100.00")));
+    }
+
+    @Test
+    public void testingCreatingAnAccount_whenTheStoreIsFull_shouldFail() {
+        testObj.createAccount(new Account("acc-2", BigDecimal.ONE));
+        testObj.createAccount(new Account("acc-3", BigDecimal.ONE));
+
+        try {
+            //act
+            testObj.createAccount(new Account("acc-4", BigDecimal.ONE));
+            Assert.fail("Should have failed when the store is full");
+        } catch (IllegalStateException e) {
+            //assert
+            assertThat(e.getMessage()).isEqualTo("The account store is full at " + CAPACITY + " accounts");
+            assertThat(testObj.countAccounts()).isEqualTo(CAPACITY);
+            assertThat(testObj.getAccount("acc-4")).isNull();
+        }
+    }
+
+    @Test
+    public void testingCreatingAnAccount_thatExists_shouldFail() {
+        try {
+            //act
+            testObj.createAccount(new Account("acc-1", BigDecimal.ONE));
+            Assert.fail("Should have failed when adding duplicate account");
+        } catch (DuplicateAccountIdException e) {
+            //assert
+            assertThat(e.getMessage()).isEqualTo("Account id acc-1 already exists!");
+            assertThat(testObj.getAccount("acc-1").getBalance()).isEqualByComparingTo("100.00");
+        }
+    }
+
+    @Test
+    public void testingCreatingAnAccount_withAnIdOutsideAscii_shouldKeepItWhole() {
+        //act
+        testObj.createAccount(new Account(WIDE_ID, new BigDecimal("50.00")));
+
+        //assert
+        assertThat(testObj.getAccount(WIDE_ID).getBalance()).isEqualByComparingTo("50.00");
+        assertThat(testObj.getAccount("acc-\u00e9")).isNull();
+        assertThat(testObj.streamAccounts().map(Account::getAccountId).collect(Collectors.toList()))
+                .containsExactlyInAnyOrder("acc-1", WIDE_ID);
+    }
+
+    @Test
+    public void testingCreatingAnAccount_withAnIdTooLongForItsLength_shouldFail() {
+        String accountId = "a".repeat(0x8000);
+
+        try {
+            //act
+            testObj.createAccount(new Account(accountId, BigDecimal.ONE));
+            Assert.fail("Should have refused an id too long to store");
+        } catch (IllegalArgumentException e) {
+            //assert
+            assertThat(e.getMessage()).isEqualTo("Account id is too long");
+            assertThat(testObj.countAccounts()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testingRestoringAnAccount_thatExists_shouldOverwriteItsBalanceInPlace() {
+        Account account = testObj.getAccount("acc-1");
+        assertThat(account.tryDebit(2500)).isTrue();
+
+        //act
+        testObj.restoreAccount(new Account("acc-1", new BigDecimal("40.00")));
+
+        //assert
+        Account restored = testObj.getAccount("acc-1");
+        assertThat(restored.getBalance()).isEqualByComparingTo("40.00");
+        assertThat(restored.getHandle()).isEqualTo(account.getHandle());
+        assertThat(account.getBalance()).isEqualByComparingTo("40.00");
+        assertThat(testObj.countAccounts()).isEqualTo(1);
+    }
+
+    @Test
+    public void testingRestoringAnAccount_thatDoesntExist_shouldAddIt() {
+        //act
+        testObj.restoreAccount(new Account("acc-2", new BigDecimal("10.00")));
+
+        //assert
+        assertThat(testObj.getAccount("acc-2").getBalance()).isEqualByComparingTo("10.00");
+        assertThat(testObj.countAccounts()).isEqualTo(2);
+    }
+}
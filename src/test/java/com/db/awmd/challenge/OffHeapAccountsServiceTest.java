@@ -0,0 +1,10 @@
+package com.db.awmd.challenge;
+
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Runs every accounts service test again with the accounts kept off the heap.
+ */
+@ActiveProfiles("offheap")
+public class OffHeapAccountsServiceTest extends AccountsServiceTest {
+}
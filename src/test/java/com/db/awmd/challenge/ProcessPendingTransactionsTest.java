@@ -0,0 +1,124 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.config.ProcessPendingTransactions;
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.exception.TransferRejectedException;
+import com.db.awmd.challenge.service.TransferService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProcessPendingTransactionsTest {
+
+    private static final String ACCOUNT_ID1 = "acc-001";
+    private static final String ACCOUNT_ID2 = "acc-002";
+
+    @Mock
+    private TransferService transferServiceMock;
+    @Mock
+    private ExecutorService transferExecutorMock;
+
+    private ProcessPendingTransactions testObj;
+
+    private final Account account1 = new Account(ACCOUNT_ID1, BigDecimal.valueOf(100));
+
+    private final Account account2 = new Account(ACCOUNT_ID2, BigDecimal.valueOf(100));
+
+    @Before
+    public void setup() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transferExecutorMock).execute(any());
+        testObj = new ProcessPendingTransactions(transferServiceMock, transferExecutorMock, false, 2);
+    }
+
+    @Test
+    public void testingRecovery_whenATransferIsRejected_shouldStillProcessTheOthers() {
+        Transfer transfer1 = pendingTransfer(1, new Date(0));
+        Transfer transfer2 = pendingTransfer(2, new Date(0));
+        Transfer transfer3 = pendingTransfer(3, new Date(0));
+        when(transferServiceMock.countPendingTransfers()).thenReturn(3L);
+        when(transferServiceMock.findPendingTransfers(anyLong(), anyInt()))
+                .thenReturn(Arrays.asList(transfer1, transfer2, transfer3), Collections.emptyList());
+        doThrow(new TransferRejectedException("Transfer cannot be processed."))
+                .when(transferServiceMock).makeTransfer(transfer2);
+
+        //act
+        testObj.recover();
+
+        //assert
+        InOrder inOrder = inOrder(transferServiceMock);
+        inOrder.verify(transferServiceMock).makeTransfer(transfer1);
+        inOrder.verify(transferServiceMock).makeTransfer(transfer2);
+        inOrder.verify(transferServiceMock).makeTransfer(transfer3);
+        assertEquals(2, testObj.getProgress().getSucceeded());
+        assertEquals(1, testObj.getProgress().getFailed());
+        assertEquals(0, testObj.getProgress().getInFlight());
+        assertTrue(testObj.getProgress().isFinished());
+    }
+
+    @Test
+    public void testingRecovery_whenATransferWasCreatedAfterItStarted_shouldLeaveIt() {
+        Transfer transfer1 = pendingTransfer(1, new Date(0));
+        Transfer transfer2 = pendingTransfer(2, new Date(Long.MAX_VALUE));
+        when(transferServiceMock.countPendingTransfers()).thenReturn(2L);
+        when(transferServiceMock.findPendingTransfers(anyLong(), anyInt()))
+                .thenReturn(Arrays.asList(transfer1, transfer2), Collections.emptyList());
+
+        //act
+        testObj.recover();
+
+        //assert
+        verify(transferServiceMock).makeTransfer(transfer1);
+        verify(transferServiceMock, never()).makeTransfer(transfer2);
+        assertEquals(1, testObj.getProgress().getSucceeded());
+    }
+
+    @Test
+    public void testingRecovery_shouldPageFromTheLastTransferSubmitted() {
+        Transfer transfer1 = pendingTransfer(1, new Date(0));
+        Transfer transfer2 = pendingTransfer(2, new Date(0));
+        when(transferServiceMock.countPendingTransfers()).thenReturn(2L);
+        when(transferServiceMock.findPendingTransfers(anyLong(), anyInt()))
+                .thenReturn(Collections.singletonList(transfer1), Collections.singletonList(transfer2),
+                        Collections.emptyList());
+
+        //act
+        testObj.recover();
+
+        //assert
+        InOrder inOrder = inOrder(transferServiceMock);
+        inOrder.verify(transferServiceMock).findPendingTransfers(eq(Long.MIN_VALUE), anyInt());
+        inOrder.verify(transferServiceMock).findPendingTransfers(eq(1L), anyInt());
+        inOrder.verify(transferServiceMock).findPendingTransfers(eq(2L), anyInt());
+        assertEquals(2, testObj.getProgress().getSucceeded());
+    }
+
+    private Transfer pendingTransfer(long id, Date date) {
+        return Transfer.builder()
+                .id(id)
+                .accountFrom(account1)
+                .accountTo(account2)
+                .amount(BigDecimal.ONE)
+                .state(TransferState.PENDING)
+                .date(date)
+                .build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.db.awmd.challenge;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs every transfer controller test again with the sharded engine.
+ */
+@TestPropertySource(properties = {"transfer.engine=sharded", "transfer.shards=4"})
+public class ShardedTransferControllerTest extends TransferControllerTest {
+}
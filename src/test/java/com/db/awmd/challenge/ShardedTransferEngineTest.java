@@ -0,0 +1,142 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.service.ShardedTransferEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ShardedTransferEngineTest {
+
+    @Mock
+    private TransferRepository transferRepositoryMock;
+
+    private ShardedTransferEngine testObj;
+
+    private Transfer transfer;
+
+    @Before
+    public void setup() {
+        testObj = new ShardedTransferEngine(transferRepositoryMock, 4, 16);
+        Account accountFrom = new Account("acc-001", BigDecimal.valueOf(100));
+        Account accountTo = new Account("acc-002", BigDecimal.valueOf(100));
+        // as the accounts repository would have given them
+        accountFrom.setHandle(0);
+        accountTo.setHandle(1);
+        transfer = Transfer.builder()
+                .accountFrom(accountFrom)
+                .accountTo(accountTo)
+                .amount(BigDecimal.valueOf(50.0))
+                .state(TransferState.PENDING)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        testObj.shutdown();
+    }
+
+    @Test
+    public void testingExecutingATransfer_shouldMoveTheBalancesOnTheShardsAndLogOnTheCaller() throws Exception {
+        List<String> debitThreads = new CopyOnWriteArrayList<>();
+        List<String> loggingThreads = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> debitThreads.add(Thread.currentThread().getName()))
+                .when(transferRepositoryMock).debit(transfer);
+        doAnswer(invocation -> debitThreads.add(Thread.currentThread().getName()))
+                .when(transferRepositoryMock).credit(transfer);
+        doAnswer(invocation -> loggingThreads.add(Thread.currentThread().getName()))
+                .when(transferRepositoryMock).debited(transfer);
+        doAnswer(invocation -> loggingThreads.add(Thread.currentThread().getName()))
+                .when(transferRepositoryMock).complete(transfer);
+
+        //act
+        testObj.execute(transfer);
+
+        //assert
+        InOrder inOrder = inOrder(transferRepositoryMock);
+        inOrder.verify(transferRepositoryMock).debit(transfer);
+        inOrder.verify(transferRepositoryMock).debited(transfer);
+        inOrder.verify(transferRepositoryMock).complete(transfer);
+        verify(transferRepositoryMock).credit(transfer);
+        verify(transferRepositoryMock, never()).executeDebit(any());
+        assertThat(debitThreads).hasSize(2).allMatch(thread -> thread.startsWith("transfer-shard-"));
+        assertThat(loggingThreads).containsOnly(Thread.currentThread().getName());
+    }
+
+    @Test(expected = SQLIntegrityConstraintViolationException.class)
+    public void testingExecutingATransfer_whenTheDebitFails_shouldRejectItWithoutCrediting() throws Exception {
+        doThrow(new SQLIntegrityConstraintViolationException()).when(transferRepositoryMock).debit(any());
+
+        //act
+        try {
+            testObj.execute(transfer);
+        } finally {
+            //assert
+            verify(transferRepositoryMock, never()).credit(any());
+            verify(transferRepositoryMock, never()).debited(any());
+            verify(transferRepositoryMock, never()).complete(any());
+        }
+    }
+
+    @Test
+    public void testingExecutingATransfer_betweenAccountsWithoutHandles_shouldStillRunOnAShard() throws Exception {
+        Transfer withoutHandles = Transfer.builder()
+                .accountFrom(new Account("acc-003", BigDecimal.valueOf(100)))
+                .accountTo(new Account("acc-004", BigDecimal.valueOf(100)))
+                .amount(BigDecimal.ONE)
+                .state(TransferState.PENDING)
+                .build();
+        assertThat(withoutHandles.getAccountFrom().getHandle()).isEqualTo(Account.NO_HANDLE);
+
+        //act
+        testObj.execute(withoutHandles);
+
+        //assert
+        verify(transferRepositoryMock).debit(withoutHandles);
+        verify(transferRepositoryMock).credit(withoutHandles);
+        verify(transferRepositoryMock).complete(withoutHandles);
+    }
+
+    @Test(timeout = 10_000)
+    public void testingExecutingTransfers_whileTheEngineShutsDown_shouldNeverLeaveACallerWaiting() throws Exception {
+        CompletableFuture<?>[] callers = IntStream.range(0, 4)
+                .mapToObj(caller -> CompletableFuture.runAsync(() -> {
+                    while (true) {
+                        try {
+                            testObj.execute(transfer);
+                        } catch (IllegalStateException e) {
+                            return;
+                        } catch (SQLIntegrityConstraintViolationException e) {
+                            throw new AssertionError(e);
+                        }
+                    }
+                }))
+                .toArray(CompletableFuture<?>[]::new);
+        Thread.sleep(50);
+
+        //act
+        testObj.shutdown();
+
+        //assert
+        CompletableFuture.allOf(callers).join();
+        verify(transferRepositoryMock, atLeastOnce()).complete(transfer);
+    }
+}
@@ -0,0 +1,121 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.persistence.DurabilityMode;
+import com.db.awmd.challenge.persistence.FileSnapshotStore;
+import com.db.awmd.challenge.persistence.FileWriteAheadLog;
+import com.db.awmd.challenge.persistence.SnapshotCompactor;
+import com.db.awmd.challenge.persistence.WalRecord;
+import com.db.awmd.challenge.persistence.WalRecovery;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.SnowflakeTransferIdGenerator;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotCompactorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path walDirectory;
+
+    private Path snapshotDirectory;
+
+    private FileWriteAheadLog log;
+
+    private FileSnapshotStore snapshotStore;
+
+    private AccountsRepositoryInMemory accounts;
+
+    private TransferRepositoryInMemory transfers;
+
+    private SnapshotCompactor testObj;
+
+    @Before
+    public void setUp() throws IOException {
+        walDirectory = folder.getRoot().toPath().resolve("wal");
+        snapshotDirectory = folder.getRoot().toPath().resolve("snapshots");
+        log = FileWriteAheadLog.open(walDirectory, DurabilityMode.SYNC, 0);
+        snapshotStore = new FileSnapshotStore(snapshotDirectory);
+        accounts = new AccountsRepositoryInMemory(log);
+        transfers = new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), log, new BalanceVersions(16));
+        testObj = new SnapshotCompactor(log, snapshotStore);
+    }
+
+    @Test
+    public void testingCompact_shouldDropTheSnapshottedLogSegments() throws Exception {
+        accounts.createAccount(new Account("acc-1", BigDecimal.valueOf(100)));
+        accounts.createAccount(new Account("acc-2", BigDecimal.valueOf(100)));
+        transfers.executeTransfer(createTransfer(BigDecimal.valueOf(30)));
+
+        //act
+        testObj.compact();
+
+        //assert
+        assertThat(snapshotStore.getLatestLsn()).isEqualTo(5);
+        List<WalRecord> remaining = new ArrayList<>();
+        log.replay(remaining::add);
+        assertThat(remaining).isEmpty();
+        log.close();
+    }
+
+    @Test
+    public void testingRecovery_fromSnapshotAndLogTail_shouldRebuildAccountsAndOpenTransfers() throws Exception {
+        accounts.createAccount(new Account("acc-1", BigDecimal.valueOf(100)));
+        accounts.createAccount(new Account("acc-2", BigDecimal.valueOf(100)));
+        transfers.executeTransfer(createTransfer(BigDecimal.valueOf(30)));
+        Transfer pendingAcrossSnapshot = createTransfer(BigDecimal.valueOf(20));
+        testObj.compact();
+        Transfer pending = createTransfer(BigDecimal.valueOf(5));
+        transfers.executeTransfer(pendingAcrossSnapshot);
+        testObj.compact();
+        transfers.executeTransfer(createTransfer(BigDecimal.valueOf(10)));
+        log.close();
+
+        FileWriteAheadLog reopened = FileWriteAheadLog.open(walDirectory, DurabilityMode.SYNC, 0);
+        AccountsRepositoryInMemory recoveredAccounts = new AccountsRepositoryInMemory(reopened);
+        TransferRepositoryInMemory recoveredTransfers =
+                new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), reopened, new BalanceVersions(16));
+        WalRecovery recovery = new WalRecovery(reopened, new FileSnapshotStore(snapshotDirectory), recoveredAccounts,
+                recoveredTransfers, new BalanceVersions(16));
+
+        //act
+        recovery.afterPropertiesSet();
+
+        //assert
+        assertThat(recoveredAccounts.getAccount("acc-1").getBalance()).isEqualByComparingTo("40");
+        assertThat(recoveredAccounts.getAccount("acc-2").getBalance()).isEqualByComparingTo("160");
+        Transfer recoveredPending = recoveredTransfers.findById(pending.getId());
+        assertThat(recoveredPending.getState()).isEqualTo(TransferState.PENDING);
+        assertThat(recoveredPending.getAmount()).isEqualByComparingTo("5");
+        assertThat(recoveredPending.getAccountFrom()).isSameAs(recoveredAccounts.getAccount("acc-1"));
+        assertThat(recoveredTransfers.findByState(TransferState.PENDING))
+                .extracting(Transfer::getId).containsExactly(pending.getId());
+        reopened.close();
+    }
+
+    private Transfer createTransfer(BigDecimal amount) {
+        Transfer transfer = Transfer.builder()
+                .accountFrom(accounts.getAccount("acc-1"))
+                .accountTo(accounts.getAccount("acc-2"))
+                .amount(amount)
+                .state(TransferState.PENDING)
+                .build();
+        transfers.createTransfer(transfer);
+        return transfer;
+    }
+}
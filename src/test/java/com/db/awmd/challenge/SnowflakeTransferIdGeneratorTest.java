@@ -0,0 +1,99 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.repository.SnowflakeTransferIdGenerator;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnowflakeTransferIdGeneratorTest {
+
+    private static final long NOW = SnowflakeTransferIdGenerator.EPOCH + 1_000_000L;
+
+    @Test
+    public void testingGeneratingIds_withinTheSameMillisecond_shouldReturnIncreasingIds() {
+        SnowflakeTransferIdGenerator testObj = new SnowflakeTransferIdGenerator(7, () -> NOW);
+
+        //act
+        long previous = testObj.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            long testResult = testObj.nextId();
+
+            //assert
+            assertThat(testResult).isGreaterThan(previous);
+            previous = testResult;
+        }
+    }
+
+    @Test
+    public void testingGeneratingIds_whenTheClockGoesBackwards_shouldKeepIncreasing() {
+        long[] clock = {NOW};
+        SnowflakeTransferIdGenerator testObj = new SnowflakeTransferIdGenerator(1, () -> clock[0]);
+        long before = testObj.nextId();
+        clock[0] = NOW - 5_000;
+
+        //act
+        long testResult = testObj.nextId();
+
+        //assert
+        assertThat(testResult).isGreaterThan(before);
+    }
+
+    @Test
+    public void testingGeneratingIds_afterAdvancingPastAnIdFromTheFuture_shouldReturnGreaterIds() {
+        SnowflakeTransferIdGenerator before = new SnowflakeTransferIdGenerator(3, () -> NOW + 60_000);
+        long restored = before.nextId();
+        SnowflakeTransferIdGenerator testObj = new SnowflakeTransferIdGenerator(3, () -> NOW);
+
+        //act
+        testObj.advancePast(restored);
+        long testResult = testObj.nextId();
+
+        //assert
+        assertThat(testResult).isGreaterThan(restored);
+    }
+
+    @Test
+    public void testingGeneratingIds_onDifferentNodes_shouldNotCollide() {
+        SnowflakeTransferIdGenerator node1 = new SnowflakeTransferIdGenerator(1, () -> NOW);
+        SnowflakeTransferIdGenerator node2 = new SnowflakeTransferIdGenerator(2, () -> NOW);
+
+        //act
+        long testResult1 = node1.nextId();
+        long testResult2 = node2.nextId();
+
+        //assert
+        assertThat(testResult1).isNotEqualTo(testResult2);
+    }
+
+    @Test
+    public void testingGeneratingIds_fromManyThreads_shouldNeverRepeatAnId() throws InterruptedException {
+        SnowflakeTransferIdGenerator testObj = new SnowflakeTransferIdGenerator(0);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int idsPerThread = 50_000;
+        CountDownLatch done = new CountDownLatch(threads);
+
+        //act
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < idsPerThread; i++) {
+                    ids.add(testObj.nextId());
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        //assert
+        assertThat(ids).hasSize(threads * idsPerThread);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testingCreatingAGenerator_withANodeIdOutOfRange_shouldThrowException() {
+        new SnowflakeTransferIdGenerator(SnowflakeTransferIdGenerator.MAX_NODE_ID + 1);
+    }
+}
@@ -0,0 +1,77 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.dto.TransferCommand;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferCommandTest {
+
+    private final TransferCommand testObj = new TransferCommand();
+
+    @Test
+    public void testingWrappingRecords_oneAfterAnother_shouldReadEachOfThem() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * TransferCommand.MAX_LENGTH);
+        int second = TransferCommand.encode(buffer, 0, "acc-1", "acc-2", 1250);
+        int end = TransferCommand.encode(buffer, second, "acc-3", "kónto-4", 7);
+        buffer.limit(end);
+
+        //act
+        int next = testObj.wrap(buffer, 0);
+        String firstFrom = testObj.getAccountFrom();
+        long firstAmount = testObj.getAmountMinorUnits();
+        int testResult = testObj.wrap(buffer, next);
+
+        //assert
+        assertThat(next).isEqualTo(second);
+        assertThat(firstFrom).isEqualTo("acc-1");
+        assertThat(firstAmount).isEqualTo(1250);
+        assertThat(testResult).isEqualTo(end);
+        assertThat(testObj.getAccountFrom()).isEqualTo("acc-3");
+        assertThat(testObj.getAccountTo()).isEqualTo("kónto-4");
+        assertThat(testObj.getAmount()).isEqualByComparingTo("0.07");
+    }
+
+    @Test
+    public void testingWrappingARecord_withANonPositiveAmount_shouldBeRejected() {
+        ByteBuffer buffer = ByteBuffer.wrap(TransferCommand.encode("acc-1", "acc-2", 0));
+
+        try {
+            //act
+            testObj.wrap(buffer, 0);
+            Assert.fail("Should have rejected a transfer of nothing");
+        } catch (IllegalArgumentException e) {
+            //assert
+            assertThat(e.getMessage()).isEqualTo("The value must be positive");
+        }
+    }
+
+    @Test
+    public void testingWrappingARecord_withALengthNotMatchingItsIds_shouldBeRejected() {
+        ByteBuffer buffer = ByteBuffer.wrap(TransferCommand.encode("acc-1", "acc-2", 100));
+        buffer.putInt(TransferCommand.LENGTH, TransferCommand.MAX_LENGTH);
+
+        try {
+            //act
+            testObj.wrap(buffer, 0);
+            Assert.fail("Should have rejected a record with a wrong length");
+        } catch (IllegalArgumentException e) {
+            //assert
+            assertThat(e.getMessage()).isEqualTo("The transfer record length doesn't match its account ids.");
+        }
+    }
+
+    @Test
+    public void testingEncodingARecord_withIdsThatArentAscii_shouldFillAnArrayOfItsExactSize() {
+        //act
+        byte[] testResult = TransferCommand.encode("acc-1", "kónto-4", 7);
+
+        //assert
+        assertThat(testResult).hasSize(TransferCommand.IDS + 5 + 8);
+        assertThat(testObj.wrap(ByteBuffer.wrap(testResult), 0)).isEqualTo(testResult.length);
+        assertThat(testObj.getAccountTo()).isEqualTo("kónto-4");
+    }
+}
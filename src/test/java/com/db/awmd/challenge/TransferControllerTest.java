@@ -1,9 +1,14 @@
 package com.db.awmd.challenge;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.dto.TransferCommand;
 import com.db.awmd.challenge.dto.TransferDto;
 import com.db.awmd.challenge.service.AccountsService;
 import com.db.awmd.challenge.service.TransferService;
+import com.db.awmd.challenge.web.BinaryMessageConverter;
+import com.db.awmd.challenge.web.TransferController;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -13,15 +18,23 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
@@ -33,6 +46,8 @@ public class TransferControllerTest {
   private static final String ACCOUNT_ID1 = "acc-001";
   private static final String ACCOUNT_ID2 = "acc-002";
   private static final String URI = "/v1/transfer";
+  private static final String BATCH_URI = "/v1/transfer/batch";
+  private static final String STREAM_URI = "/v1/transfer/stream";
 
   private MockMvc mockMvc;
 
@@ -45,6 +60,9 @@ public class TransferControllerTest {
   @Autowired
   private WebApplicationContext webApplicationContext;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
   @Before
   public void prepareMockMvc() {
     this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
@@ -72,6 +90,73 @@ public class TransferControllerTest {
     assertThat(account2.getBalance().doubleValue()).isEqualTo(150.0);
   }
 
+  @Test
+  public void whenCreatingTransfer_asABinaryRecord_theAccountsShouldHaveCorrectBalances() throws Exception {
+    this.mockMvc.perform(post(URI).contentType(BinaryMessageConverter.MEDIA_TYPE)
+      .content(TransferCommand.encode(ACCOUNT_ID1, ACCOUNT_ID2, 5000))).andExpect(status().isCreated());
+
+    Account account1 = accountsService.getAccount(ACCOUNT_ID1);
+    Account account2 = accountsService.getAccount(ACCOUNT_ID2);
+    assertThat(account1.getBalance().doubleValue()).isEqualTo(50.0);
+    assertThat(account2.getBalance().doubleValue()).isEqualTo(150.0);
+  }
+
+  @Test
+  public void whenCreatingTransfer_asABinaryRecord_shouldNotAllowATruncatedRecord() throws Exception {
+    byte[] record = TransferCommand.encode(ACCOUNT_ID1, ACCOUNT_ID2, 5000);
+    this.mockMvc.perform(post(URI).contentType(BinaryMessageConverter.MEDIA_TYPE)
+      .content(Arrays.copyOf(record, record.length - 1))).andExpect(status().isBadRequest());
+
+    Account account1 = accountsService.getAccount(ACCOUNT_ID1);
+    assertThat(account1.getBalance().doubleValue()).isEqualTo(100.0);
+  }
+
+  @Test
+  public void whenCreatingTransfer_asABinaryRecord_shouldNotAllowAnAmountWithMoreDigitsThanJson() throws Exception {
+    this.mockMvc.perform(post(URI).contentType(BinaryMessageConverter.MEDIA_TYPE)
+      .content(TransferCommand.encode(ACCOUNT_ID1, ACCOUNT_ID2, 1_000_000_000_000_000_000L)))
+      .andExpect(status().isBadRequest());
+
+    Account account1 = accountsService.getAccount(ACCOUNT_ID1);
+    assertThat(account1.getBalance().doubleValue()).isEqualTo(100.0);
+  }
+
+  @Test
+  public void whenCreatingTransfer_asABinaryRecord_shouldNotAllowToTransferToAnUnexistentAccount() throws Exception {
+    this.mockMvc.perform(post(URI).contentType(BinaryMessageConverter.MEDIA_TYPE)
+      .content(TransferCommand.encode(ACCOUNT_ID1, "12345", 1000)))
+      .andExpect(status().isNotFound())
+      .andExpect(content().string("Account 12345 doesn't exist."));
+  }
+
+  @Test
+  public void whenRetryingTransfer_withTheSameIdempotencyKey_theMoneyShouldMoveOnce() throws Exception {
+    String idempotencyKey = "key-" + System.nanoTime();
+    for (int i = 0; i < 3; i++) {
+      this.mockMvc.perform(post(URI).contentType(MediaType.APPLICATION_JSON)
+        .header(TransferController.IDEMPOTENCY_KEY, idempotencyKey)
+        .content(transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 50))).andExpect(status().isCreated());
+    }
+
+    assertThat(accountsService.getAccount(ACCOUNT_ID1).getBalance().doubleValue()).isEqualTo(50.0);
+    assertThat(accountsService.getAccount(ACCOUNT_ID2).getBalance().doubleValue()).isEqualTo(150.0);
+    assertThat(transferService.getTransferRepository().countTransfers()).isEqualTo(1);
+  }
+
+  @Test
+  public void whenRetryingTransfer_withTheSameIdempotencyKeyForAnotherAmount_shouldBeBadRequest() throws Exception {
+    String idempotencyKey = "key-" + System.nanoTime();
+    this.mockMvc.perform(post(URI).contentType(MediaType.APPLICATION_JSON)
+      .header(TransferController.IDEMPOTENCY_KEY, idempotencyKey)
+      .content(transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 50))).andExpect(status().isCreated());
+
+    this.mockMvc.perform(post(URI).contentType(MediaType.APPLICATION_JSON)
+      .header(TransferController.IDEMPOTENCY_KEY, idempotencyKey)
+      .content(transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 20))).andExpect(status().isBadRequest());
+
+    assertThat(accountsService.getAccount(ACCOUNT_ID1).getBalance().doubleValue()).isEqualTo(50.0);
+  }
+
   @Test
   public void whenCreatingTransfer_theAccountsFromBallanceShouldBeAllowedToBeZero() throws Exception {
     this.mockMvc.perform(post(URI).contentType(MediaType.APPLICATION_JSON)
@@ -116,6 +201,30 @@ public class TransferControllerTest {
     assertThat(account2.getBalance().doubleValue()).isEqualTo(100.0);
   }
 
+  @Test
+  public void whenCreatingTransfer_shouldNotAllowAMissingAmount() throws Exception {
+    this.mockMvc.perform(post(URI).contentType(MediaType.APPLICATION_JSON)
+            .content("{\"accountFrom\": \"" + ACCOUNT_ID1 + "\", \"accountTo\": \"" + ACCOUNT_ID2 + "\"}"))
+            .andExpect(status().isBadRequest());
+
+    Account account1 = accountsService.getAccount(ACCOUNT_ID1);
+    Account account2 = accountsService.getAccount(ACCOUNT_ID2);
+    assertThat(account1.getBalance().doubleValue()).isEqualTo(100.0);
+    assertThat(account2.getBalance().doubleValue()).isEqualTo(100.0);
+    assertThat(transferService.getTransferRepository().countTransfers()).isEqualTo(0);
+  }
+
+  @Test
+  public void whenCreatingTransfer_shouldNotAllowFractionsOfACent() throws Exception {
+    this.mockMvc.perform(post(URI).contentType(MediaType.APPLICATION_JSON)
+            .content(transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 10.005))).andExpect(status().isBadRequest());
+
+    Account account1 = accountsService.getAccount(ACCOUNT_ID1);
+    Account account2 = accountsService.getAccount(ACCOUNT_ID2);
+    assertThat(account1.getBalance().doubleValue()).isEqualTo(100.0);
+    assertThat(account2.getBalance().doubleValue()).isEqualTo(100.0);
+  }
+
   @Test
   public void whenCreatingTransfer_shouldNotAllowToTransferToAnUnexistentAccount() throws Exception {
     this.mockMvc.perform(post(URI).contentType(MediaType.APPLICATION_JSON)
@@ -353,6 +462,92 @@ public class TransferControllerTest {
     assertEquals(thread4.getState(), Thread.State.TERMINATED);
   }
 
+  @Test
+  public void whenCreatingABatch_eachTransferShouldGetItsOwnStatus() throws Exception {
+    String batch = "[" + transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 30) + ","
+            + transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 500) + ","
+            + transferJson(ACCOUNT_ID1, "12345", 10) + ","
+            + transferJson(ACCOUNT_ID1, ACCOUNT_ID1, 10) + ","
+            + transferJson(ACCOUNT_ID1, ACCOUNT_ID2, -10) + "]";
+
+    this.mockMvc.perform(post(BATCH_URI).contentType(MediaType.APPLICATION_JSON).content(batch))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].status").value("CREATED"))
+            .andExpect(jsonPath("$[1].status").value("BAD_REQUEST"))
+            .andExpect(jsonPath("$[2].status").value("NOT_FOUND"))
+            .andExpect(jsonPath("$[3].status").value("BAD_REQUEST"))
+            .andExpect(jsonPath("$[4].status").value("BAD_REQUEST"));
+
+    Account account1 = accountsService.getAccount(ACCOUNT_ID1);
+    Account account2 = accountsService.getAccount(ACCOUNT_ID2);
+    assertThat(account1.getBalance().doubleValue()).isEqualTo(70.0);
+    assertThat(account2.getBalance().doubleValue()).isEqualTo(130.0);
+  }
+
+  @Test
+  public void whenCreatingABatch_aNullEntryShouldBeABadRequestOfItsOwn() throws Exception {
+    String batch = "[" + transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 30) + ", null]";
+
+    this.mockMvc.perform(post(BATCH_URI).contentType(MediaType.APPLICATION_JSON).content(batch))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].status").value("CREATED"))
+            .andExpect(jsonPath("$[1].status").value("BAD_REQUEST"))
+            .andExpect(jsonPath("$[1].message").value("The entry is not a transfer."));
+
+    Account account1 = accountsService.getAccount(ACCOUNT_ID1);
+    assertThat(account1.getBalance().doubleValue()).isEqualTo(70.0);
+  }
+
+  @Test
+  public void whenCreatingABatch_transfersOnTheSameAccountShouldRunInOrder() throws Exception {
+    // the second transfer only has enough funds if the first one already happened
+    String batch = "[" + transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 100) + ","
+            + transferJson(ACCOUNT_ID2, ACCOUNT_ID1, 200) + ","
+            + transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 200) + "]";
+
+    this.mockMvc.perform(post(BATCH_URI).contentType(MediaType.APPLICATION_JSON).content(batch))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].status").value("CREATED"))
+            .andExpect(jsonPath("$[1].status").value("CREATED"))
+            .andExpect(jsonPath("$[2].status").value("CREATED"));
+
+    Account account1 = accountsService.getAccount(ACCOUNT_ID1);
+    Account account2 = accountsService.getAccount(ACCOUNT_ID2);
+    assertThat(account1.getBalance().doubleValue()).isEqualTo(0.0);
+    assertThat(account2.getBalance().doubleValue()).isEqualTo(200.0);
+  }
+
+  @Test
+  public void whenStreamingTransfers_eachLineShouldGetAResultLine() throws Exception {
+    String feed = String.join("\n",
+            transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 30).replace("\n", ""),
+            transferJson(ACCOUNT_ID1, ACCOUNT_ID2, 500).replace("\n", ""),
+            "",
+            transferJson(ACCOUNT_ID1, "12345", 10).replace("\n", ""),
+            "not a transfer",
+            transferJson(ACCOUNT_ID2, ACCOUNT_ID1, 130).replace("\n", ""));
+
+    MvcResult started = this.mockMvc.perform(post(STREAM_URI).contentType(TransferController.NDJSON).content(feed))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    started.getAsyncResult();
+    this.mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+    List<JsonNode> results = new ArrayList<>();
+    for (String line : started.getResponse().getContentAsString().split("\n")) {
+      results.add(objectMapper.readTree(line));
+    }
+    results.sort(Comparator.comparingInt(result -> result.get("index").asInt()));
+    assertThat(results).extracting(result -> result.get("index").asInt()).containsExactly(0, 1, 2, 3, 4);
+    assertThat(results).extracting(result -> result.get("status").asText())
+            .containsExactly("CREATED", "BAD_REQUEST", "NOT_FOUND", "BAD_REQUEST", "CREATED");
+
+    Account account1 = accountsService.getAccount(ACCOUNT_ID1);
+    Account account2 = accountsService.getAccount(ACCOUNT_ID2);
+    assertThat(account1.getBalance().doubleValue()).isEqualTo(200.0);
+    assertThat(account2.getBalance().doubleValue()).isEqualTo(0.0);
+  }
+
   private String transferJson(String from, String to, double amount) {
     return "{\"accountFrom\": \"" + from + "\",\n" +
             "\"accountTo\": \"" + to + "\",\n" +
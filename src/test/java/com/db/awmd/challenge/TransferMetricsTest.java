@@ -0,0 +1,40 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.metrics.TransferMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final TransferMetrics testObj = new TransferMetrics(registry);
+
+    @Test
+    public void testingTransitions_shouldCountEachStateOnItsOwn() {
+        //act
+        testObj.transitioned(TransferState.PENDING);
+        testObj.transitioned(TransferState.PENDING);
+        testObj.transitioned(TransferState.COMPLETED);
+
+        //assert
+        assertThat(registry.find("transfer.transitions").tag("state", "PENDING").counter().count()).isEqualTo(2);
+        assertThat(registry.find("transfer.transitions").tag("state", "COMPLETED").counter().count()).isEqualTo(1);
+        assertThat(registry.find("transfer.transitions").tag("state", "FAILED").counter().count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testingRecordingAnExecution_shouldTimeIt() {
+        //act
+        testObj.recordExecution(TimeUnit.MILLISECONDS.toNanos(3));
+
+        //assert
+        assertThat(registry.find("transfer.execution").timer().count()).isEqualTo(1);
+        assertThat(registry.find("transfer.execution").timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(3);
+    }
+}
@@ -0,0 +1,154 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceVersions;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferState;
+import com.db.awmd.challenge.persistence.NoOpWriteAheadLog;
+import com.db.awmd.challenge.repository.SnowflakeTransferIdGenerator;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferRepositoryInMemoryTest {
+
+    private final Account accountFrom = new Account("acc-001", BigDecimal.valueOf(1000));
+
+    private final Account accountTo = new Account("acc-002", BigDecimal.valueOf(1000));
+
+    private TransferRepositoryInMemory testObj;
+
+    @Before
+    public void setup() {
+        // as the accounts repository would have given them
+        accountFrom.setHandle(0);
+        accountTo.setHandle(1);
+        testObj = new TransferRepositoryInMemory(new SnowflakeTransferIdGenerator(0), new NoOpWriteAheadLog(),
+                new BalanceVersions(16));
+    }
+
+    @Test
+    public void testingCountingByState_shouldCountEachTransferUnderItsCurrentState() throws Exception {
+        createPending();
+        Transfer failed = createPending();
+        Transfer completed = createPending();
+
+        //act
+        failed.setState(TransferState.FAILED);
+        testObj.save(failed);
+        testObj.executeTransfer(completed);
+
+        //assert
+        assertThat(testObj.countByState(TransferState.PENDING)).isEqualTo(1);
+        assertThat(testObj.countByState(TransferState.DEBITED)).isEqualTo(0);
+        assertThat(testObj.countByState(TransferState.FAILED)).isEqualTo(1);
+        assertThat(testObj.countByState(TransferState.COMPLETED)).isEqualTo(1);
+        assertThat(testObj.countTransfers()).isEqualTo(3);
+    }
+
+    @Test
+    public void testingFindingByState_pageByPage_shouldReturnEveryTransferOnceInCreationOrder() {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(createPending().getId());
+        }
+        testObj.save(Transfer.builder()
+                .id(created.get(2))
+                .accountFrom(accountFrom)
+                .accountTo(accountTo)
+                .amount(BigDecimal.ONE)
+                .state(TransferState.FAILED)
+                .build());
+
+        //act
+        List<Long> testResult = new ArrayList<>();
+        List<Transfer> page = testObj.findByState(TransferState.PENDING, Long.MIN_VALUE, 2);
+        while (!page.isEmpty()) {
+            assertThat(page.size()).isLessThanOrEqualTo(2);
+            page.forEach(transfer -> testResult.add(transfer.getId()));
+            page = testObj.findByState(TransferState.PENDING, page.get(page.size() - 1).getId(), 2);
+        }
+
+        //assert
+        assertThat(testResult).containsExactly(created.get(0), created.get(1), created.get(3), created.get(4));
+    }
+
+    @Test
+    public void testingMovingATransferBetweenStates_shouldMoveItsIndexEntry() {
+        Transfer transfer = createPending();
+
+        //act
+        testObj.debited(transfer);
+
+        //assert
+        assertThat(testObj.findByState(TransferState.PENDING)).isEmpty();
+        assertThat(testObj.findByState(TransferState.DEBITED)).containsExactly(transfer);
+        assertThat(testObj.countByState(TransferState.PENDING)).isEqualTo(0);
+        assertThat(testObj.countByState(TransferState.DEBITED)).isEqualTo(1);
+
+        //act
+        testObj.complete(transfer);
+
+        //assert
+        assertThat(testObj.findByState(TransferState.DEBITED)).isEmpty();
+        assertThat(testObj.findByState(TransferState.COMPLETED)).containsExactly(transfer);
+        assertThat(testObj.countByState(TransferState.DEBITED)).isEqualTo(0);
+        assertThat(testObj.countByState(TransferState.COMPLETED)).isEqualTo(1);
+    }
+
+    @Test
+    public void testingClearingTransfers_shouldEmptyEveryState() {
+        createPending();
+        testObj.debited(createPending());
+
+        //act
+        testObj.clearTransfers();
+
+        //assert
+        for (TransferState state : TransferState.values()) {
+            assertThat(testObj.countByState(state)).isEqualTo(0);
+            assertThat(testObj.findByState(state)).isEmpty();
+        }
+    }
+
+    @Test
+    public void testingCreatingATransfer_afterRestoringTransfers_shouldGiveItAGreaterIdThanEveryRestoredOne() {
+        SnowflakeTransferIdGenerator beforeRestart = new SnowflakeTransferIdGenerator(0,
+                () -> System.currentTimeMillis() + 60_000);
+        long[] restoredIds = {beforeRestart.nextId(), beforeRestart.nextId(), beforeRestart.nextId()};
+        for (long id : restoredIds) {
+            testObj.restoreTransfer(Transfer.builder()
+                    .id(id)
+                    .accountFrom(accountFrom)
+                    .accountTo(accountTo)
+                    .amount(BigDecimal.ONE)
+                    .state(TransferState.PENDING)
+                    .build());
+        }
+
+        //act
+        Transfer testResult = createPending();
+
+        //assert
+        assertThat(testResult.getId()).isGreaterThan(restoredIds[2]);
+        assertThat(testObj.countTransfers()).isEqualTo(4);
+        assertThat(testObj.countByState(TransferState.PENDING)).isEqualTo(4);
+    }
+
+    private Transfer createPending() {
+        Transfer transfer = Transfer.builder()
+                .accountFrom(accountFrom)
+                .accountTo(accountTo)
+                .amount(BigDecimal.ONE)
+                .state(TransferState.PENDING)
+                .build();
+        testObj.createTransfer(transfer);
+        return transfer;
+    }
+}
@@ -1,17 +1,23 @@
 package com.db.awmd.challenge;
 
+import com.db.awmd.challenge.config.TransferExecutorConfig;
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.domain.TransferState;
 import com.db.awmd.challenge.dto.TransferDto;
+import com.db.awmd.challenge.dto.TransferPageDto;
+import com.db.awmd.challenge.dto.TransferResultDto;
 import com.db.awmd.challenge.exception.AccountNotFoundException;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 import com.db.awmd.challenge.exception.TransferRejectedException;
+import com.db.awmd.challenge.metrics.TransferMetrics;
 import com.db.awmd.challenge.repository.TransferRepository;
 import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.IdempotencyCache;
 import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.TransferEngine;
 import com.db.awmd.challenge.service.TransferService;
-import com.sun.javafx.binding.StringFormatter;
+import com.db.awmd.challenge.service.TransferStream;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -22,13 +28,17 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 
+import jakarta.validation.Validation;
 import java.math.BigDecimal;
 import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -43,6 +53,14 @@ public class TransferServiceTest {
     private AccountsService accountsServiceMock;
     @Mock
     private NotificationService notificationServiceMock;
+    @Mock
+    private TransferEngine transferEngineMock;
+    @Mock
+    private ExecutorService transferExecutorMock;
+    @Mock
+    private TransferMetrics transferMetricsMock;
+    @Mock
+    private IdempotencyCache idempotencyCacheMock;
 
     @InjectMocks
     private TransferService testObj;
@@ -59,7 +77,9 @@ public class TransferServiceTest {
 
     @Before
     public void setup() {
-        testObj = new TransferService(transferRepositoryMock, accountsServiceMock, notificationServiceMock);
+        testObj = new TransferService(transferRepositoryMock, accountsServiceMock, notificationServiceMock, transferEngineMock,
+                transferExecutorMock, transferMetricsMock, idempotencyCacheMock,
+                Validation.buildDefaultValidatorFactory().getValidator());
     }
 
     @Test(expected = DuplicateAccountIdException.class)
@@ -72,7 +92,7 @@ public class TransferServiceTest {
 
         testObj.createTransfer(transfer);
 
-        verify(notificationServiceMock, times(0)).notifyAboutTransfer(any(), any());
+        verifyNoInteractions(notificationServiceMock);
     }
 
     @Test(expected = AccountNotFoundException.class)
@@ -83,11 +103,11 @@ public class TransferServiceTest {
                 .amount(BigDecimal.valueOf(50.0))
                 .build();
 
-        when(accountsServiceMock.getAccount(ACCOUNT_ID1)).thenReturn(null);
+        when(accountsServiceMock.getAccounts(ACCOUNT_ID1, ACCOUNT_ID2)).thenReturn(new Account[]{null, account2});
 
         testObj.createTransfer(transfer);
 
-        verify(notificationServiceMock, times(0)).notifyAboutTransfer(any(), any());
+        verifyNoInteractions(notificationServiceMock);
     }
 
     @Test(expected = AccountNotFoundException.class)
@@ -98,14 +118,13 @@ public class TransferServiceTest {
                 .amount(BigDecimal.valueOf(50.0))
                 .build();
 
-        when(accountsServiceMock.getAccount(ACCOUNT_ID1)).thenReturn(account1);
-        when(accountsServiceMock.getAccount(ACCOUNT_ID2)).thenReturn(null);
+        when(accountsServiceMock.getAccounts(ACCOUNT_ID1, ACCOUNT_ID2)).thenReturn(new Account[]{account1, null});
 
         //act
         testObj.createTransfer(transfer);
 
         //assert
-        verify(notificationServiceMock, times(0)).notifyAboutTransfer(any(), any());
+        verifyNoInteractions(notificationServiceMock);
     }
 
     @Test
@@ -116,8 +135,7 @@ public class TransferServiceTest {
                 .amount(BigDecimal.valueOf(50.0))
                 .build();
 
-        when(accountsServiceMock.getAccount(ACCOUNT_ID1)).thenReturn(account1);
-        when(accountsServiceMock.getAccount(ACCOUNT_ID2)).thenReturn(account2);
+        when(accountsServiceMock.getAccounts(ACCOUNT_ID1, ACCOUNT_ID2)).thenReturn(new Account[]{account1, account2});
 
         //act
         testObj.createTransfer(transfer);
@@ -133,7 +151,7 @@ public class TransferServiceTest {
                 })
         );
 
-        verify(transferRepositoryMock, times(1)).executeTransfer(
+        verify(transferEngineMock, times(1)).execute(
                 argThat(t -> {
                     assertEquals(t.getAccountFrom(), account1);
                     assertEquals(t.getAccountTo(), account2);
@@ -144,9 +162,9 @@ public class TransferServiceTest {
         );
 
         verify(notificationServiceMock, times(1))
-                .notifyAboutTransfer(account1, "Sent transfer to acc-002 in the amount of 50.0");
+                .notifyAboutTransfer(eq(account1), describedAs("Sent transfer to acc-002 in the amount of 50.0"));
         verify(notificationServiceMock, times(1))
-                .notifyAboutTransfer(account2, "Received transfer from acc-001 in the amount of 50.0");
+                .notifyAboutTransfer(eq(account2), describedAs("Received transfer from acc-001 in the amount of 50.0"));
     }
 
     @Test(expected = TransferRejectedException.class)
@@ -157,10 +175,9 @@ public class TransferServiceTest {
                 .amount(BigDecimal.valueOf(50.0))
                 .build();
 
-        when(accountsServiceMock.getAccount(ACCOUNT_ID1)).thenReturn(account1);
-        when(accountsServiceMock.getAccount(ACCOUNT_ID2)).thenReturn(account2);
+        when(accountsServiceMock.getAccounts(ACCOUNT_ID1, ACCOUNT_ID2)).thenReturn(new Account[]{account1, account2});
 
-        doThrow(new SQLIntegrityConstraintViolationException()).when(transferRepositoryMock).executeTransfer(any());
+        doThrow(new SQLIntegrityConstraintViolationException()).when(transferEngineMock).execute(any());
 
         //act
         testObj.createTransfer(transfer);
@@ -183,7 +200,159 @@ public class TransferServiceTest {
                 })
         );
 
-        verify(notificationServiceMock, times(0)).notifyAboutTransfer(any(), any());
+        verifyNoInteractions(notificationServiceMock);
+    }
+
+    @Test
+    public void testingCreatingATransferWithAnIdempotencyKey_shouldMakeItThroughTheCache() throws SQLIntegrityConstraintViolationException {
+        TransferDto transfer = TransferDto.builder()
+                .accountFrom(ACCOUNT_ID1)
+                .accountTo(ACCOUNT_ID2)
+                .amount(BigDecimal.valueOf(50.0))
+                .build();
+
+        when(accountsServiceMock.getAccounts(ACCOUNT_ID1, ACCOUNT_ID2)).thenReturn(new Account[]{account1, account2});
+        doAnswer(invocation -> {
+            invocation.<Transfer>getArgument(0).setId(42);
+            return null;
+        }).when(transferRepositoryMock).createTransfer(any());
+        runThroughTheCache("key-1", transfer);
+
+        //act
+        TransferResultDto testResult = testObj.createTransfer("key-1", transfer);
+
+        //assert
+        assertEquals(TransferResultDto.Status.CREATED, testResult.getStatus());
+        assertEquals(Long.valueOf(42), testResult.getTransferId());
+        verify(transferEngineMock, times(1)).execute(any());
+    }
+
+    @Test
+    public void testingCreatingATransferWithAnIdempotencyKey_whenTheEngineRejectsIt_shouldKeepTheRejection() throws SQLIntegrityConstraintViolationException {
+        TransferDto transfer = TransferDto.builder()
+                .accountFrom(ACCOUNT_ID1)
+                .accountTo(ACCOUNT_ID2)
+                .amount(BigDecimal.valueOf(500.0))
+                .build();
+
+        when(accountsServiceMock.getAccounts(ACCOUNT_ID1, ACCOUNT_ID2)).thenReturn(new Account[]{account1, account2});
+        doThrow(new SQLIntegrityConstraintViolationException()).when(transferEngineMock).execute(any());
+        runThroughTheCache("key-1", transfer);
+
+        //act
+        TransferResultDto testResult = testObj.createTransfer("key-1", transfer);
+
+        //assert
+        assertEquals(TransferResultDto.Status.BAD_REQUEST, testResult.getStatus());
+        assertEquals("Transfer cannot be processed.", testResult.getMessage());
+    }
+
+    @Test
+    public void testingCreatingATransferWithAnIdempotencyKey_whenTheAccountDoesntExist_shouldKeepItNotFound() {
+        TransferDto transfer = TransferDto.builder()
+                .accountFrom(ACCOUNT_ID1)
+                .accountTo(ACCOUNT_ID2)
+                .amount(BigDecimal.valueOf(50.0))
+                .build();
+
+        when(accountsServiceMock.getAccounts(ACCOUNT_ID1, ACCOUNT_ID2)).thenReturn(new Account[]{null, account2});
+        runThroughTheCache("key-1", transfer);
+
+        //act
+        TransferResultDto testResult = testObj.createTransfer("key-1", transfer);
+
+        //assert
+        assertEquals(TransferResultDto.Status.NOT_FOUND, testResult.getStatus());
+        assertEquals("Account acc-001 doesn't exist.", testResult.getMessage());
+        verify(transferRepositoryMock, never()).createTransfer(any());
+    }
+
+    @Test
+    public void testingAStream_whenNobodyTakesTheResults_shouldStillGiveTheEngineCapacityBack() throws Exception {
+        TransferDto transfer = TransferDto.builder()
+                .accountFrom(ACCOUNT_ID1)
+                .accountTo(ACCOUNT_ID2)
+                .amount(BigDecimal.valueOf(10.0))
+                .build();
+
+        when(accountsServiceMock.getAccounts(ACCOUNT_ID1, ACCOUNT_ID2)).thenReturn(new Account[]{account1, account2});
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transferExecutorMock).execute(any());
+        Semaphore engineCapacity = new Semaphore(1);
+        TransferStream stream = testObj.openTransferStream(engineCapacity, 2);
+
+        //act
+        stream.submit(transfer);
+        stream.submit(transfer);
+
+        //assert
+        assertEquals(1, engineCapacity.availablePermits());
+        assertEquals(TransferResultDto.Status.CREATED, stream.take().getStatus());
+        assertEquals(TransferResultDto.Status.CREATED, stream.poll().getStatus());
+        assertNull(stream.poll());
+        stream.close();
+        assertNull(stream.take());
+    }
+
+    @Test
+    public void testingAStream_afterTheExecutorShutsDown_shouldFailTheTransferAndGiveTheEngineCapacityBack()
+            throws Exception {
+        TransferDto transfer = TransferDto.builder()
+                .accountFrom(ACCOUNT_ID1)
+                .accountTo(ACCOUNT_ID2)
+                .amount(BigDecimal.valueOf(10.0))
+                .build();
+
+        when(accountsServiceMock.getAccounts(ACCOUNT_ID1, ACCOUNT_ID2)).thenReturn(new Account[]{account1, account2});
+        ExecutorService transferExecutor = new TransferExecutorConfig().transferExecutor(1, 1);
+        transferExecutor.shutdown();
+        testObj = new TransferService(transferRepositoryMock, accountsServiceMock, notificationServiceMock,
+                transferEngineMock, transferExecutor, transferMetricsMock, idempotencyCacheMock,
+                Validation.buildDefaultValidatorFactory().getValidator());
+        Semaphore engineCapacity = new Semaphore(1);
+        TransferStream stream = testObj.openTransferStream(engineCapacity, 2);
+
+        //act
+        stream.submit(transfer);
+        stream.submit(transfer);
+
+        //assert
+        assertEquals(1, engineCapacity.availablePermits());
+        TransferResultDto testResult = stream.take();
+        assertEquals(TransferResultDto.Status.BAD_REQUEST, testResult.getStatus());
+        assertEquals("Transfer cannot be processed.", testResult.getMessage());
+        assertEquals(TransferResultDto.Status.BAD_REQUEST, stream.take().getStatus());
+        stream.close();
+        assertNull(stream.take());
+        verify(transferEngineMock, never()).execute(any());
+        verify(transferRepositoryMock, times(2)).save(argThat(saved -> saved.getState() == TransferState.FAILED));
+    }
+
+    @Test
+    public void testingMakingATransfer_whenTheEngineRejectsIt_shouldSaveItAsFailed() throws SQLIntegrityConstraintViolationException {
+        Transfer transfer = Transfer.builder()
+                .accountFrom(account1)
+                .accountTo(account2)
+                .amount(BigDecimal.valueOf(500.0))
+                .state(TransferState.PENDING)
+                .build();
+
+        doThrow(new SQLIntegrityConstraintViolationException()).when(transferEngineMock).execute(any());
+
+        //act
+        try {
+            testObj.makeTransfer(transfer);
+            Assert.fail("Should have rejected the transfer");
+        } catch (TransferRejectedException e) {
+            //assert
+            verify(transferRepositoryMock, times(1)).save(transfer);
+            assertEquals(transfer.getState(), TransferState.FAILED);
+            verifyNoInteractions(notificationServiceMock);
+            verify(transferMetricsMock).transitioned(TransferState.FAILED);
+            verify(transferMetricsMock).recordExecution(anyLong());
+        }
     }
 
     @Test
@@ -204,4 +373,79 @@ public class TransferServiceTest {
         //assert
         assertEquals(testResult, transfers);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testingFindingAPageOfPendingTransfers_shouldQueryTheStateIndexFromTheCursor() {
+        Transfer transfer1 = Transfer.builder()
+                .id(42L)
+                .accountFrom(account1)
+                .accountTo(account2)
+                .amount(BigDecimal.valueOf(50.0))
+                .state(TransferState.PENDING)
+                .build();
+
+        List<Transfer> transfers = Arrays.asList(transfer1);
+        when(transferRepositoryMock.findByState(TransferState.PENDING, 41L, 10)).thenReturn(transfers);
+
+        //act
+        List<Transfer> testResult = testObj.findPendingTransfers(41L, 10);
+
+        //assert
+        assertEquals(testResult, transfers);
+    }
+
+    @Test
+    public void testingFindingAccountTransfers_withoutACursor_shouldStartFromTheLatest() {
+        Transfer transfer1 = Transfer.builder()
+                .id(42L)
+                .accountFrom(account1)
+                .accountTo(account2)
+                .amount(BigDecimal.valueOf(50.0))
+                .state(TransferState.COMPLETED)
+                .build();
+
+        when(accountsServiceMock.getAccount(ACCOUNT_ID1)).thenReturn(account1);
+        when(transferRepositoryMock.countByAccount(account1)).thenReturn(3L);
+        when(transferRepositoryMock.findByAccount(account1, 3L, 2)).thenReturn(Arrays.asList(transfer1));
+
+        //act
+        TransferPageDto testResult = testObj.findAccountTransfers(ACCOUNT_ID1, null, 2);
+
+        //assert
+        assertEquals(1, testResult.getTransfers().size());
+        assertEquals(42L, testResult.getTransfers().get(0).getId());
+        assertEquals(ACCOUNT_ID2, testResult.getTransfers().get(0).getAccountTo());
+        assertEquals(Long.valueOf(1L), testResult.getNextCursor());
+    }
+
+    @Test
+    public void testingFindingAccountTransfers_onTheOldestPage_shouldNotReturnACursor() {
+        when(accountsServiceMock.getAccount(ACCOUNT_ID1)).thenReturn(account1);
+        when(transferRepositoryMock.findByAccount(account1, 2L, 2)).thenReturn(Arrays.asList());
+
+        //act
+        TransferPageDto testResult = testObj.findAccountTransfers(ACCOUNT_ID1, 2L, 2);
+
+        //assert
+        assertEquals(null, testResult.getNextCursor());
+    }
+
+    @Test(expected = AccountNotFoundException.class)
+    public void testingFindingAccountTransfers_whenTheAccountDoesntExist_shouldThrowException() {
+        when(accountsServiceMock.getAccount(ACCOUNT_ID1)).thenReturn(null);
+
+        testObj.findAccountTransfers(ACCOUNT_ID1, null, 2);
+    }
+
+    /**
+     * Has the cache mock make the transfer, as it does the first time it sees a key.
+     */
+    private void runThroughTheCache(String key, TransferDto transfer) {
+        when(idempotencyCacheMock.execute(eq(key), eq(transfer), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<TransferResultDto>>getArgument(2).get());
+    }
+
+    private static Supplier<String> describedAs(String description) {
+        return argThat(transferDescription -> description.equals(transferDescription.get()));
+    }
+}
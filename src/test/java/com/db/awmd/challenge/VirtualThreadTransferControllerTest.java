@@ -0,0 +1,23 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Runs every transfer controller test again with requests and transfers on virtual threads.
+ */
+@ActiveProfiles("virtual")
+public class VirtualThreadTransferControllerTest extends TransferControllerTest {
+
+  @Autowired
+  private ExecutorService transferExecutor;
+
+  @Test
+  public void whenServingOnVirtualThreads_transfersShouldBeExecutedOnVirtualThreads() throws Exception {
+    assertThat(transferExecutor.submit(() -> Thread.currentThread().isVirtual()).get()).isTrue();
+  }
+}